@@ -6,8 +6,11 @@ import org.dealership.exceptions.EntityNotFoundException;
 import org.dealership.exceptions.ValidationException;
 
 import org.dealership.model.Car;
+import org.dealership.model.CarSummary;
 import org.dealership.model.enums.CarStatus;
+import org.dealership.repository.Criteria;
 import org.dealership.repository.DBRepository;
+import org.dealership.repository.Sort;
 import org.dealership.service.CarService;
 
 import java.util.List;
@@ -69,7 +72,38 @@ public class CarController {
      * Lists all cars from the database.
      */
     public void listAllCarsFromDB() {
-        dbCarRepo.readAll().forEach(System.out::println);
+        dbCarRepo.forEach(System.out::println);
+    }
+
+    /**
+     * Lists one page of cars, ordered by ID.
+     *
+     * @param afterId  the ID of the last car on the previous page, or 0 for the first page
+     * @param pageSize the maximum number of cars to list
+     * @return the ID of the last car listed, or {@code afterId} if the page is empty
+     */
+    public long listCarsPage(long afterId, int pageSize) {
+        return printPage(carService.getCarsPage(afterId, pageSize), afterId);
+    }
+
+    /**
+     * Lists one page of cars from the database, ordered by ID.
+     * Only the columns shown in the list are read.
+     *
+     * @param afterId  the ID of the last car on the previous page, or 0 for the first page
+     * @param pageSize the maximum number of cars to list
+     * @return the ID of the last car listed, or {@code afterId} if the page is empty
+     */
+    public long listCarsPageFromDB(long afterId, int pageSize) {
+        List<CarSummary> page = dbCarRepo.select(CarSummary.class, Criteria.gt("carId", afterId),
+                Sort.asc("carId"), 0, pageSize);
+        page.forEach(System.out::println);
+        return page.isEmpty() ? afterId : page.get(page.size() - 1).carId();
+    }
+
+    private long printPage(List<Car> page, long afterId) {
+        page.forEach(System.out::println);
+        return page.isEmpty() ? afterId : page.get(page.size() - 1).getId();
     }
 
 
@@ -92,6 +126,15 @@ public class CarController {
         cars.forEach(System.out::println);
     }
 
+    /**
+     * Prints the number of cars per status and the total price of the available cars.
+     */
+    public void showInventorySummary() {
+        carService.countCarsByStatus()
+                .forEach((status, count) -> System.out.println(status + ": " + count));
+        System.out.printf("Available inventory value: %.2f%n", carService.getAvailableInventoryValue());
+    }
+
     public void listLeasedCars() {
         List<Car> cars = carService.getLeasedCars();
         System.out.println("The list of leased cars:");
@@ -114,6 +157,21 @@ public class CarController {
         }
     }
 
+    /**
+     * Changes the price of the car with the specified ID.
+     *
+     * @param carId the ID of the car
+     * @param price the new price
+     */
+    public void updateCarPrice(long carId, float price) {
+        try {
+            Car car = carService.changeCarPrice(carId, price);
+            System.out.println("The price of the Car with ID " + carId + " is now " + car.getPrice() + ".");
+        } catch (BusinessLogicException e) {
+            throw new BusinessLogicException("Cannot update the car price: " + e.getMessage());
+        }
+    }
+
     /**
      * Marks a car with the specified ID as leased.
      *
@@ -195,6 +253,17 @@ public class CarController {
         sortedCars.forEach(System.out::println);
     }
 
+    /**
+     * Lists the cheapest cars currently available.
+     *
+     * @param limit the maximum number of cars to list
+     */
+    public void listCheapestAvailableCars(int limit) {
+        List<Car> cars = carService.getCheapestAvailableCars(limit);
+        System.out.println("The " + limit + " cheapest available cars:");
+        cars.forEach(System.out::println);
+    }
+
     public void deleteCarFromDB(long carId) {
         try {
             carService.deleteCarFromDB(carId);
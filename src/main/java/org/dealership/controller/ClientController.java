@@ -54,7 +54,34 @@ public class ClientController {
     }
 
     public void listAllClientsFromDB() {
-        dbClientRepo.readAll().forEach(System.out::println);
+        dbClientRepo.forEach(System.out::println);
+    }
+
+    /**
+     * Lists one page of clients, ordered by ID.
+     *
+     * @param afterId  the ID of the last client on the previous page, or 0 for the first page
+     * @param pageSize the maximum number of clients to list
+     * @return the ID of the last client listed, or {@code afterId} if the page is empty
+     */
+    public long listClientsPage(long afterId, int pageSize) {
+        return printPage(clientService.getClientsPage(afterId, pageSize), afterId);
+    }
+
+    /**
+     * Lists one page of clients from the database, ordered by ID.
+     *
+     * @param afterId  the ID of the last client on the previous page, or 0 for the first page
+     * @param pageSize the maximum number of clients to list
+     * @return the ID of the last client listed, or {@code afterId} if the page is empty
+     */
+    public long listClientsPageFromDB(long afterId, int pageSize) {
+        return printPage(dbClientRepo.readPage(afterId, pageSize), afterId);
+    }
+
+    private long printPage(List<Client> page, long afterId) {
+        page.forEach(System.out::println);
+        return page.isEmpty() ? afterId : page.get(page.size() - 1).getId();
     }
 
     /**
@@ -52,7 +52,7 @@ public class EmployeeController {
     }
 
     public void listAllEmployeesFromDB() {
-        dbEmployeeRepo.readAll().forEach(System.out::println);
+        dbEmployeeRepo.forEach(System.out::println);
     }
 
     public void findEmployeeById(long employeeId) {
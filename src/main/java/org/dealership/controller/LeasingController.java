@@ -44,8 +44,10 @@ public class LeasingController {
 
     /**
      * Adds a new leasing contract directly to the database with the specified details.
+     * The car is marked as leased and a leasing transaction is recorded in the same database transaction.
      *
      * @param leasingId      the ID of the leasing contract
+     * @param transactionId  the ID of the leasing transaction to record
      * @param car            the car associated with the leasing
      * @param client         the client associated with the leasing
      * @param durationMonths the duration of the leasing in months
@@ -53,12 +55,12 @@ public class LeasingController {
      * @param monthlyRate    the calculated monthly rate
      * @param totalAmount    the calculated total amount
      */
-    public void addLeasingToDB(long leasingId, Car car, Client client, int durationMonths, float interestRate, float monthlyRate, float totalAmount) {
+    public void addLeasingToDB(long leasingId, long transactionId, Car car, Client client, int durationMonths, float interestRate, float monthlyRate, float totalAmount) {
         try {
             Leasing leasing = new Leasing(leasingId, car, client, durationMonths, monthlyRate, interestRate, totalAmount);
-            dbLeasingRepo.create(leasing);
+            leasingService.leaseCarInDB(leasing, transactionId);
             System.out.println("Leasing contract added successfully to the database!");
-        } catch (ValidationException e) {
+        } catch (ValidationException | BusinessLogicException e) {
             throw e;
         } catch (Exception e) {
             throw new DatabaseException("Error adding leasing to the database: " + e.getMessage());
@@ -107,7 +109,7 @@ public class LeasingController {
     }
 
     public void listAllLeasingsFromDB() {
-        dbLeasingRepo.readAll().forEach(System.out::println);
+        dbLeasingRepo.forEach(System.out::println);
     }
 
     /**
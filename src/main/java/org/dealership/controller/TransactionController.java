@@ -59,7 +59,43 @@ public class TransactionController {
 
 
     public void listAllTransactionsFromDB() {
-        dbTransactionRepo.readAll().forEach(System.out::println);
+        dbTransactionRepo.forEach(System.out::println);
+    }
+
+    /**
+     * Lists one page of transactions, ordered by ID.
+     *
+     * @param afterId  the ID of the last transaction on the previous page, or 0 for the first page
+     * @param pageSize the maximum number of transactions to list
+     * @return the ID of the last transaction listed, or {@code afterId} if the page is empty
+     */
+    public long listTransactionsPage(long afterId, int pageSize) {
+        return printPage(transactionService.getTransactionsPage(afterId, pageSize), afterId);
+    }
+
+    /**
+     * Lists one page of transactions from the database, ordered by ID.
+     *
+     * @param afterId  the ID of the last transaction on the previous page, or 0 for the first page
+     * @param pageSize the maximum number of transactions to list
+     * @return the ID of the last transaction listed, or {@code afterId} if the page is empty
+     */
+    public long listTransactionsPageFromDB(long afterId, int pageSize) {
+        return printPage(dbTransactionRepo.readPage(afterId, pageSize), afterId);
+    }
+
+    private long printPage(List<Transaction> page, long afterId) {
+        page.forEach(System.out::println);
+        return page.isEmpty() ? afterId : page.get(page.size() - 1).getId();
+    }
+
+    /**
+     * Prints the number of transactions of each type.
+     */
+    public void showTransactionCounts() {
+        for (TransactionType type : TransactionType.values()) {
+            System.out.println(type + ": " + transactionService.countTransactionsByType(type));
+        }
     }
 
     /**
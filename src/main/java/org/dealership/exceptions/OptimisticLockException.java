@@ -0,0 +1,23 @@
+package org.dealership.exceptions;
+
+import java.util.List;
+
+/**
+ * Thrown when an update of a versioned entity finds that the row was changed or deleted since the
+ * entity was read. Re-read the entity and apply the change again to retry.
+ */
+public class OptimisticLockException extends DatabaseException {
+    private final List<Long> ids;
+
+    public OptimisticLockException(String message, List<Long> ids) {
+        super(message);
+        this.ids = List.copyOf(ids);
+    }
+
+    /**
+     * @return the IDs of the entities whose update was rejected
+     */
+    public List<Long> getIds() {
+        return ids;
+    }
+}
@@ -2,7 +2,8 @@ package org.dealership.model;
 
 import org.dealership.model.enums.CarStatus;
 
-public class Car implements HasID{
+@GenerateRowMapper
+public class Car implements HasID, Versioned {
     private long carId;
     private String brand;
     private String model;
@@ -10,6 +11,7 @@ public class Car implements HasID{
     private float price;
     private int mileage;
     private CarStatus status;
+    private long version;
 
     // No-argument constructor
     public Car() {
@@ -81,6 +83,14 @@ public class Car implements HasID{
         this.status = status;
     }
 
+    public long getVersion() {
+        return version;
+    }
+
+    public void setVersion(long version) {
+        this.version = version;
+    }
+
     public void markAsSold() {
         this.status = CarStatus.SOLD;
     }
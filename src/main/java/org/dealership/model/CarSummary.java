@@ -0,0 +1,8 @@
+package org.dealership.model;
+
+/**
+ * The columns of a {@link Car} shown on listing screens.
+ * Read with {@code DBRepository.select(CarSummary.class, ...)}, which only selects these columns.
+ */
+public record CarSummary(long carId, String brand, String model, float price) {
+}
@@ -3,6 +3,7 @@ package org.dealership.model;
 import java.util.ArrayList;
 import java.util.List;
 
+@GenerateRowMapper
 public class Client extends Person implements HasID{
     private long clientId;
     private List<Car> purchasedCars = new ArrayList<>();
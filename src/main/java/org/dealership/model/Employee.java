@@ -3,6 +3,7 @@ package org.dealership.model;
 import java.util.ArrayList;
 import java.util.List;
 
+@GenerateRowMapper
 public class Employee extends Person implements HasID {
     private long employeeId;
     private String role; // Example: Manager, Salesperson, etc.
@@ -0,0 +1,20 @@
+package org.dealership.model;
+
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+/**
+ * Asks {@link org.dealership.repository.mapping.RowMapperProcessor} to generate a {@code <Entity>RowMapper}
+ * next to the annotated entity at compile time. The generated mapper binds and reads the entity's columns
+ * through its getters and setters, and is picked up by {@link org.dealership.repository.EntityMapper}
+ * instead of field handles.
+ * <p>
+ * Every mapped field needs a public getter and setter ({@code getId}/{@code setId} for the id field),
+ * and the entity needs a public no-argument constructor.
+ */
+@Retention(RetentionPolicy.SOURCE)
+@Target(ElementType.TYPE)
+public @interface GenerateRowMapper {
+}
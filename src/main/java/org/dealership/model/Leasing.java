@@ -7,6 +7,7 @@ import java.io.Serializable;
  * Contains details about the car, client, leasing duration, interest rate, monthly rate, and total amount.
  */
 
+@GenerateRowMapper
 public class Leasing implements HasID{
     private long leasingId;
     private Car car;
@@ -0,0 +1,10 @@
+package org.dealership.model;
+
+import java.util.List;
+
+/**
+ * The car and client of a new leasing contract, together with the client's existing contracts.
+ * Loaded with {@code LeasingService.loadLeasingParties}, which runs the three lookups concurrently.
+ */
+public record LeasingParties(Car car, Client client, List<Leasing> leasings) {
+}
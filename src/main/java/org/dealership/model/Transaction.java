@@ -4,6 +4,7 @@ import org.dealership.model.enums.TransactionType;
 
 import java.util.Date;
 
+@GenerateRowMapper
 public class Transaction implements HasID{
     private long transactionId;
     private long carId;
@@ -47,6 +48,22 @@ public class Transaction implements HasID{
         this.clientId = client;
     }
 
+    public long getCarId() {
+        return carId;
+    }
+
+    public void setCarId(long carId) {
+        this.carId = carId;
+    }
+
+    public long getClientId() {
+        return clientId;
+    }
+
+    public void setClientId(long clientId) {
+        this.clientId = clientId;
+    }
+
     public TransactionType getTransactionType() {
         return transactionType;
     }
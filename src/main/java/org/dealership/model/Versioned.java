@@ -0,0 +1,22 @@
+package org.dealership.model;
+
+/**
+ * Interface for entities stored with a {@code version} column for optimistic concurrency control.
+ * Every successful database update increments the version, and an update carrying an outdated
+ * version is rejected instead of overwriting a concurrent change.
+ */
+public interface Versioned {
+    /**
+     * Gets the version of the entity as it was read from the database.
+     *
+     * @return the version
+     */
+    long getVersion();
+
+    /**
+     * Sets the version of the entity.
+     *
+     * @param version the version to set
+     */
+    void setVersion(long version);
+}
@@ -1,6 +1,8 @@
 package org.dealership.presentation;
 
 import org.dealership.controller.*;
+import org.dealership.exceptions.BusinessLogicException;
+import org.dealership.exceptions.DatabaseException;
 import org.dealership.model.*;
 import org.dealership.model.enums.TransactionType;
 import org.dealership.repository.entityRepos.*;
@@ -14,16 +16,25 @@ import org.dealership.repository.parsers.ClientParser;
 import org.dealership.repository.parsers.EmployeeParser;
 import org.dealership.repository.parsers.LeasingParser;
 import org.dealership.repository.parsers.TransactionParser;
+import org.dealership.repository.ConnectionPool;
 import org.dealership.repository.DBRepository;
+import org.dealership.repository.DatabaseConfig;
+import org.dealership.repository.EntityCache;
+import org.dealership.repository.ReplicaRouter;
+import org.dealership.repository.SchemaMigrator;
 
 import java.io.File;
+import java.sql.SQLException;
 import java.util.List;
+import java.util.function.LongUnaryOperator;
 
 /**
  * Entry point for the Carvy dealership application.
  * Provides a console-based menu for managing cars, clients, employees, leasing contracts, and transactions.
  */
 public class ConsoleApp {
+    private static final int PAGE_SIZE = 20;
+
     public static void main(String[] args) {
 
         // Initialize files
@@ -64,6 +75,10 @@ public class ConsoleApp {
         TransactionRepository transactionRepo = null;
         DBRepository<Transaction> dbTransactionRepo = null;
 
+        ConnectionPool connectionPool = null;
+        ConnectionPool replicaPool = null;
+        ReplicaRouter replicaRouter = null;
+
         boolean useDatabase = (repoChoice == 2);
 
         if (repoChoice == 1) {
@@ -77,11 +92,41 @@ public class ConsoleApp {
         } else {
             System.out.println("Using Database Repository.");
 
-            dbCarRepo = new DBRepository<>(Car.class, "cars");
-            dbClientRepo = new DBRepository<>(Client.class, "clients");
-            dbEmployeeRepo = new DBRepository<>(Employee.class, "employees");
-            dbLeasingRepo = new DBRepository<>(Leasing.class, "leasings");
-            dbTransactionRepo = new DBRepository<>(Transaction.class, "transactions");
+            DatabaseConfig databaseConfig = DatabaseConfig.load();
+            connectionPool = new ConnectionPool(databaseConfig);
+            for (String script : new SchemaMigrator(connectionPool).migrate()) {
+                System.out.println("Applied schema migration " + script);
+            }
+            dbCarRepo = new DBRepository<>(Car.class, "cars", connectionPool);
+            dbCarRepo.setCache(EntityCache.fromConfig(databaseConfig));
+            if (databaseConfig.isWriteBehindEnabled()) {
+                // Bursts of status and price edits are coalesced and written in batches
+                dbCarRepo.enableWriteBehind(databaseConfig.getWriteBehindMaxPending(),
+                        databaseConfig.getWriteBehindFlushIntervalMillis());
+            }
+            dbClientRepo = new DBRepository<>(Client.class, "clients", connectionPool);
+            dbClientRepo.setCache(EntityCache.fromConfig(databaseConfig));
+            dbEmployeeRepo = new DBRepository<>(Employee.class, "employees", connectionPool);
+            dbLeasingRepo = new DBRepository<>(Leasing.class, "leasings", connectionPool);
+            dbTransactionRepo = new DBRepository<>(Transaction.class, "transactions", connectionPool);
+            replicaPool = ConnectionPool.replica(databaseConfig);
+            if (replicaPool != null) {
+                // Listings and reports read from the replica; a session reads its own writes from the primary
+                replicaRouter = ReplicaRouter.fromConfig(connectionPool, replicaPool, databaseConfig);
+                dbCarRepo.setReplicaRouter(replicaRouter);
+                dbClientRepo.setReplicaRouter(replicaRouter);
+                dbEmployeeRepo.setReplicaRouter(replicaRouter);
+                dbLeasingRepo.setReplicaRouter(replicaRouter);
+                dbTransactionRepo.setReplicaRouter(replicaRouter);
+            }
+            try {
+                connectionPool.warmUp();
+                if (replicaPool != null) {
+                    replicaPool.warmUp();
+                }
+            } catch (SQLException e) {
+                System.err.println("Connection pool warm-up failed: " + e.getMessage());
+            }
         }
 
 
@@ -93,7 +138,8 @@ public class ConsoleApp {
         CarService carService = new CarService(carRepo, dbCarRepo);
         ClientService clientService = new ClientService(clientRepo, dbClientRepo);
         EmployeeService employeeService = new EmployeeService(empRepo, dbEmployeeRepo);
-        LeasingService leasingService = new LeasingService(leasingRepo, leasingManager, leasingManagerImpl, dbLeasingRepo);
+        LeasingService leasingService = new LeasingService(leasingRepo, leasingManager, leasingManagerImpl, dbLeasingRepo, dbCarRepo,
+                dbClientRepo, dbTransactionRepo);
         TransactionService transactionService = new TransactionService(transactionRepo, dbTransactionRepo);
 
 
@@ -113,7 +159,8 @@ public class ConsoleApp {
 
             switch (userType) {
                 case 1 ->
-                        adminMenu(carController, clientController, employeeController, leasingController, transactionController, carService, clientService, useDatabase);
+                        adminMenu(carController, clientController, employeeController, leasingController, transactionController, carService, clientService,
+                                leasingService, useDatabase);
                 case 2 -> clientMenu(carController, leasingController, clientService, leasingService);
                 case 3 -> {
                     System.out.println("Exiting the application...");
@@ -121,6 +168,28 @@ public class ConsoleApp {
                 }
             }
         }
+
+        leasingService.close();
+
+        // Release pooled database connections
+        if (connectionPool != null) {
+            if (dbCarRepo.getWriteBehind() != null) {
+                dbCarRepo.getWriteBehind().close();
+            }
+            System.out.println("Connection pool: " + connectionPool);
+            System.out.println("Car cache: " + dbCarRepo.getCache());
+            System.out.println("Client cache: " + dbClientRepo.getCache());
+            System.out.println("JDBC timings: " + dbCarRepo.getMetrics());
+            try {
+                if (replicaPool != null) {
+                    System.out.println("Replica pool: " + replicaPool + ", " + replicaRouter);
+                    replicaPool.close();
+                }
+                connectionPool.close();
+            } catch (SQLException e) {
+                e.printStackTrace();
+            }
+        }
     }
 
     private static void adminMenu(
@@ -131,6 +200,7 @@ public class ConsoleApp {
             TransactionController transactionController,
             CarService carService,
             ClientService clientService,
+            LeasingService leasingService,
             boolean useDatabase
     ) {
         boolean running = true;
@@ -147,7 +217,7 @@ public class ConsoleApp {
                 case 1 -> carMenu(carController, useDatabase);
                 case 2 -> clientMenu(clientController, useDatabase);
                 case 3 -> employeeMenu(employeeController, carService, useDatabase);
-                case 4 -> leasingMenu(leasingController, carService, clientService, useDatabase);
+                case 4 -> leasingMenu(leasingController, leasingService, carService, clientService, useDatabase);
                 case 5 -> transactionMenu(transactionController, carService, clientService, useDatabase);
                 case 0 -> {
                     System.out.println("Exiting...");
@@ -230,6 +300,8 @@ public class ConsoleApp {
                     "Cars by Filtering",
                     "Mark Car as SOLD",
                     "Mark Car as LEASED",
+                    "Browse Cars Page by Page",
+                    "Update Car Price",
             });
 
             switch (choice) {
@@ -272,6 +344,14 @@ public class ConsoleApp {
                     long carId = MenuHandler.readInt("Car ID: ");
                     carController.markCarAsLeased(carId);
                 }
+                case 8 -> browsePages(afterId -> useDatabase
+                        ? carController.listCarsPageFromDB(afterId, PAGE_SIZE)
+                        : carController.listCarsPage(afterId, PAGE_SIZE));
+                case 9 -> {
+                    long carId = MenuHandler.readLong("Car ID: ");
+                    float price = MenuHandler.readFloat("New Price: ");
+                    carController.updateCarPrice(carId, price);
+                }
                 case 0 -> {
                     System.out.println("Returning to the main menu...");
                     inCarMenu = false;
@@ -286,13 +366,18 @@ public class ConsoleApp {
         while (inSortingMenu) {
             int choice = MenuHandler.showMenu("Cars by Sorting", new String[]{
                     "Sort Cars by Year",
-                    "Sort Cars by Price"
+                    "Sort Cars by Price",
+                    "Cheapest Available Cars"
             });
 
             switch (choice) {
 
                 case 1 -> carController.listCarsSortedByYear();
                 case 2 -> carController.listCarsSortedByPrice();
+                case 3 -> {
+                    int limit = MenuHandler.readInt("How many cars: ");
+                    carController.listCheapestAvailableCars(limit);
+                }
                 case 0 -> {
                     System.out.println("Returning to the car menu...");
                     inSortingMenu = false;
@@ -310,7 +395,8 @@ public class ConsoleApp {
                     "List Sold Cars",
                     "List Leased Cars",
                     "Filter by Year",
-                    "Filter by Budget"
+                    "Filter by Budget",
+                    "Inventory Summary"
             });
 
             switch (choice) {
@@ -325,6 +411,7 @@ public class ConsoleApp {
                     int maxBudget = MenuHandler.readInt("Your Maximum Budget: ");
                     carController.listCarsWithinBudget(maxBudget);
                 }
+                case 6 -> carController.showInventorySummary();
                 case 0 -> {
                     System.out.println("Returning to the car menu...");
                     inFilteringMenu = false;
@@ -345,7 +432,8 @@ public class ConsoleApp {
                     "List All Clients",
                     "Find Client by ID",
                     "Find Client by Name",
-                    "Delete Client"
+                    "Delete Client",
+                    "Browse Clients Page by Page"
             });
 
             switch (choice) {
@@ -383,6 +471,9 @@ public class ConsoleApp {
                         clientController.deleteClient(clientId);
                     }
                 }
+                case 6 -> browsePages(afterId -> useDatabase
+                        ? clientController.listClientsPageFromDB(afterId, PAGE_SIZE)
+                        : clientController.listClientsPage(afterId, PAGE_SIZE));
                 case 0 -> {
                     System.out.println("Returning to the main menu...");
                     inClientMenu = false;
@@ -457,7 +548,8 @@ public class ConsoleApp {
         }
     }
 
-    private static void leasingMenu(LeasingController leasingController, CarService carService, ClientService clientService, boolean useDatabase) {
+    private static void leasingMenu(LeasingController leasingController, LeasingService leasingService, CarService carService,
+                                    ClientService clientService, boolean useDatabase) {
         boolean inLeasingMenu = true;
 
         while (inLeasingMenu) {
@@ -474,8 +566,17 @@ public class ConsoleApp {
                     long clientId = MenuHandler.readLong("Client ID: ");
 
                     try {
-                        Car car = carService.findCarById(carId);
-                        Client client = clientService.findClientById(clientId);
+                        Car car;
+                        Client client;
+                        if (useDatabase) {
+                            LeasingParties parties = leasingService.loadLeasingParties(carId, clientId);
+                            car = parties.car();
+                            client = parties.client();
+                            System.out.println(client.getFullName() + " has " + parties.leasings().size() + " leasing contract(s).");
+                        } else {
+                            car = carService.findCarById(carId);
+                            client = clientService.findClientById(clientId);
+                        }
 
                         int durationMonths = MenuHandler.readInt("Contract Duration (months): ");
                         int monthlyRate = MenuHandler.readInt("Contract Monthly Rate: ");
@@ -485,12 +586,13 @@ public class ConsoleApp {
                         float adminFee = MenuHandler.readFloat("Administrative Fee: ");
                         float taxRate = MenuHandler.readFloat("Tax Rate (%): ");
                         if (useDatabase) {
-                            leasingController.addLeasingToDB(leasingId, car, client, durationMonths, monthlyRate, interestRate, totalAmount);
+                            long transactionId = MenuHandler.readLong("Transaction ID: ");
+                            leasingController.addLeasingToDB(leasingId, transactionId, car, client, durationMonths, monthlyRate, interestRate, totalAmount);
                         } else {
                             leasingController.createLeasing(leasingId, car, client, durationMonths, interestRate, downPayment, adminFee, taxRate);
                         }
 
-                    } catch (IllegalArgumentException e) {
+                    } catch (IllegalArgumentException | BusinessLogicException | DatabaseException e) {
                         System.err.println("Error: " + e.getMessage());
                     }
                 }
@@ -538,7 +640,9 @@ public class ConsoleApp {
             int choice = MenuHandler.showMenu("Manage Transactions", new String[]{
                     "Add Transaction",
                     "List All Transactions",
-                    "List Transactions by Type"
+                    "List Transactions by Type",
+                    "Browse Transactions Page by Page",
+                    "Transaction Summary"
             });
 
             switch (choice) {
@@ -600,6 +704,10 @@ public class ConsoleApp {
                         System.err.println("Invalid Transaction Type! Please choose SOLD or LEASED.");
                     }
                 }
+                case 4 -> browsePages(afterId -> useDatabase
+                        ? transactionController.listTransactionsPageFromDB(afterId, PAGE_SIZE)
+                        : transactionController.listTransactionsPage(afterId, PAGE_SIZE));
+                case 5 -> transactionController.showTransactionCounts();
                 case 0 -> {
                     System.out.println("Returning to main menu...");
                     inTransactionMenu = false;
@@ -609,5 +717,23 @@ public class ConsoleApp {
         }
     }
 
-
-}
\ No newline at end of file
+    /**
+     * Shows one page at a time until the user stops or there are no more records.
+     *
+     * @param showPage prints the page after the given ID and returns the last ID shown
+     */
+    private static void browsePages(LongUnaryOperator showPage) {
+        long lastId = 0;
+        while (true) {
+            long nextId = showPage.applyAsLong(lastId);
+            if (nextId == lastId) {
+                System.out.println("No more records.");
+                return;
+            }
+            lastId = nextId;
+            if (MenuHandler.readInt("1. Next page / 0. Stop: ") != 1) {
+                return;
+            }
+        }
+    }
+}
@@ -0,0 +1,136 @@
+package org.dealership.repository;
+
+import org.dealership.model.HasID;
+
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.function.Supplier;
+
+/**
+ * Asynchronous facade over an {@link IRepository}. Every call runs on its own virtual thread
+ * and returns a {@link CompletableFuture}, so independent lookups can be issued together:
+ * <pre>{@code
+ * CompletableFuture<Car> car = asyncCars.read(carId);
+ * CompletableFuture<Client> client = asyncClients.read(clientId);
+ * CompletableFuture.allOf(car, client).join();
+ * }</pre>
+ * Blocking JDBC calls park the virtual thread rather than an OS thread; the number of queries
+ * actually in flight is still bounded by the {@link ConnectionPool} size.
+ * The wrapped repository must be safe for concurrent use, as {@link DBRepository} is.
+ * <p>
+ * Calls on a {@link DBRepository} with a {@link ReplicaRouter} share the read-your-writes window of
+ * the thread that issued them, so an asynchronous read after a write sees it, in either direction.
+ *
+ * @param <T> The type of the entity extending HasID.
+ */
+public class AsyncRepository<T extends HasID> implements AutoCloseable {
+    private final IRepository<T> repository;
+    private final ExecutorService executor;
+    private final boolean ownsExecutor;
+
+    /**
+     * Creates a facade that starts a new virtual thread per call.
+     *
+     * @param repository the repository to delegate to
+     */
+    public AsyncRepository(IRepository<T> repository) {
+        this(repository, Executors.newVirtualThreadPerTaskExecutor(), true);
+    }
+
+    /**
+     * Creates a facade that runs calls on the given executor, e.g. one shared by several repositories.
+     * The executor is not shut down by {@link #close()}.
+     *
+     * @param repository the repository to delegate to
+     * @param executor   the executor running the calls
+     */
+    public AsyncRepository(IRepository<T> repository, ExecutorService executor) {
+        this(repository, executor, false);
+    }
+
+    private AsyncRepository(IRepository<T> repository, ExecutorService executor, boolean ownsExecutor) {
+        this.repository = repository;
+        this.executor = executor;
+        this.ownsExecutor = ownsExecutor;
+    }
+
+    public IRepository<T> getRepository() {
+        return repository;
+    }
+
+    public CompletableFuture<Void> create(T obj) {
+        return run(() -> repository.create(obj));
+    }
+
+    /**
+     * @return a future completed with the entity, or with {@code null} if it does not exist
+     */
+    public CompletableFuture<T> read(long id) {
+        return supply(() -> repository.read(id));
+    }
+
+    public CompletableFuture<List<T>> readAll() {
+        return supply(repository::readAll);
+    }
+
+    public CompletableFuture<List<T>> readPage(long afterId, int limit) {
+        return supply(() -> repository.readPage(afterId, limit));
+    }
+
+    public CompletableFuture<List<T>> find(Criteria criteria) {
+        return supply(() -> repository.find(criteria));
+    }
+
+    public CompletableFuture<List<T>> find(Criteria criteria, Sort sort, int offset, int limit) {
+        return supply(() -> repository.find(criteria, sort, offset, limit));
+    }
+
+    public CompletableFuture<Long> count(Criteria criteria) {
+        return supply(() -> repository.count(criteria));
+    }
+
+    public CompletableFuture<Map<Object, Long>> groupCount(String field) {
+        return supply(() -> repository.groupCount(field));
+    }
+
+    public CompletableFuture<Double> sum(String field, Criteria criteria) {
+        return supply(() -> repository.sum(field, criteria));
+    }
+
+    public CompletableFuture<Void> update(T obj) {
+        return run(() -> repository.update(obj));
+    }
+
+    public CompletableFuture<Boolean> compareAndSet(long id, String field, Object expected, Object newValue) {
+        return supply(() -> repository.compareAndSet(id, field, expected, newValue));
+    }
+
+    public CompletableFuture<Void> delete(long id) {
+        return run(() -> repository.delete(id));
+    }
+
+    private CompletableFuture<Void> run(Runnable call) {
+        return supply(() -> {
+            call.run();
+            return null;
+        });
+    }
+
+    private <R> CompletableFuture<R> supply(Supplier<R> call) {
+        ReplicaRouter router = repository instanceof DBRepository<?> db ? db.getReplicaRouter() : null;
+        return CompletableFuture.supplyAsync(router != null ? router.inCallersWindow(call) : call, executor);
+    }
+
+    /**
+     * Waits for the running calls to finish and releases the executor, if this facade created it.
+     */
+    @Override
+    public void close() {
+        if (ownsExecutor) {
+            executor.close();
+        }
+    }
+}
@@ -0,0 +1,124 @@
+package org.dealership.repository;
+
+import org.dealership.exceptions.DatabaseException;
+import org.dealership.model.HasID;
+import org.postgresql.PGConnection;
+import org.postgresql.copy.CopyIn;
+import org.postgresql.copy.PGCopyOutputStream;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.List;
+import java.util.stream.Stream;
+
+/**
+ * Bulk loader that streams entities into PostgreSQL with {@code COPY ... FROM STDIN}.
+ * Rows are encoded from the columns derived by {@link EntityMapper} and written straight to the
+ * copy stream, so the input is never materialised as a list.
+ * <p>
+ * Every value is quoted, so commas, quotes and line breaks in text are loaded as they are, and a null
+ * is sent as an unquoted empty field. The version column of {@link org.dealership.model.Versioned}
+ * entities is left out and starts at its default of 0.
+ *
+ * @param <T> The type of the entity extending HasID.
+ */
+public class BulkLoader<T extends HasID> {
+    private static final int BUFFER_SIZE = 64 * 1024;
+
+    private final EntityMapper<T> mapper;
+    private final ConnectionPool connectionPool;
+    private final String copySql;
+    // Mapper column index of each copied field
+    private final int[] copiedColumns;
+
+    /**
+     * @param type           the entity class
+     * @param connectionPool the pool to borrow the loading connection from
+     */
+    public BulkLoader(Class<T> type, ConnectionPool connectionPool) {
+        this.mapper = EntityMapper.of(type);
+        this.connectionPool = connectionPool;
+
+        List<String> columnNames = mapper.getColumnNames();
+        List<String> columns = new ArrayList<>();
+        int[] copiedColumns = new int[columnNames.size()];
+        for (int i = 0; i < columnNames.size(); i++) {
+            if (!mapper.isVersionColumn(i)) {
+                copiedColumns[columns.size()] = i;
+                columns.add(columnNames.get(i));
+            }
+        }
+        this.copiedColumns = Arrays.copyOf(copiedColumns, columns.size());
+        // In CSV format an unquoted empty field is NULL and a quoted one is an empty string
+        this.copySql = "COPY " + mapper.getTableName() + " (" + String.join(", ", columns) + ")"
+                + " FROM STDIN WITH (FORMAT csv)";
+    }
+
+    public String getCopySql() {
+        return copySql;
+    }
+
+    /**
+     * Streams the given entities into the table.
+     *
+     * @param entities the entities to load
+     * @return the number of rows copied
+     * @throws DatabaseException if the copy fails; no rows are loaded in that case
+     */
+    public long load(Stream<? extends T> entities) {
+        return load(entities.iterator());
+    }
+
+    public long load(Iterable<? extends T> entities) {
+        return load(entities.iterator());
+    }
+
+    public long load(Iterator<? extends T> entities) {
+        try (Connection conn = connectionPool.getConnection()) {
+            CopyIn copyIn = conn.unwrap(PGConnection.class).getCopyAPI().copyIn(copySql);
+            try {
+                PGCopyOutputStream out = new PGCopyOutputStream(copyIn, BUFFER_SIZE);
+                Writer writer = new BufferedWriter(new OutputStreamWriter(out, StandardCharsets.UTF_8), BUFFER_SIZE);
+                while (entities.hasNext()) {
+                    writer.write(toCopyRow(entities.next()));
+                    writer.write('\n');
+                }
+                writer.flush();
+                return copyIn.endCopy();
+            } catch (IOException | RuntimeException e) {
+                if (copyIn.isActive()) {
+                    copyIn.cancelCopy();
+                }
+                throw e;
+            }
+        } catch (SQLException | IOException e) {
+            throw new DatabaseException("Bulk load into " + mapper.getTableName() + " failed: " + e.getMessage(), e);
+        }
+    }
+
+    /**
+     * Encodes one entity as a COPY row in the form {@link DBRepository} stores it, e.g. with
+     * {@code Available} for {@code CarStatus.AVAILABLE}.
+     */
+    String toCopyRow(T entity) {
+        StringBuilder row = new StringBuilder(128);
+        for (int i = 0; i < copiedColumns.length; i++) {
+            if (i > 0) {
+                row.append(',');
+            }
+            String value = mapper.columnText(entity, copiedColumns[i]);
+            if (value != null) {
+                row.append('"').append(value.replace("\"", "\"\"")).append('"');
+            }
+        }
+        return row.toString();
+    }
+}
@@ -0,0 +1,220 @@
+package org.dealership.repository;
+
+import org.apache.commons.dbcp2.BasicDataSource;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Shared JDBC connection pool backed by commons-dbcp2.
+ * Every {@link DBRepository} borrows its connections from a pool instead of opening
+ * a new physical connection per call. Closing a borrowed connection returns it to the pool.
+ */
+public class ConnectionPool implements AutoCloseable {
+    private static ConnectionPool shared;
+
+    private final BasicDataSource dataSource;
+    private final int batchSize;
+    private final int fetchSize;
+    private final int warmUpConnections;
+
+    // Statements prepared on each pooled connection by warmUp()
+    private final Set<String> registeredStatements = ConcurrentHashMap.newKeySet();
+
+    // Borrow statistics
+    private final LongAdder borrowCount = new LongAdder();
+    private final LongAdder totalWaitNanos = new LongAdder();
+    private final AtomicLong maxWaitNanos = new AtomicLong();
+
+    /**
+     * Creates a new pool using the given configuration.
+     *
+     * @param config the database configuration
+     */
+    public ConnectionPool(DatabaseConfig config) {
+        this(config, config.getUrl(), config.getUser(), config.getPassword());
+    }
+
+    private ConnectionPool(DatabaseConfig config, String url, String user, String password) {
+        dataSource = new BasicDataSource();
+        dataSource.setDriverClassName("org.postgresql.Driver");
+        dataSource.setUrl(url);
+        dataSource.setUsername(user);
+        dataSource.setPassword(password);
+        dataSource.setMaxTotal(config.getMaxTotal());
+        dataSource.setMaxIdle(config.getMaxIdle());
+        dataSource.setMinIdle(config.getMinIdle());
+        dataSource.setMaxWaitMillis(config.getMaxWaitMillis());
+        dataSource.setInitialSize(config.getInitialSize());
+
+        // Cache PreparedStatements per pooled connection, keyed by SQL
+        dataSource.setPoolPreparedStatements(config.isPoolPreparedStatements());
+        dataSource.setMaxOpenPreparedStatements(config.getMaxOpenPreparedStatements());
+        dataSource.addConnectionProperty("prepareThreshold", String.valueOf(config.getPrepareThreshold()));
+
+        // Lets pgjdbc collapse batched INSERTs into multi-row statements
+        dataSource.addConnectionProperty("reWriteBatchedInserts", String.valueOf(config.isReWriteBatchedInserts()));
+        this.batchSize = config.getBatchSize();
+        this.fetchSize = config.getFetchSize();
+        this.warmUpConnections = Math.min(config.getInitialSize(), config.getMaxTotal());
+    }
+
+    /**
+     * Creates a pool for the read replica, sized like the primary pool.
+     *
+     * @param config the database configuration
+     * @return the replica pool, or {@code null} if {@code carvy.db.replica.url} is not set
+     */
+    public static ConnectionPool replica(DatabaseConfig config) {
+        String url = config.getReplicaUrl();
+        return url == null ? null : new ConnectionPool(config, url, config.getReplicaUser(), config.getReplicaPassword());
+    }
+
+    /**
+     * Returns the application-wide pool, creating it from {@link DatabaseConfig#load()} on first use.
+     *
+     * @return the shared pool
+     */
+    public static synchronized ConnectionPool shared() {
+        if (shared == null) {
+            shared = new ConnectionPool(DatabaseConfig.load());
+        }
+        return shared;
+    }
+
+    /**
+     * Borrows a connection from the pool.
+     *
+     * @return a pooled connection; closing it returns it to the pool
+     * @throws SQLException if no connection could be obtained
+     */
+    public Connection getConnection() throws SQLException {
+        long start = System.nanoTime();
+        try {
+            return dataSource.getConnection();
+        } finally {
+            long waited = System.nanoTime() - start;
+            borrowCount.increment();
+            totalWaitNanos.add(waited);
+            maxWaitNanos.accumulateAndGet(waited, Math::max);
+        }
+    }
+
+    /**
+     * Registers SQL statements to prepare on every connection during {@link #warmUp()}.
+     *
+     * @param sql the statements a repository executes
+     */
+    public void registerStatements(Collection<String> sql) {
+        registeredStatements.addAll(sql);
+    }
+
+    /**
+     * Opens the initial pooled connections and prepares every registered statement on each of them,
+     * so the first requests do not pay for connecting or parsing.
+     * The statements stay in the per-connection statement cache and are reused on later calls.
+     *
+     * @return the number of statements prepared
+     * @throws SQLException if a connection cannot be opened or a statement fails to parse
+     */
+    public int warmUp() throws SQLException {
+        // Hold the connections at the same time so each one is a distinct pooled connection
+        List<Connection> connections = new ArrayList<>();
+        int prepared = 0;
+        try {
+            for (int i = 0; i < warmUpConnections; i++) {
+                connections.add(getConnection());
+            }
+            for (Connection conn : connections) {
+                for (String sql : registeredStatements) {
+                    try (PreparedStatement stmt = conn.prepareStatement(sql)) {
+                        // Describing the statement makes the server parse it ahead of the first execution
+                        stmt.getParameterMetaData();
+                        prepared++;
+                    }
+                }
+            }
+        } finally {
+            for (Connection conn : connections) {
+                conn.close();
+            }
+        }
+        return prepared;
+    }
+
+    /**
+     * @return the configured number of rows sent per JDBC batch
+     */
+    public int getBatchSize() {
+        return batchSize;
+    }
+
+    /**
+     * @return the configured number of rows fetched per round trip when streaming
+     */
+    public int getFetchSize() {
+        return fetchSize;
+    }
+
+    /**
+     * @return the number of connections currently borrowed from the pool
+     */
+    public int getActiveConnections() {
+        return dataSource.getNumActive();
+    }
+
+    /**
+     * @return the number of idle connections waiting in the pool
+     */
+    public int getIdleConnections() {
+        return dataSource.getNumIdle();
+    }
+
+    public long getBorrowCount() {
+        return borrowCount.sum();
+    }
+
+    /**
+     * @return the average time spent waiting for a connection, in milliseconds
+     */
+    public double getAverageWaitMillis() {
+        long count = borrowCount.sum();
+        return count == 0 ? 0 : totalWaitNanos.sum() / (count * 1_000_000.0);
+    }
+
+    /**
+     * @return the longest time spent waiting for a connection, in milliseconds
+     */
+    public double getMaxWaitMillis() {
+        return maxWaitNanos.get() / 1_000_000.0;
+    }
+
+    @Override
+    public void close() throws SQLException {
+        synchronized (ConnectionPool.class) {
+            if (shared == this) {
+                shared = null;
+            }
+        }
+        dataSource.close();
+    }
+
+    @Override
+    public String toString() {
+        return "ConnectionPool{" +
+                "active=" + getActiveConnections() +
+                ", idle=" + getIdleConnections() +
+                ", borrowed=" + getBorrowCount() +
+                ", avgWaitMs=" + String.format("%.3f", getAverageWaitMillis()) +
+                ", maxWaitMs=" + String.format("%.3f", getMaxWaitMillis()) +
+                '}';
+    }
+}
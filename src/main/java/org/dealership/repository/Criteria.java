@@ -0,0 +1,260 @@
+package org.dealership.repository;
+
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.util.List;
+import java.util.Objects;
+
+/**
+ * A filter over entity fields that every repository can apply.
+ * {@link DBRepository} compiles it into a parameterised {@code WHERE} clause so only matching
+ * rows are read, while the file and in-memory repositories evaluate it against each entity.
+ * Fields are referenced by their Java name, e.g. {@code Criteria.gt("year", 2018)}.
+ */
+public abstract class Criteria {
+
+    Criteria() {
+    }
+
+    /**
+     * @return criteria matching every entity
+     */
+    public static Criteria all() {
+        return new All();
+    }
+
+    public static Criteria eq(String field, Object value) {
+        return new Comparison(field, Operator.EQ, value);
+    }
+
+    public static Criteria gt(String field, Object value) {
+        return new Comparison(field, Operator.GT, value);
+    }
+
+    public static Criteria ge(String field, Object value) {
+        return new Comparison(field, Operator.GE, value);
+    }
+
+    public static Criteria lt(String field, Object value) {
+        return new Comparison(field, Operator.LT, value);
+    }
+
+    public static Criteria le(String field, Object value) {
+        return new Comparison(field, Operator.LE, value);
+    }
+
+    /**
+     * Matches entities whose text field contains {@code text}, ignoring case.
+     */
+    public static Criteria containsIgnoreCase(String field, String text) {
+        return new Contains(field, text);
+    }
+
+    public Criteria and(Criteria other) {
+        return new Junction(this, other, "AND");
+    }
+
+    public Criteria or(Criteria other) {
+        return new Junction(this, other, "OR");
+    }
+
+    /**
+     * Evaluates the criteria in memory against a single entity.
+     *
+     * @param entity the entity to test
+     * @return {@code true} if the entity matches
+     */
+    public boolean matches(Object entity) {
+        return test(EntityMapper.forClass(entity.getClass()), entity);
+    }
+
+    /**
+     * Appends the SQL form of the criteria and collects the values to bind, in placeholder order.
+     *
+     * @param mapper    the mapper of the queried entity
+     * @param qualifier the prefix for column references, e.g. {@code "l."}, or an empty string
+     * @param sql       the buffer receiving the condition
+     * @param params    the list receiving the bound values
+     */
+    abstract void appendSql(EntityMapper<?> mapper, String qualifier, StringBuilder sql, List<Parameter> params);
+
+    abstract boolean test(EntityMapper<?> mapper, Object entity);
+
+    /**
+     * Compiles the criteria into a SQL condition.
+     */
+    String toSql(EntityMapper<?> mapper, String qualifier, List<Parameter> params) {
+        StringBuilder sql = new StringBuilder();
+        appendSql(mapper, qualifier, sql, params);
+        return sql.toString();
+    }
+
+    /**
+     * Binds collected parameters to consecutive placeholders starting at {@code firstIndex}.
+     *
+     * @return the index of the next unbound placeholder
+     */
+    static int bind(PreparedStatement stmt, List<Parameter> params, int firstIndex) throws SQLException {
+        int index = firstIndex;
+        for (Parameter param : params) {
+            param.column.bindValue(stmt, index++, param.value);
+        }
+        return index;
+    }
+
+    /**
+     * A value bound to a placeholder, converted according to the column it is compared with.
+     */
+    static final class Parameter {
+        final EntityMapper.Column column;
+        final Object value;
+
+        Parameter(EntityMapper.Column column, Object value) {
+            this.column = column;
+            this.value = value;
+        }
+    }
+
+    private enum Operator {
+        EQ("="), GT(">"), GE(">="), LT("<"), LE("<=");
+
+        final String sql;
+
+        Operator(String sql) {
+            this.sql = sql;
+        }
+
+        boolean accepts(int comparison) {
+            switch (this) {
+                case EQ: return comparison == 0;
+                case GT: return comparison > 0;
+                case GE: return comparison >= 0;
+                case LT: return comparison < 0;
+                default: return comparison <= 0;
+            }
+        }
+    }
+
+    private static final class All extends Criteria {
+        @Override
+        void appendSql(EntityMapper<?> mapper, String qualifier, StringBuilder sql, List<Parameter> params) {
+            sql.append("TRUE");
+        }
+
+        @Override
+        boolean test(EntityMapper<?> mapper, Object entity) {
+            return true;
+        }
+
+        @Override
+        public String toString() {
+            return "all";
+        }
+    }
+
+    private static final class Comparison extends Criteria {
+        private final String field;
+        private final Operator operator;
+        private final Object value;
+
+        Comparison(String field, Operator operator, Object value) {
+            this.field = Objects.requireNonNull(field);
+            this.operator = operator;
+            this.value = Objects.requireNonNull(value, "Criteria value must not be null");
+        }
+
+        @Override
+        void appendSql(EntityMapper<?> mapper, String qualifier, StringBuilder sql, List<Parameter> params) {
+            EntityMapper.Column column = mapper.column(field);
+            sql.append(qualifier).append(column.name).append(' ').append(operator.sql).append(" ?");
+            params.add(new Parameter(column, value));
+        }
+
+        @Override
+        boolean test(EntityMapper<?> mapper, Object entity) {
+            Object actual = mapper.column(field).get(entity);
+            return actual != null && operator.accepts(compare(actual, value));
+        }
+
+        @SuppressWarnings({"unchecked", "rawtypes"})
+        private static int compare(Object actual, Object expected) {
+            if (actual instanceof Number && expected instanceof Number) {
+                return Double.compare(((Number) actual).doubleValue(), ((Number) expected).doubleValue());
+            }
+            if (actual instanceof Enum && !(expected instanceof Enum)) {
+                return ((Enum<?>) actual).name().compareToIgnoreCase(expected.toString());
+            }
+            return ((Comparable) actual).compareTo(expected);
+        }
+
+        @Override
+        public String toString() {
+            return field + " " + operator.sql + " " + value;
+        }
+    }
+
+    private static final class Contains extends Criteria {
+        private final String field;
+        private final String text;
+
+        Contains(String field, String text) {
+            this.field = Objects.requireNonNull(field);
+            this.text = Objects.requireNonNull(text).toLowerCase();
+        }
+
+        @Override
+        void appendSql(EntityMapper<?> mapper, String qualifier, StringBuilder sql, List<Parameter> params) {
+            EntityMapper.Column column = mapper.column(field);
+            sql.append("LOWER(").append(qualifier).append(column.name).append(") LIKE ? ESCAPE '\\'");
+            params.add(new Parameter(column, "%" + escapeLike(text) + "%"));
+        }
+
+        @Override
+        boolean test(EntityMapper<?> mapper, Object entity) {
+            Object actual = mapper.column(field).get(entity);
+            return actual != null && actual.toString().toLowerCase().contains(text);
+        }
+
+        private static String escapeLike(String value) {
+            return value.replace("\\", "\\\\").replace("%", "\\%").replace("_", "\\_");
+        }
+
+        @Override
+        public String toString() {
+            return field + " contains '" + text + "'";
+        }
+    }
+
+    private static final class Junction extends Criteria {
+        private final Criteria left;
+        private final Criteria right;
+        private final String operator;
+
+        Junction(Criteria left, Criteria right, String operator) {
+            this.left = Objects.requireNonNull(left);
+            this.right = Objects.requireNonNull(right);
+            this.operator = operator;
+        }
+
+        @Override
+        void appendSql(EntityMapper<?> mapper, String qualifier, StringBuilder sql, List<Parameter> params) {
+            sql.append('(');
+            left.appendSql(mapper, qualifier, sql, params);
+            sql.append(' ').append(operator).append(' ');
+            right.appendSql(mapper, qualifier, sql, params);
+            sql.append(')');
+        }
+
+        @Override
+        boolean test(EntityMapper<?> mapper, Object entity) {
+            return operator.equals("AND")
+                    ? left.test(mapper, entity) && right.test(mapper, entity)
+                    : left.test(mapper, entity) || right.test(mapper, entity);
+        }
+
+        @Override
+        public String toString() {
+            return "(" + left + " " + operator + " " + right + ")";
+        }
+    }
+}
@@ -3,8 +3,12 @@ import org.dealership.model.HasID;
 import org.dealership.model.*;
 import java.sql.*;
 import org.dealership.exceptions.DatabaseException;
+import org.dealership.exceptions.OptimisticLockException;
 import java.util.*;
-import java.lang.reflect.Field;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Consumer;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
 
 
 /**
@@ -12,402 +16,1086 @@ import java.lang.reflect.Field;
  * @param <T> The type of the entity extending HasID.
  */
 public class DBRepository<T extends HasID> implements IRepository<T> {
+    private static final String CAR_PREFIX = "car__";
+    private static final String CLIENT_PREFIX = "client__";
+
     private final Class<T> type;
     private final String tableName;
+    private final ConnectionPool connectionPool;
+    private final EntityMapper<T> mapper;
+    private final String insertSql;
+    private final String upsertSql;
+    private final String updateSql;
+    private final String deleteSql;
+    private final String selectAllSql;
+    private final String selectByIdSql;
+    private final String selectByIdsSql;
+    private final String deleteByIdsSql;
+    private final String selectPageSql;
+    private final String columnQualifier;
+    private final String fromClause;
+    private int batchSize;
+    private int fetchSize;
+    private volatile EntityCache<T> cache;
+    private volatile WriteBehindBuffer<T> writeBehind;
+    private volatile JdbcMetrics metrics;
+    private volatile ReplicaRouter replicaRouter;
+    private final Map<String, String> compareAndSetSql = new ConcurrentHashMap<>();
 
-    // Database connection parameters
-    private static final String URL = "jdbc:postgresql://localhost:5432/carvy";
-    private static final String USER = "postgres";
-    private static final String PASSWORD = "a";
-
+    /**
+     * Creates a repository that borrows connections from the shared {@link ConnectionPool}.
+     */
     public DBRepository(Class<T> type, String tableName) {
+        this(type, tableName, ConnectionPool.shared());
+    }
+
+    /**
+     * Creates a repository that borrows connections from the given pool.
+     *
+     * @param type           the entity class
+     * @param tableName      the table backing the entity
+     * @param connectionPool the pool to borrow connections from
+     */
+    public DBRepository(Class<T> type, String tableName, ConnectionPool connectionPool) {
         this.type = type;
         this.tableName = tableName;
+        this.connectionPool = connectionPool;
+        this.mapper = EntityMapper.of(type);
+        this.insertSql = mapper.insertSql(tableName);
+        this.upsertSql = mapper.upsertSql(tableName);
+        this.updateSql = mapper.updateSql(tableName);
+        this.deleteSql = mapper.deleteSql(tableName);
+        if (type == Leasing.class) {
+            // Leasing rows are loaded together with their car and client in one query
+            String joinSql = "SELECT l.*, "
+                    + EntityMapper.of(Car.class).selectList("c", CAR_PREFIX) + ", "
+                    + EntityMapper.of(Client.class).selectList("cl", CLIENT_PREFIX)
+                    + " FROM " + tableName + " l"
+                    + " LEFT JOIN cars c ON c.car_id = l.car_id"
+                    + " LEFT JOIN clients cl ON cl.client_id = l.client_id";
+            this.selectAllSql = joinSql;
+            this.columnQualifier = "l.";
+            this.fromClause = tableName + " l";
+            this.selectByIdSql = joinSql + " WHERE l." + mapper.getIdColumnName() + " = ?";
+            this.selectByIdsSql = joinSql + " WHERE l." + mapper.getIdColumnName() + " = ANY(?)";
+            this.selectPageSql = joinSql + " WHERE l." + mapper.getIdColumnName() + " > ?"
+                    + " ORDER BY l." + mapper.getIdColumnName() + " LIMIT ?";
+        } else {
+            this.selectAllSql = "SELECT * FROM " + tableName;
+            this.columnQualifier = "";
+            this.fromClause = tableName;
+            this.selectByIdSql = mapper.selectByIdSql(tableName);
+            this.selectByIdsSql = selectAllSql + " WHERE " + mapper.getIdColumnName() + " = ANY(?)";
+            this.selectPageSql = selectAllSql + " WHERE " + mapper.getIdColumnName() + " > ?"
+                    + " ORDER BY " + mapper.getIdColumnName() + " LIMIT ?";
+        }
+        this.deleteByIdsSql = "DELETE FROM " + tableName + " WHERE " + mapper.getIdColumnName() + " = ANY(?)";
+        this.batchSize = connectionPool.getBatchSize();
+        connectionPool.registerStatements(Arrays.asList(insertSql, upsertSql, updateSql, deleteSql, deleteByIdsSql,
+                selectByIdSql, selectByIdsSql, selectPageSql, selectAllSql));
+        this.fetchSize = connectionPool.getFetchSize();
+        this.metrics = JdbcMetrics.shared();
+    }
+
+    private JdbcMetrics.Timer timer(String operation) {
+        return metrics.start(tableName, operation);
+    }
+
+    private ConnectionPool readPool() {
+        ReplicaRouter replicaRouter = this.replicaRouter;
+        return replicaRouter != null ? replicaRouter.forRead() : connectionPool;
+    }
+
+    // Starts the read-your-writes window of the calling thread
+    void written() {
+        ReplicaRouter replicaRouter = this.replicaRouter;
+        if (replicaRouter != null) {
+            replicaRouter.written();
+        }
+    }
+
+    public ConnectionPool getConnectionPool() {
+        return connectionPool;
     }
 
-    private Connection getConnection() throws SQLException {
-        return DriverManager.getConnection(URL, USER, PASSWORD);
+    public String getTableName() {
+        return tableName;
     }
 
+    public int getBatchSize() {
+        return batchSize;
+    }
+
+    /**
+     * Sets the number of rows sent per JDBC batch by {@link #createAll} and {@link #updateAll}.
+     *
+     * @param batchSize the batch size, must be positive
+     */
+    public void setBatchSize(int batchSize) {
+        if (batchSize <= 0) {
+            throw new IllegalArgumentException("Batch size must be greater than 0.");
+        }
+        this.batchSize = batchSize;
+    }
+
+    public int getFetchSize() {
+        return fetchSize;
+    }
+
+    /**
+     * Sets the number of rows fetched per round trip by {@link #stream()} and {@link #forEach}.
+     *
+     * @param fetchSize the fetch size, must be positive
+     */
+    public void setFetchSize(int fetchSize) {
+        if (fetchSize <= 0) {
+            throw new IllegalArgumentException("Fetch size must be greater than 0.");
+        }
+        this.fetchSize = fetchSize;
+    }
+
+    public JdbcMetrics getMetrics() {
+        return metrics;
+    }
+
+    /**
+     * Records the timings of this repository's JDBC calls in the given metrics instead of the shared ones.
+     */
+    public void setMetrics(JdbcMetrics metrics) {
+        this.metrics = Objects.requireNonNull(metrics);
+    }
+
+    public ReplicaRouter getReplicaRouter() {
+        return replicaRouter;
+    }
+
+    /**
+     * Sends reads to the router's replica, except for threads that wrote recently. Writes always go to
+     * the pool this repository was created with, which must be the router's primary.
+     *
+     * @param replicaRouter the router to use, or {@code null} to read from the primary only
+     */
+    public void setReplicaRouter(ReplicaRouter replicaRouter) {
+        if (replicaRouter != null) {
+            replicaRouter.getReplica().registerStatements(Arrays.asList(selectByIdSql, selectByIdsSql, selectPageSql,
+                    selectAllSql));
+        }
+        this.replicaRouter = replicaRouter;
+    }
+
+    public EntityCache<T> getCache() {
+        return cache;
+    }
+
+    /**
+     * Puts a read-through cache in front of {@link #read}. Writes made through this repository
+     * refresh or invalidate the cached entities.
+     *
+     * @param cache the cache to use, or {@code null} to read every entity from the database
+     */
+    public void setCache(EntityCache<T> cache) {
+        this.cache = cache;
+    }
+
+    public WriteBehindBuffer<T> getWriteBehind() {
+        return writeBehind;
+    }
+
+    /**
+     * @return whether the entity implements {@link Versioned}, so that {@link #update} is version checked
+     */
+    public boolean isVersioned() {
+        return mapper.isVersioned();
+    }
+
+    EntityMapper<T> getMapper() {
+        return mapper;
+    }
+
+    /**
+     * Switches {@link #update} to write-behind: updates are queued, coalesced per entity and written
+     * in batches of up to {@link #getBatchSize()} rows. {@link #read} returns queued state before it is written.
+     * Close the returned buffer to flush the remaining updates and return to synchronous updates.
+     * For {@link Versioned} entities, {@link #update} only detects conflicts with a queued update; a conflict
+     * with the row itself is found when the update is written, and the update is then dropped
+     * (see {@link WriteBehindBuffer}).
+     *
+     * @param maxPending          the maximum number of distinct entities waiting to be written
+     * @param flushIntervalMillis the maximum time an update waits before it is written
+     * @return the buffer holding the queued updates
+     */
+    public WriteBehindBuffer<T> enableWriteBehind(int maxPending, long flushIntervalMillis) {
+        WriteBehindBuffer<T> buffer = new WriteBehindBuffer<>(this, maxPending, batchSize, flushIntervalMillis);
+        this.writeBehind = buffer;
+        return buffer;
+    }
+
+    // Called by a closing buffer so that later updates are written synchronously again
+    void detachWriteBehind(WriteBehindBuffer<T> buffer) {
+        if (writeBehind == buffer) {
+            writeBehind = null;
+        }
+    }
+
+    /**
+     * @param obj the entity to insert
+     * @throws DatabaseException if the insert fails
+     */
     @Override
     public void create(T obj) {
-        String sql = null;
-        try {
-            sql = generateInsertSQL(obj);
+        try (Connection conn = timer("create").acquire(connectionPool)) {
+            insert(conn, obj);
         } catch (SQLException e) {
-            e.printStackTrace();
-            throw new RuntimeException("Error generating SQL", e);
+            throw new DatabaseException("Insert into " + tableName + " failed: " + e.getMessage(), e);
+        } finally {
+            written();
         }
+    }
 
-        try (Connection conn = getConnection();
-             PreparedStatement stmt = conn.prepareStatement(sql)) {
-            setParameters(stmt, obj);
-            System.out.println("Prepared statement parameters set.");
-            stmt.executeUpdate();
-            System.out.println("Record inserted successfully into table: " + tableName);
-        } catch (SQLException e) {
-            e.printStackTrace();
+    // Inserts on the caller's connection, e.g. inside a UnitOfWork
+    void insert(Connection conn, T obj) throws SQLException {
+        JdbcMetrics.Timer timer = timer("create");
+        try (PreparedStatement stmt = timer.prepare(conn, insertSql)) {
+            mapper.bindInsert(stmt, obj);
+            timer.executeUpdate(stmt);
         }
     }
 
 
+    /**
+     * @param id the ID of the entity
+     * @return the entity, or {@code null} if there is no such row
+     * @throws DatabaseException if the query fails
+     */
     @Override
     public T read(long id) {
-        String sql = "SELECT * FROM " + getTableName() + " WHERE " + getPrimaryKeyColumn() + " = ?";
-
-        try (Connection conn = getConnection();
-             PreparedStatement stmt = conn.prepareStatement(sql)) {
+        WriteBehindBuffer<T> writeBehind = this.writeBehind;
+        if (writeBehind != null) {
+            T queued = writeBehind.getPending(id);
+            if (queued != null) {
+                return queued;
+            }
+        }
+        EntityCache<T> cache = this.cache;
+        if (cache != null) {
+            T cached = cache.get(id);
+            if (cached != null) {
+                return cached;
+            }
+        }
+        JdbcMetrics.Timer timer = timer("read");
+        try (Connection conn = timer.acquire(readPool());
+             PreparedStatement stmt = timer.prepare(conn, selectByIdSql)) {
             stmt.setLong(1, id);
-            ResultSet rs = stmt.executeQuery();
-            if (rs.next()) {
-                T obj = mapResultSetToObject(rs);
-                return obj;
-            } else {
-                System.out.println("No record found for ID: " + id);
+            try (ResultSet rs = timer.executeQuery(stmt)) {
+                if (rs.next()) {
+                    T obj = new RowReader(rs).read(rs);
+                    timer.mapped();
+                    if (cache != null) {
+                        cache.put(obj);
+                    }
+                    return obj;
+                }
             }
         } catch (SQLException e) {
-            e.printStackTrace();
+            throw new DatabaseException("Error reading " + tableName + " " + id + ": " + e.getMessage(), e);
         }
         return null;
     }
 
 
+    /**
+     * Updates every column of the entity's row. For {@link Versioned} entities the row is only
+     * updated if its version still matches the entity's, and the entity's version is then incremented.
+     *
+     * @param obj the entity to update
+     * @throws OptimisticLockException if the entity is versioned and its row was changed or deleted since it was read
+     * @throws DatabaseException if the statement fails
+     */
     @Override
     public void update(T obj) {
-        String sql = generateUpdateSQL(obj);
-        try (Connection conn = getConnection();
-             PreparedStatement stmt = conn.prepareStatement(sql)) {
-            setParameters(stmt, obj);
-            stmt.setLong(stmt.getParameterMetaData().getParameterCount(), obj.getId());
-            stmt.executeUpdate();
+        WriteBehindBuffer<T> writeBehind = this.writeBehind;
+        if (writeBehind != null) {
+            writeBehind.submit(obj);
+            return;
+        }
+        boolean conflict = false;
+        JdbcMetrics.Timer timer = timer("update");
+        try (Connection conn = timer.acquire(connectionPool);
+             PreparedStatement stmt = timer.prepare(conn, updateSql)) {
+            mapper.bindUpdate(stmt, obj);
+            int updated = timer.executeUpdate(stmt);
+            if (updated > 0) {
+                mapper.incrementVersion(obj);
+                refreshCached(obj);
+            } else {
+                // The row is stale or gone, so the entity must not be served from the cache
+                conflict = mapper.isVersioned();
+                invalidateCached(obj.getId());
+            }
         } catch (SQLException e) {
-            e.printStackTrace();
+            invalidateCached(obj.getId());
+            throw new DatabaseException("Update of " + tableName + " " + obj.getId() + " failed: " + e.getMessage(), e);
+        } finally {
+            written();
+        }
+        if (conflict) {
+            throw new OptimisticLockException("Stale update of " + tableName + " " + obj.getId()
+                    + " at version " + ((Versioned) obj).getVersion(), List.of(obj.getId()));
         }
     }
 
+    /**
+     * Sets a column only if it currently holds {@code expected}, in a single conditional statement,
+     * e.g. {@code UPDATE cars SET status = ? WHERE car_id = ? AND status = ?}.
+     * Of several concurrent transitions from the same value, exactly one succeeds.
+     *
+     * @param id       the ID of the entity
+     * @param field    the Java name of the field, e.g. {@code "status"}
+     * @param expected the value the column must currently hold
+     * @param newValue the value to assign
+     * @return {@code true} if the row existed and was changed
+     * @throws DatabaseException if the statement fails
+     */
+    @Override
+    public boolean compareAndSet(long id, String field, Object expected, Object newValue) {
+        try (Connection conn = timer("compareAndSet").acquire(connectionPool)) {
+            return compareAndSet(conn, id, field, expected, newValue);
+        } catch (SQLException e) {
+            throw new DatabaseException("Conditional update of " + tableName + " failed: " + e.getMessage(), e);
+        } finally {
+            invalidateCached(id);
+            written();
+        }
+    }
+
+    // Runs the conditional update on the caller's connection, e.g. inside a UnitOfWork
+    boolean compareAndSet(Connection conn, long id, String field, Object expected, Object newValue) throws SQLException {
+        EntityMapper.Column column = mapper.column(field);
+        WriteBehindBuffer<T> writeBehind = this.writeBehind;
+        if (writeBehind != null && writeBehind.getPending(id) != null) {
+            // The condition must be checked against the latest state
+            writeBehind.flush();
+        }
+        // A conditional update is a change too, so it invalidates versions read before it
+        String sql = compareAndSetSql.computeIfAbsent(column.name, name -> "UPDATE " + tableName
+                + " SET " + name + " = ?" + (mapper.isVersioned() ? ", version = version + 1" : "")
+                + " WHERE " + mapper.getIdColumnName() + " = ? AND " + name + " = ?");
+        JdbcMetrics.Timer timer = timer("compareAndSet");
+        try (PreparedStatement stmt = timer.prepare(conn, sql)) {
+            column.bindValue(stmt, 1, newValue);
+            stmt.setLong(2, id);
+            column.bindValue(stmt, 3, expected);
+            return timer.executeUpdate(stmt) == 1;
+        }
+    }
+
+    /**
+     * @param id the ID of the entity to delete
+     * @throws DatabaseException if the statement fails
+     */
     @Override
     public void delete(long id) {
-        String sql = "DELETE FROM " + getTableName() + " WHERE " + getIdColumnName() + " = ?";
-        try (Connection conn = getConnection();
-             PreparedStatement stmt = conn.prepareStatement(sql)) {
+        discardQueued(id);
+        JdbcMetrics.Timer timer = timer("delete");
+        try (Connection conn = timer.acquire(connectionPool);
+             PreparedStatement stmt = timer.prepare(conn, deleteSql)) {
             stmt.setLong(1, id);
-            stmt.executeUpdate();
+            timer.executeUpdate(stmt);
         } catch (SQLException e) {
-            e.printStackTrace();
+            throw new DatabaseException("Delete of " + tableName + " " + id + " failed: " + e.getMessage(), e);
+        } finally {
+            invalidateCached(id);
+            written();
         }
     }
 
+    /**
+     * Deletes the entities with the given IDs in one statement, binding the IDs as a single
+     * {@code bigint[]} parameter: {@code DELETE FROM cars WHERE car_id = ANY(?)}.
+     *
+     * @param ids the IDs of the entities to delete
+     * @return the number of deleted rows
+     * @throws IllegalArgumentException if {@code ids} contains {@code null}; nothing is deleted in that case
+     * @throws DatabaseException if the statement fails; no rows are deleted in that case
+     */
+    public int deleteAll(Collection<Long> ids) {
+        requireIds(ids);
+        if (ids.isEmpty()) {
+            return 0;
+        }
+        for (long id : ids) {
+            discardQueued(id);
+        }
+        JdbcMetrics.Timer timer = timer("deleteAll");
+        try (Connection conn = timer.acquire(connectionPool);
+             PreparedStatement stmt = timer.prepare(conn, deleteByIdsSql)) {
+            Array array = conn.createArrayOf("bigint", ids.toArray());
+            try {
+                stmt.setArray(1, array);
+                return timer.executeUpdate(stmt);
+            } finally {
+                array.free();
+            }
+        } catch (SQLException e) {
+            throw new DatabaseException("Deleting " + ids.size() + " rows of " + tableName + " failed: "
+                    + e.getMessage(), e);
+        } finally {
+            for (long id : ids) {
+                invalidateCached(id);
+            }
+            written();
+        }
+    }
+
+    /**
+     * @return every entity of the table
+     * @throws DatabaseException if the query fails
+     */
     @Override
     public List<T> readAll() {
         List<T> list = new ArrayList<>();
-        String sql = "SELECT * FROM " + tableName;
-        try (Connection conn = getConnection();
-             Statement stmt = conn.createStatement();
-             ResultSet rs = stmt.executeQuery(sql)) {
+        JdbcMetrics.Timer timer = timer("readAll");
+        try (Connection conn = timer.acquire(readPool());
+             PreparedStatement stmt = timer.prepare(conn, selectAllSql);
+             ResultSet rs = timer.executeQuery(stmt)) {
+            RowReader reader = new RowReader(rs);
             while (rs.next()) {
-                list.add(mapResultSetToObject(rs));
+                list.add(reader.read(rs));
             }
+            timer.mapped();
         } catch (SQLException e) {
-            e.printStackTrace();
+            throw new DatabaseException("Error reading " + tableName + ": " + e.getMessage(), e);
         }
         return list;
     }
 
-    // Generate INSERT SQL
-    private String generateInsertSQL(T obj) throws SQLException {
-        String tableName = getTableName();
-        StringBuilder sql = new StringBuilder("INSERT INTO ").append(tableName).append(" (");
-
-        List<String> columns = new ArrayList<>();
-        List<String> placeholders = new ArrayList<>();
-        Set<String> addedColumns = new HashSet<>();
-
-        Class<?> currentClass = obj.getClass();
-        while (currentClass != null) {
-            for (Field field : currentClass.getDeclaredFields()) {
-                if (shouldIncludeField(field)) {
-                    field.setAccessible(true);
-                    String columnName = toSnakeCase(field.getName());
-
-                    // Avoid adding the same column multiple times
-                    if (!addedColumns.contains(columnName) &&
-                            !field.getName().equalsIgnoreCase("car") &&
-                            !field.getName().equalsIgnoreCase("client")) {
-
-                        columns.add(columnName);
-                        placeholders.add("?");
-                        addedColumns.add(columnName);
+    /**
+     * Reads the entities with the given IDs in one query, binding the IDs as a single
+     * {@code bigint[]} parameter: {@code SELECT * FROM cars WHERE car_id = ANY(?)}.
+     * Entities queued for write-behind or cached are taken from memory and not queried.
+     *
+     * @param ids the IDs to look up; duplicates are read once
+     * @return the found entities by ID, in the order of {@code ids}; IDs without a row are left out
+     * @throws IllegalArgumentException if {@code ids} contains {@code null}
+     * @throws DatabaseException if the query fails
+     */
+    public Map<Long, T> readAll(Collection<Long> ids) {
+        requireIds(ids);
+        Map<Long, T> found = new LinkedHashMap<>();
+        List<Long> missing = new ArrayList<>();
+        WriteBehindBuffer<T> writeBehind = this.writeBehind;
+        EntityCache<T> cache = this.cache;
+        for (Long id : new LinkedHashSet<>(ids)) {
+            T known = writeBehind != null ? writeBehind.getPending(id) : null;
+            if (known == null && cache != null) {
+                known = cache.get(id);
+            }
+            // Keeps the requested order; rows fill in the placeholders below
+            found.put(id, known);
+            if (known == null) {
+                missing.add(id);
+            }
+        }
+        if (!missing.isEmpty()) {
+            JdbcMetrics.Timer timer = timer("readByIds");
+            try (Connection conn = timer.acquire(readPool());
+                 PreparedStatement stmt = timer.prepare(conn, selectByIdsSql)) {
+                Array array = conn.createArrayOf("bigint", missing.toArray());
+                try {
+                    stmt.setArray(1, array);
+                    try (ResultSet rs = timer.executeQuery(stmt)) {
+                        RowReader reader = new RowReader(rs);
+                        while (rs.next()) {
+                            T obj = reader.read(rs);
+                            found.put(obj.getId(), obj);
+                            if (cache != null) {
+                                cache.put(obj);
+                            }
+                        }
+                        timer.mapped();
                     }
+                } finally {
+                    array.free();
                 }
+            } catch (SQLException e) {
+                throw new DatabaseException("Reading " + missing.size() + " rows of " + tableName + " failed: "
+                        + e.getMessage(), e);
             }
-            currentClass = currentClass.getSuperclass();
         }
+        found.values().removeIf(Objects::isNull);
+        return found;
+    }
 
-        if (columns.isEmpty()) {
-            throw new SQLException("No fields available for insertion");
+    /**
+     * Reads a page of entities ordered by ID using keyset pagination
+     * ({@code WHERE id > ? ORDER BY id LIMIT ?}), which is served by the primary key index
+     * regardless of how deep the page is.
+     *
+     * @param afterId the ID of the last entity on the previous page, or 0 for the first page
+     * @param limit   the maximum number of entities to return
+     * @return up to {@code limit} entities with an ID greater than {@code afterId}, or none if {@code limit <= 0}
+     * @throws DatabaseException if the query fails
+     */
+    @Override
+    public List<T> readPage(long afterId, int limit) {
+        if (limit <= 0) {
+            return new ArrayList<>();
+        }
+        List<T> list = new ArrayList<>(Math.min(limit, 1000));
+        JdbcMetrics.Timer timer = timer("readPage");
+        try (Connection conn = timer.acquire(readPool());
+             PreparedStatement stmt = timer.prepare(conn, selectPageSql)) {
+            stmt.setLong(1, afterId);
+            stmt.setInt(2, limit);
+            try (ResultSet rs = timer.executeQuery(stmt)) {
+                RowReader reader = new RowReader(rs);
+                while (rs.next()) {
+                    list.add(reader.read(rs));
+                }
+                timer.mapped();
+            }
+        } catch (SQLException e) {
+            throw new DatabaseException("Error reading a page of " + tableName + ": " + e.getMessage(), e);
         }
+        return list;
+    }
 
-        sql.append(String.join(", ", columns));
-        sql.append(") VALUES (");
-        sql.append(String.join(", ", placeholders));
-        sql.append(")");
-        return sql.toString();
+    /**
+     * Reads the entities matching the given criteria. The criteria is compiled into a
+     * parameterised {@code WHERE} clause, so only matching rows are transferred.
+     *
+     * @param criteria the filter to apply
+     * @return a list of matching entities
+     * @throws DatabaseException if the query fails
+     */
+    @Override
+    public List<T> find(Criteria criteria) {
+        return find(criteria, null, 0, 0);
     }
 
-    // Generate UPDATE SQL
-    private String generateUpdateSQL(T obj) {
-        StringBuilder sql = new StringBuilder("UPDATE ").append(getTableName()).append(" SET ");
+    /**
+     * Reads a sorted window of the entities matching the given criteria, with the ordering and
+     * the {@code LIMIT}/{@code OFFSET} applied by the database, e.g. the ten cheapest available cars.
+     *
+     * @param criteria the filter to apply
+     * @param sort     the sort order, or {@code null} for no particular order
+     * @param offset   the number of leading matches to skip
+     * @param limit    the maximum number of entities to return, or a non-positive value for no limit
+     * @return the selected entities, sorted
+     * @throws DatabaseException if the query fails
+     */
+    @Override
+    public List<T> find(Criteria criteria, Sort sort, int offset, int limit) {
+        List<Criteria.Parameter> params = new ArrayList<>();
+        String sql = selectAllSql + queryTail(criteria, sort, offset, limit, params);
 
-        List<String> columns = new ArrayList<>();
-        Class<?> currentClass = obj.getClass();
+        List<T> list = new ArrayList<>();
+        JdbcMetrics.Timer timer = timer("find");
+        try (Connection conn = timer.acquire(readPool());
+             PreparedStatement stmt = timer.prepare(conn, sql)) {
+            bindQuery(stmt, params, offset, limit);
+            try (ResultSet rs = timer.executeQuery(stmt)) {
+                RowReader reader = new RowReader(rs);
+                while (rs.next()) {
+                    list.add(reader.read(rs));
+                }
+                timer.mapped();
+            }
+        } catch (SQLException e) {
+            throw new DatabaseException("Error searching " + tableName + ": " + e.getMessage(), e);
+        }
+        return list;
+    }
+
+    /**
+     * Reads only the columns named by a record's components for the entities matching the criteria,
+     * e.g. {@code select(CarSummary.class, Criteria.all(), Sort.asc("price"), 0, 20)} for a listing screen.
+     * No entities are materialised.
+     *
+     * @param projection the record type; each component names an entity field of the same type
+     * @param criteria   the filter to apply
+     * @param sort       the sort order, or {@code null} for no particular order
+     * @param offset     the number of leading matches to skip
+     * @param limit      the maximum number of records to return, or a non-positive value for no limit
+     * @return the projected records
+     * @throws DatabaseException if the query fails
+     */
+    public <R extends Record> List<R> select(Class<R> projection, Criteria criteria, Sort sort, int offset, int limit) {
+        Projection<R> columns = mapper.projection(projection);
+        List<Criteria.Parameter> params = new ArrayList<>();
+        String sql = "SELECT " + columns.selectList(columnQualifier) + " FROM " + fromClause
+                + queryTail(criteria, sort, offset, limit, params);
 
-        while (currentClass != null) {
-            for (Field field : currentClass.getDeclaredFields()) {
-                if (!field.getName().equalsIgnoreCase("id") && shouldIncludeField(field)) {
-                    field.setAccessible(true);
-                    columns.add(toSnakeCase(field.getName()) + " = ?");
+        List<R> list = new ArrayList<>();
+        JdbcMetrics.Timer timer = timer("select");
+        try (Connection conn = timer.acquire(readPool());
+             PreparedStatement stmt = timer.prepare(conn, sql)) {
+            bindQuery(stmt, params, offset, limit);
+            try (ResultSet rs = timer.executeQuery(stmt)) {
+                while (rs.next()) {
+                    list.add(columns.map(rs));
                 }
+                timer.mapped();
+            }
+        } catch (SQLException e) {
+            throw new DatabaseException("Error reading " + projection.getSimpleName() + " from " + tableName
+                    + ": " + e.getMessage(), e);
+        }
+        return list;
+    }
+
+    public <R extends Record> List<R> select(Class<R> projection, Criteria criteria) {
+        return select(projection, criteria, null, 0, 0);
+    }
+
+    /**
+     * Counts the matching rows with {@code SELECT COUNT(*)}.
+     *
+     * @throws DatabaseException if the query fails
+     */
+    @Override
+    public long count(Criteria criteria) {
+        List<Criteria.Parameter> params = new ArrayList<>();
+        String sql = "SELECT COUNT(*) FROM " + fromClause + queryTail(criteria, null, 0, 0, params);
+        JdbcMetrics.Timer timer = timer("count");
+        try (Connection conn = timer.acquire(readPool());
+             PreparedStatement stmt = timer.prepare(conn, sql)) {
+            Criteria.bind(stmt, params, 1);
+            try (ResultSet rs = timer.executeQuery(stmt)) {
+                rs.next();
+                return rs.getLong(1);
             }
-            currentClass = currentClass.getSuperclass();
+        } catch (SQLException e) {
+            throw new DatabaseException("Error counting " + tableName + ": " + e.getMessage(), e);
         }
+    }
 
-        if (columns.isEmpty()) {
-            throw new RuntimeException("No fields available for updating");
+    /**
+     * Counts the rows per distinct value of a column with {@code GROUP BY}, e.g. cars per status.
+     * Keys are converted to the field type, so enum columns are keyed by their constants.
+     *
+     * @throws DatabaseException if the query fails
+     */
+    @Override
+    public Map<Object, Long> groupCount(String field) {
+        EntityMapper.Column column = mapper.column(field);
+        String sql = "SELECT " + column.name + ", COUNT(*) FROM " + tableName + " GROUP BY " + column.name;
+        Map<Object, Long> counts = new HashMap<>();
+        JdbcMetrics.Timer timer = timer("groupCount");
+        try (Connection conn = timer.acquire(readPool());
+             PreparedStatement stmt = timer.prepare(conn, sql);
+             ResultSet rs = timer.executeQuery(stmt)) {
+            while (rs.next()) {
+                counts.put(column.readValue(rs, 1), rs.getLong(2));
+            }
+            timer.mapped();
+        } catch (SQLException e) {
+            throw new DatabaseException("Error counting " + tableName + " by " + field + ": " + e.getMessage(), e);
         }
+        return counts;
+    }
 
-        sql.append(String.join(", ", columns));
-        sql.append(" WHERE ").append(getIdColumnName()).append(" = ?");
+    /**
+     * Sums a numeric column over the matching rows with {@code SUM}; no rows sum to 0.
+     *
+     * @throws IllegalArgumentException if the field is not numeric
+     * @throws DatabaseException        if the query fails
+     */
+    @Override
+    public double sum(String field, Criteria criteria) {
+        EntityMapper.Column column = mapper.column(field);
+        if (!column.isNumeric()) {
+            throw new IllegalArgumentException("Field " + field + " is not numeric");
+        }
+        List<Criteria.Parameter> params = new ArrayList<>();
+        String sql = "SELECT COALESCE(SUM(" + columnQualifier + column.name + "), 0) FROM " + fromClause
+                + queryTail(criteria, null, 0, 0, params);
+        JdbcMetrics.Timer timer = timer("sum");
+        try (Connection conn = timer.acquire(readPool());
+             PreparedStatement stmt = timer.prepare(conn, sql)) {
+            Criteria.bind(stmt, params, 1);
+            try (ResultSet rs = timer.executeQuery(stmt)) {
+                rs.next();
+                return rs.getDouble(1);
+            }
+        } catch (SQLException e) {
+            throw new DatabaseException("Error summing " + tableName + "." + column.name + ": " + e.getMessage(), e);
+        }
+    }
 
+    // WHERE, ORDER BY, LIMIT and OFFSET shared by find and select
+    private String queryTail(Criteria criteria, Sort sort, int offset, int limit, List<Criteria.Parameter> params) {
+        StringBuilder sql = new StringBuilder(" WHERE ").append(criteria.toSql(mapper, columnQualifier, params));
+        if (sort != null) {
+            sql.append(" ORDER BY ").append(sort.toSql(mapper, columnQualifier));
+        }
+        if (limit > 0) {
+            sql.append(" LIMIT ?");
+        }
+        if (offset > 0) {
+            sql.append(" OFFSET ?");
+        }
         return sql.toString();
     }
 
+    private static void bindQuery(PreparedStatement stmt, List<Criteria.Parameter> params, int offset, int limit)
+            throws SQLException {
+        int index = Criteria.bind(stmt, params, 1);
+        if (limit > 0) {
+            stmt.setInt(index++, limit);
+        }
+        if (offset > 0) {
+            stmt.setInt(index, offset);
+        }
+    }
 
-    // Set Parameters for PreparedStatement
-    private void setParameters(PreparedStatement stmt, T obj) throws SQLException {
-        int index = 1;
+    /**
+     * Streams all rows of the table through a server-side cursor, fetching {@link #getFetchSize()}
+     * rows per round trip instead of buffering the whole result set.
+     * The returned stream holds a pooled connection and must be closed, e.g. with try-with-resources.
+     *
+     * @return a lazily populated stream of entities
+     * @throws DatabaseException if the query cannot be started
+     */
+    public Stream<T> stream() {
+        // Rows are mapped while the caller consumes them, so mapping is not timed here
+        JdbcMetrics.Timer timer = timer("stream");
+        Connection conn = null;
+        PreparedStatement stmt = null;
+        ResultSet rs = null;
         try {
-            Class<?> currentClass = obj.getClass();
-            while (currentClass != null) {
-                for (Field field : currentClass.getDeclaredFields()) {
-                    field.setAccessible(true);
-                    if (!Collection.class.isAssignableFrom(field.getType())) {
-                        Object value = field.get(obj);
-
-                        // Skip setting 'car' and 'client' fields
-                        if (field.getName().equalsIgnoreCase("car") || field.getName().equalsIgnoreCase("client")) {
-                            continue;
-                        }
-                        // Handle references to other objects by setting their IDs
-                        if (value != null && value instanceof HasID) {
-                            value = ((HasID) value).getId();
-                        }
-                        else if (field.getName().equals("car")) {
-                            Car car = (Car) value;
-                            if (car != null) {
-                                stmt.setLong(index++, car.getId());
-                            }
-                        } else if (field.getName().equals("client")) {
-                            Client client = (Client) value;
-                            if (client != null) {
-                                stmt.setLong(index++, client.getId());
-                            }
-                        }
-                        // Handle enums explicitly
-                        if (value instanceof Enum) {
-                            String dbValue = capitalizeFirstLetter(value.toString().toLowerCase());
-                            stmt.setString(index++, dbValue);
-                        }
-                        // Handle java.util.Date by converting to java.sql.Timestamp
-                        else if (value != null && value instanceof java.util.Date) {
-                            stmt.setTimestamp(index++, new java.sql.Timestamp(((java.util.Date) value).getTime()));
-                        }
-                        // Handle other types
-                        else {
-                            stmt.setObject(index++, value);
-                        }
-                    }
-                }
-                currentClass = currentClass.getSuperclass();
-            }
-        } catch (IllegalAccessException e) {
-            throw new SQLException("Error setting parameters", e);
-        }
-    }
-
-
-    // Map ResultSet to Object
-//    private T mapResultSetToObject(ResultSet rs) throws SQLException {
-//        try {
-//            T obj = type.getDeclaredConstructor().newInstance();
-//
-//            for (Field field : type.getDeclaredFields()) {
-//                field.setAccessible(true);
-//                String columnName = toSnakeCase(field.getName());
-//                // Skip fields that are collections (e.g., List, Set)
-//                if (Collection.class.isAssignableFrom(field.getType())) {
-//                    continue;
-//                }
-//
-//                Object value = rs.getObject(columnName);
-//
-//                System.out.println("Mapping field: " + field.getName() + " -> column: " + columnName + " -> value: " + value);
-//                if (value != null) {
-//                    // Handle enums explicitly
-//                    if (field.getType().isEnum()) {
-//                        value = Enum.valueOf((Class<Enum>) field.getType(), value.toString().toUpperCase());
-//                    }
-//
-//                    // Handle float fields explicitly (cast Double to float)
-//                    if (value != null && field.getType() == float.class && value instanceof Double) {
-//                        value = ((Double) value).floatValue();
-//                    }
-//
-//                    // Handle float fields explicitly (cast Double to float)
-//                    if (field.getType() == String.class && value instanceof String) {
-//                        field.set(obj, value);
-//                    }else{
-//                        field.set(obj, value);
-//                    }
-//
-//
-//                }
-//            }
-//
-//            return obj;
-//        } catch (Exception e) {
-//            throw new SQLException("Error mapping ResultSet to object", e);
-//        }
-//    }
-
-    private T mapResultSetToObject(ResultSet rs) throws SQLException {
-        try {
-            T obj = type.getDeclaredConstructor().newInstance();
-
-            // Iterate through all fields, including those in superclasses
-            Class<?> currentClass = type;
-            while (currentClass != null) {
-                for (Field field : currentClass.getDeclaredFields()) {
-                    field.setAccessible(true);
-                    String columnName = toSnakeCase(field.getName());
-
-                    // Skip fields that are collections (e.g., List, Set)
-                    if (Collection.class.isAssignableFrom(field.getType())) {
-//                        System.out.println("Skipping collection field: " + field.getName());
-                        continue;
-                    }
-
-                    Object value = null;
-                    //System.out.println("Mapping field: " + field.getName() + " -> column: " + columnName + " -> value: " + value);
-                    try {
-                        value = rs.getObject(columnName);
-                    } catch (SQLException e) {
-                        // If the column doesn't exist in the ResultSet, skip setting this field
-                        //System.out.println("Column not found: " + columnName + ", skipping.");
-                        continue;
-                    }
+            conn = timer.acquire(readPool());
+            // pgjdbc only uses a cursor outside auto-commit and with a fetch size set
+            conn.setAutoCommit(false);
+            stmt = timer.prepare(conn, selectAllSql, ResultSet.TYPE_FORWARD_ONLY, ResultSet.CONCUR_READ_ONLY);
+            stmt.setFetchSize(fetchSize);
+            rs = timer.executeQuery(stmt);
+            RowReader reader = new RowReader(rs);
 
-                    if (value != null) {
-                        // Handle enums explicitly
-                        if (field.getType().isEnum()) {
-                            value = Enum.valueOf((Class<Enum>) field.getType(), value.toString().toUpperCase());
+            Connection cursorConn = conn;
+            PreparedStatement cursorStmt = stmt;
+            ResultSet cursorRs = rs;
+            return StreamSupport.stream(new ResultSetSpliterator(rs, reader), false)
+                    .onClose(() -> {
+                        DatabaseException failure = closeCursor(cursorConn, cursorStmt, cursorRs);
+                        if (failure != null) {
+                            throw failure;
                         }
+                    });
+        } catch (SQLException e) {
+            DatabaseException failure = new DatabaseException("Error streaming " + tableName + ": " + e.getMessage(), e);
+            DatabaseException closeFailure = closeCursor(conn, stmt, rs);
+            if (closeFailure != null) {
+                failure.addSuppressed(closeFailure);
+            }
+            throw failure;
+        }
+    }
 
-                        // Handle float fields explicitly (cast Double to float)
-                        if (field.getType() == float.class && value instanceof Double) {
-                            value = ((Double) value).floatValue();
-                        }
+    /**
+     * Passes every row of the table to {@code action} as it is fetched, then releases the cursor.
+     *
+     * @param action the consumer receiving each entity
+     */
+    public void forEach(Consumer<? super T> action) {
+        try (Stream<T> rows = stream()) {
+            rows.forEach(action);
+        }
+    }
 
-                        // Set the field value
-                        field.set(obj, value);
-                    }
-                }
-                // Move to the superclass to process inherited fields
-                currentClass = currentClass.getSuperclass();
+    // Every step runs even if an earlier one fails, so the connection always goes back to the pool
+    private DatabaseException closeCursor(Connection conn, Statement stmt, ResultSet rs) {
+        DatabaseException failure = null;
+        try {
+            if (rs != null) {
+                rs.close();
             }
-
-            // Special handling for Car and Client fields
-            if (obj instanceof Leasing) {
-                Leasing leasing = (Leasing) obj;
-                if (leasing.getCarId() != 0) {
-                    leasing.setCar(fetchCarById(leasing.getCarId()));
-                }
-                if (leasing.getClientId() != 0) {
-                    leasing.setClient(fetchClientById(leasing.getClientId()));
+        } catch (SQLException e) {
+            failure = cursorFailure(failure, e);
+        }
+        try {
+            if (stmt != null) {
+                stmt.close();
+            }
+        } catch (SQLException e) {
+            failure = cursorFailure(failure, e);
+        }
+        if (conn != null) {
+            try {
+                conn.rollback();
+                conn.setAutoCommit(true);
+            } catch (SQLException e) {
+                failure = cursorFailure(failure, e);
+            } finally {
+                try {
+                    conn.close();
+                } catch (SQLException e) {
+                    failure = cursorFailure(failure, e);
                 }
             }
-
-
-            return obj;
-        } catch (Exception e) {
-            throw new SQLException("Error mapping ResultSet to object", e);
         }
+        return failure;
     }
 
+    private DatabaseException cursorFailure(DatabaseException failure, SQLException e) {
+        if (failure == null) {
+            return new DatabaseException("Releasing the " + tableName + " cursor failed: " + e.getMessage(), e);
+        }
+        failure.addSuppressed(e);
+        return failure;
+    }
 
+    /**
+     * Inserts all entities on a single connection in one transaction using JDBC batching.
+     *
+     * @param entities the entities to insert
+     * @return the number of inserted rows
+     * @throws DatabaseException if any insert fails; no rows are inserted in that case
+     */
+    public int createAll(Collection<T> entities) {
+        return executeBatch("createAll", insertSql, entities, mapper::bindInsert, false);
+    }
 
+    /**
+     * Updates all entities on a single connection in one transaction using JDBC batching.
+     * Versioned entities are checked and incremented as in {@link #update(HasID)}.
+     *
+     * @param entities the entities to update
+     * @return the number of updated rows
+     * @throws OptimisticLockException if any versioned entity is stale; no rows are updated in that case
+     * @throws DatabaseException if any update fails; no rows are updated in that case
+     */
+    public int updateAll(Collection<T> entities) {
+        try {
+            return executeBatch("updateAll", updateSql, entities, mapper::bindUpdate, mapper.isVersioned());
+        } finally {
+            for (T entity : entities) {
+                invalidateCached(entity.getId());
+            }
+        }
+    }
 
+    /**
+     * Inserts the entity, or updates every column of the existing row with the same ID,
+     * in a single {@code INSERT ... ON CONFLICT DO UPDATE} statement. The update is unconditional,
+     * also for {@link Versioned} entities, whose row version is incremented.
+     *
+     * @param obj the entity to insert or update
+     * @throws DatabaseException if the statement fails
+     */
+    public void upsert(T obj) {
+        discardQueued(obj.getId());
+        JdbcMetrics.Timer timer = timer("upsert");
+        try (Connection conn = timer.acquire(connectionPool);
+             PreparedStatement stmt = timer.prepare(conn, upsertSql)) {
+            mapper.bindInsert(stmt, obj);
+            timer.executeUpdate(stmt);
+            if (mapper.isVersioned()) {
+                // The stored version is unknown here: 0 for a new row, one more than before for an existing one
+                invalidateCached(obj.getId());
+            } else {
+                refreshCached(obj);
+            }
+        } catch (SQLException e) {
+            invalidateCached(obj.getId());
+            throw new DatabaseException("Upsert into " + tableName + " failed: " + e.getMessage(), e);
+        } finally {
+            written();
+        }
+    }
 
-    private String getTableName() {
-        if (type == Car.class) {
-            return "cars";
-        } else if (type == Client.class) {
-            return "clients";
-        } else if (type == Employee.class) {
-            return "employees";
-        } else if (type == Leasing.class) {
-            return "leasings";
-        } else if (type == Transaction.class) {
-            return "transactions";
-        } else {
-            throw new IllegalArgumentException("Unknown entity type: " + type.getSimpleName());
+    /**
+     * Inserts or updates all entities on a single connection in one transaction using JDBC batching,
+     * e.g. to synchronise the table with an external feed without reading it first.
+     *
+     * @param entities the entities to insert or update
+     * @return the number of inserted or updated rows
+     * @throws DatabaseException if any statement fails; no rows are changed in that case
+     */
+    public int upsertAll(Collection<T> entities) {
+        for (T entity : entities) {
+            discardQueued(entity.getId());
+        }
+        try {
+            return executeBatch("upsertAll", upsertSql, entities, mapper::bindInsert, false);
+        } finally {
+            for (T entity : entities) {
+                invalidateCached(entity.getId());
+            }
         }
     }
 
-    private String getIdColumnName() {
-        if (type == Car.class) {
-            return "car_id";
-        } else if (type == Client.class) {
-            return "client_id";
-        } else if (type == Employee.class) {
-            return "employee_id";
-        } else if (type == Leasing.class) {
-            return "leasing_id";
-        } else if (type == Transaction.class) {
-            return "transaction_id";
-        } else {
-            throw new IllegalArgumentException("Unknown type: " + type);
+    // A null would otherwise fail half-way, after some IDs were already discarded or looked up
+    private static void requireIds(Collection<Long> ids) {
+        for (Long id : ids) {
+            if (id == null) {
+                throw new IllegalArgumentException("IDs must not contain null: " + ids);
+            }
         }
     }
 
+    // A queued update is older than a direct write and must not overwrite it
+    private void discardQueued(long id) {
+        WriteBehindBuffer<T> writeBehind = this.writeBehind;
+        if (writeBehind != null) {
+            writeBehind.discard(id);
+        }
+    }
 
-    private boolean shouldIncludeField(Field field) {
-        return !Collection.class.isAssignableFrom(field.getType());
+    private void refreshCached(T obj) {
+        EntityCache<T> cache = this.cache;
+        if (cache != null) {
+            cache.put(obj);
+        }
     }
 
-    private String toSnakeCase(String camelCase) {
-        return camelCase.replaceAll("([a-z])([A-Z])", "$1_$2").toLowerCase();
+    void invalidateCached(long id) {
+        EntityCache<T> cache = this.cache;
+        if (cache != null) {
+            cache.invalidate(id);
+        }
     }
 
-    private String capitalizeFirstLetter(String str) {
-        if (str == null || str.isEmpty()) return str;
-        return str.substring(0, 1).toUpperCase() + str.substring(1).toLowerCase();
+    // With checkVersions, a statement that matched no row rejects the whole batch as stale
+    private int executeBatch(String operation, String sql, Collection<T> entities, StatementBinder<T> binder,
+                             boolean checkVersions) {
+        if (entities.isEmpty()) {
+            return 0;
+        }
+        List<Long> stale = new ArrayList<>();
+        JdbcMetrics.Timer timer = timer(operation);
+        try (Connection conn = timer.acquire(connectionPool)) {
+            boolean autoCommit = conn.getAutoCommit();
+            conn.setAutoCommit(false);
+            try (PreparedStatement stmt = timer.prepare(conn, sql)) {
+                int affected = 0;
+                List<T> pending = new ArrayList<>();
+                for (T entity : entities) {
+                    binder.bind(stmt, entity);
+                    stmt.addBatch();
+                    pending.add(entity);
+                    if (pending.size() == batchSize) {
+                        affected += executeChunk(timer, stmt, pending, checkVersions, stale);
+                    }
+                }
+                if (!pending.isEmpty()) {
+                    affected += executeChunk(timer, stmt, pending, checkVersions, stale);
+                }
+                if (!stale.isEmpty()) {
+                    conn.rollback();
+                } else {
+                    conn.commit();
+                    if (checkVersions) {
+                        for (T entity : entities) {
+                            mapper.incrementVersion(entity);
+                        }
+                    }
+                    return affected;
+                }
+            } catch (SQLException e) {
+                conn.rollback();
+                throw e;
+            } finally {
+                conn.setAutoCommit(autoCommit);
+            }
+        } catch (SQLException e) {
+            throw new DatabaseException("Batch operation on " + tableName + " failed: " + e.getMessage(), e);
+        } finally {
+            written();
+        }
+        throw new OptimisticLockException("Stale batch update of " + tableName + " " + stale, stale);
     }
 
-    private String getPrimaryKeyColumn() {
-        String className = type.getSimpleName().toLowerCase();
-        return className + "_id";
+    private int executeChunk(JdbcMetrics.Timer timer, PreparedStatement stmt, List<T> chunk, boolean checkVersions,
+                             List<Long> stale) throws SQLException {
+        int[] counts = timer.executeBatch(stmt, chunk.size());
+        if (checkVersions) {
+            for (int i = 0; i < counts.length; i++) {
+                if (counts[i] == 0) {
+                    stale.add(chunk.get(i).getId());
+                }
+            }
+        }
+        chunk.clear();
+        return countAffected(counts);
     }
 
-    private Car fetchCarById(long carId) {
-        DBRepository<Car> carRepo = new DBRepository<>(Car.class, "cars");
-        return carRepo.read(carId);
+    private static int countAffected(int[] counts) {
+        int total = 0;
+        for (int count : counts) {
+            // Rewritten multi-row inserts report SUCCESS_NO_INFO per row
+            total += count == Statement.SUCCESS_NO_INFO ? 1 : count;
+        }
+        return total;
     }
 
-    private Client fetchClientById(long clientId) {
-        DBRepository<Client> clientRepo = new DBRepository<>(Client.class, "clients");
-        return clientRepo.read(clientId);
+    /**
+     * Maps the rows of one result set. Column positions are resolved from the result set metadata
+     * when the reader is created, so a schema that does not match the entity fails before any row is read.
+     */
+    private class RowReader {
+        private final EntityMapper.RowPlan<T> plan;
+        private final EntityMapper.RowPlan<Car> carPlan;
+        private final EntityMapper.RowPlan<Client> clientPlan;
+
+        RowReader(ResultSet rs) throws SQLException {
+            ResultSetMetaData metaData = rs.getMetaData();
+            this.plan = mapper.plan(metaData, "");
+            if (type == Leasing.class) {
+                // Car and Client come from the joined columns
+                this.carPlan = EntityMapper.of(Car.class).plan(metaData, CAR_PREFIX);
+                this.clientPlan = EntityMapper.of(Client.class).plan(metaData, CLIENT_PREFIX);
+            } else {
+                this.carPlan = null;
+                this.clientPlan = null;
+            }
+        }
+
+        T read(ResultSet rs) throws SQLException {
+            T obj = plan.map(rs);
+            if (carPlan != null) {
+                Leasing leasing = (Leasing) obj;
+                if (leasing.getCarId() != 0) {
+                    leasing.setCar(carPlan.mapNullable(rs));
+                }
+                if (leasing.getClientId() != 0) {
+                    leasing.setClient(clientPlan.mapNullable(rs));
+                }
+            }
+            return obj;
+        }
     }
 
+    /**
+     * Maps rows lazily as the stream pulls them from the cursor.
+     */
+    private class ResultSetSpliterator extends Spliterators.AbstractSpliterator<T> {
+        private final ResultSet rs;
+        private final RowReader reader;
 
-}
+        ResultSetSpliterator(ResultSet rs, RowReader reader) {
+            super(Long.MAX_VALUE, Spliterator.ORDERED | Spliterator.NONNULL);
+            this.rs = rs;
+            this.reader = reader;
+        }
 
+        @Override
+        public boolean tryAdvance(Consumer<? super T> action) {
+            try {
+                if (!rs.next()) {
+                    return false;
+                }
+                action.accept(reader.read(rs));
+                return true;
+            } catch (SQLException e) {
+                throw new DatabaseException("Error reading from " + tableName + ": " + e.getMessage(), e);
+            }
+        }
+    }
+
+    @FunctionalInterface
+    private interface StatementBinder<T> {
+        void bind(PreparedStatement stmt, T entity) throws SQLException;
+    }
+}
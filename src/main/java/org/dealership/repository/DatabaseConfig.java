@@ -0,0 +1,166 @@
+package org.dealership.repository;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.Properties;
+
+/**
+ * Connection settings for the PostgreSQL database used by {@link DBRepository}.
+ * Values are read from {@code db.properties} on the classpath and can be overridden
+ * with system properties (e.g. {@code -Dcarvy.db.url=...}) or environment variables
+ * (e.g. {@code CARVY_DB_URL}).
+ */
+public class DatabaseConfig {
+    private static final String RESOURCE = "/db.properties";
+
+    private final Properties properties;
+
+    public DatabaseConfig(Properties properties) {
+        this.properties = properties;
+    }
+
+    /**
+     * Loads the configuration from {@code db.properties}.
+     *
+     * @return the loaded configuration
+     * @throws RuntimeException if the properties file cannot be read
+     */
+    public static DatabaseConfig load() {
+        Properties properties = new Properties();
+        try (InputStream in = DatabaseConfig.class.getResourceAsStream(RESOURCE)) {
+            if (in != null) {
+                properties.load(in);
+            }
+        } catch (IOException e) {
+            throw new RuntimeException("Failed to load database configuration from " + RESOURCE, e);
+        }
+        return new DatabaseConfig(properties);
+    }
+
+    public String getUrl() {
+        return get("carvy.db.url", "jdbc:postgresql://localhost:5432/carvy");
+    }
+
+    public String getUser() {
+        return get("carvy.db.user", "postgres");
+    }
+
+    public String getPassword() {
+        return get("carvy.db.password", "");
+    }
+
+    /**
+     * @return the URL of the read replica, or {@code null} if reads go to the primary
+     */
+    public String getReplicaUrl() {
+        String url = get("carvy.db.replica.url", "");
+        return url.isEmpty() ? null : url;
+    }
+
+    public String getReplicaUser() {
+        return get("carvy.db.replica.user", getUser());
+    }
+
+    public String getReplicaPassword() {
+        return get("carvy.db.replica.password", getPassword());
+    }
+
+    public long getReadYourWritesMillis() {
+        return getLong("carvy.db.replica.readYourWritesMillis", 2000);
+    }
+
+    public int getMaxTotal() {
+        return getInt("carvy.db.pool.maxTotal", 16);
+    }
+
+    public int getMaxIdle() {
+        return getInt("carvy.db.pool.maxIdle", 8);
+    }
+
+    public int getMinIdle() {
+        return getInt("carvy.db.pool.minIdle", 2);
+    }
+
+    public long getMaxWaitMillis() {
+        return getLong("carvy.db.pool.maxWaitMillis", 10000);
+    }
+
+    public int getInitialSize() {
+        return getInt("carvy.db.pool.initialSize", getMinIdle());
+    }
+
+    public boolean isPoolPreparedStatements() {
+        return Boolean.parseBoolean(get("carvy.db.pool.poolPreparedStatements", "true"));
+    }
+
+    public int getMaxOpenPreparedStatements() {
+        return getInt("carvy.db.pool.maxOpenPreparedStatements", 100);
+    }
+
+    public int getPrepareThreshold() {
+        return getInt("carvy.db.prepareThreshold", 1);
+    }
+
+    public int getCacheMaxEntries() {
+        return getInt("carvy.db.cache.maxEntries", 1000);
+    }
+
+    public long getCacheTtlSeconds() {
+        return getLong("carvy.db.cache.ttlSeconds", 60);
+    }
+
+    public boolean isWriteBehindEnabled() {
+        return Boolean.parseBoolean(get("carvy.db.writeBehind.enabled", "false"));
+    }
+
+    public int getWriteBehindMaxPending() {
+        return getInt("carvy.db.writeBehind.maxPending", 10000);
+    }
+
+    public long getWriteBehindFlushIntervalMillis() {
+        return getLong("carvy.db.writeBehind.flushIntervalMillis", 200);
+    }
+
+    public int getBatchSize() {
+        return getInt("carvy.db.batchSize", 1000);
+    }
+
+    public int getFetchSize() {
+        return getInt("carvy.db.fetchSize", 500);
+    }
+
+    public boolean isReWriteBatchedInserts() {
+        return Boolean.parseBoolean(get("carvy.db.reWriteBatchedInserts", "true"));
+    }
+
+    public long getSlowQueryThresholdMillis() {
+        return getLong("carvy.db.slowQueryThresholdMillis", 200);
+    }
+
+    /**
+     * Looks up a key, giving precedence to system properties, then environment
+     * variables, then {@code db.properties}.
+     *
+     * @param key          the property key
+     * @param defaultValue the value used when the key is not set anywhere
+     * @return the resolved value
+     */
+    public String get(String key, String defaultValue) {
+        String value = System.getProperty(key);
+        if (value == null) {
+            value = System.getenv(key.toUpperCase().replace('.', '_'));
+        }
+        if (value == null) {
+            value = properties.getProperty(key);
+        }
+        return value != null ? value.trim() : defaultValue;
+    }
+
+    public int getInt(String key, int defaultValue) {
+        return Integer.parseInt(get(key, String.valueOf(defaultValue)));
+    }
+
+    public long getLong(String key, long defaultValue) {
+        return Long.parseLong(get(key, String.valueOf(defaultValue)));
+    }
+}
@@ -0,0 +1,147 @@
+package org.dealership.repository;
+
+import org.dealership.model.HasID;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.LongSupplier;
+
+/**
+ * Size-bounded in-process cache of entities by ID, used by {@link DBRepository#read} as a read-through cache.
+ * Entries are evicted in least-recently-used order once {@code maxEntries} is reached, and expire
+ * {@code ttl} after they were stored so that changes made outside this process are eventually seen.
+ * <p>
+ * The cache holds its own copies: {@link #put} stores a copy and {@link #get} returns a new copy on
+ * every hit, so a caller modifying an entity it read never changes what other readers see.
+ *
+ * @param <T> The type of the entity extending HasID.
+ */
+public class EntityCache<T extends HasID> {
+    private final int maxEntries;
+    private final long ttlNanos;
+    private final LongSupplier clock;
+    private final LinkedHashMap<Long, Entry<T>> entries;
+
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+    private final LongAdder evictions = new LongAdder();
+
+    /**
+     * @param maxEntries the maximum number of cached entities, must be positive
+     * @param ttl        how long an entity stays cached after it was stored
+     * @param unit       the unit of {@code ttl}
+     */
+    public EntityCache(int maxEntries, long ttl, TimeUnit unit) {
+        this(maxEntries, unit.toNanos(ttl), System::nanoTime);
+    }
+
+    EntityCache(int maxEntries, long ttlNanos, LongSupplier clock) {
+        if (maxEntries <= 0) {
+            throw new IllegalArgumentException("Cache size must be greater than 0.");
+        }
+        this.maxEntries = maxEntries;
+        this.ttlNanos = ttlNanos;
+        this.clock = clock;
+        this.entries = new LinkedHashMap<>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<Long, Entry<T>> eldest) {
+                if (size() > EntityCache.this.maxEntries) {
+                    evictions.increment();
+                    return true;
+                }
+                return false;
+            }
+        };
+    }
+
+    /**
+     * Creates a cache sized from the {@code carvy.db.cache.*} settings.
+     */
+    public static <T extends HasID> EntityCache<T> fromConfig(DatabaseConfig config) {
+        return new EntityCache<>(config.getCacheMaxEntries(), config.getCacheTtlSeconds(), TimeUnit.SECONDS);
+    }
+
+    /**
+     * @return a copy of the cached entity, or {@code null} if it is not cached or has expired
+     */
+    public synchronized T get(long id) {
+        Entry<T> entry = entries.get(id);
+        if (entry != null && clock.getAsLong() - entry.storedAt >= ttlNanos) {
+            entries.remove(id);
+            evictions.increment();
+            entry = null;
+        }
+        if (entry == null) {
+            misses.increment();
+            return null;
+        }
+        hits.increment();
+        return copy(entry.value);
+    }
+
+    /**
+     * Stores a copy of the entity, so later changes to {@code entity} are not cached until it is put again.
+     */
+    public void put(T entity) {
+        T copy = copy(entity);
+        synchronized (this) {
+            entries.put(copy.getId(), new Entry<>(copy, clock.getAsLong()));
+        }
+    }
+
+    @SuppressWarnings("unchecked")
+    private T copy(T entity) {
+        return ((EntityMapper<T>) EntityMapper.forClass(entity.getClass())).copy(entity);
+    }
+
+    public synchronized void invalidate(long id) {
+        entries.remove(id);
+    }
+
+    public synchronized void invalidateAll() {
+        entries.clear();
+    }
+
+    public synchronized int size() {
+        return entries.size();
+    }
+
+    public long getHitCount() {
+        return hits.sum();
+    }
+
+    public long getMissCount() {
+        return misses.sum();
+    }
+
+    /**
+     * @return the number of entries dropped because the cache was full or they had expired
+     */
+    public long getEvictionCount() {
+        return evictions.sum();
+    }
+
+    public double getHitRate() {
+        long hitCount = hits.sum();
+        long total = hitCount + misses.sum();
+        return total == 0 ? 0 : (double) hitCount / total;
+    }
+
+    @Override
+    public String toString() {
+        return String.format("size=%d/%d, hits=%d, misses=%d, evictions=%d, hitRate=%.2f",
+                size(), maxEntries, getHitCount(), getMissCount(), getEvictionCount(), getHitRate());
+    }
+
+    private static final class Entry<T> {
+        final T value;
+        final long storedAt;
+
+        Entry(T value, long storedAt) {
+            this.value = value;
+            this.storedAt = storedAt;
+        }
+    }
+}
@@ -0,0 +1,910 @@
+package org.dealership.repository;
+
+import org.dealership.model.*;
+
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.lang.reflect.Field;
+import java.lang.reflect.Modifier;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.ResultSetMetaData;
+import java.sql.SQLException;
+import java.sql.Timestamp;
+import java.sql.Types;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Precomputed mapping between an entity class and its database table.
+ * The column list, the SQL strings and the field accessors are derived once per class
+ * and cached, so binding parameters and materialising rows do not use reflection.
+ * Entities annotated with {@link org.dealership.model.GenerateRowMapper} are bound and
+ * read by their compile-time generated {@link RowMapper}; other entities through field handles.
+ *
+ * @param <T> The type of the entity extending HasID.
+ */
+public final class EntityMapper<T extends HasID> {
+    private static final Map<Class<?>, EntityMapper<?>> CACHE = new ConcurrentHashMap<>();
+    private static final String VERSION_COLUMN = "version";
+
+    private final Class<T> type;
+    private final String tableName;
+    private final String idColumnName;
+    private final List<Column> columns;
+    private final List<Column> updateColumns;
+    private final Column versionColumn;
+    private final Map<String, Column> columnsByField;
+    // Getter and setter pairs of the fields holding other entities, e.g. Leasing.car
+    private final List<MethodHandle[]> references;
+    private final MethodHandle constructor;
+    private final RowMapper<T> rowMapper;
+    private final Map<Class<?>, Projection<?>> projections = new ConcurrentHashMap<>();
+
+    private final String insertSql;
+    private final String upsertSql;
+    private final String updateSql;
+    private final String selectByIdSql;
+    private final String deleteSql;
+
+    /**
+     * Returns the mapper for the given entity class, building it on first use.
+     *
+     * @param type the entity class
+     * @return the cached mapper
+     */
+    @SuppressWarnings("unchecked")
+    public static <T extends HasID> EntityMapper<T> of(Class<T> type) {
+        return (EntityMapper<T>) CACHE.computeIfAbsent(type, t -> new EntityMapper<>(type));
+    }
+
+    /**
+     * Returns the mapper for the runtime class of an entity held in an untyped repository.
+     *
+     * @throws IllegalArgumentException if the class does not implement {@link HasID}
+     */
+    @SuppressWarnings("unchecked")
+    static EntityMapper<?> forClass(Class<?> type) {
+        if (!HasID.class.isAssignableFrom(type)) {
+            throw new IllegalArgumentException(type.getSimpleName() + " is not a mapped entity");
+        }
+        return of((Class<HasID>) type);
+    }
+
+    private EntityMapper(Class<T> type) {
+        this.type = type;
+        this.tableName = tableNameFor(type);
+        this.idColumnName = idColumnNameFor(type);
+
+        try {
+            MethodHandles.Lookup lookup = MethodHandles.privateLookupIn(type, MethodHandles.lookup());
+            this.constructor = lookup.findConstructor(type, MethodType.methodType(void.class))
+                    .asType(MethodType.methodType(Object.class));
+
+            List<Column> columns = new ArrayList<>();
+            List<MethodHandle[]> references = new ArrayList<>();
+            Set<String> addedColumns = new HashSet<>();
+            Class<?> currentClass = type;
+            while (currentClass != null && currentClass != Object.class) {
+                MethodHandles.Lookup classLookup = MethodHandles.privateLookupIn(currentClass, MethodHandles.lookup());
+                for (Field field : currentClass.getDeclaredFields()) {
+                    if (!Modifier.isStatic(field.getModifiers()) && HasID.class.isAssignableFrom(field.getType())) {
+                        references.add(new MethodHandle[]{
+                                classLookup.unreflectGetter(field).asType(MethodType.methodType(Object.class, Object.class)),
+                                classLookup.unreflectSetter(field)
+                                        .asType(MethodType.methodType(void.class, Object.class, Object.class))});
+                    }
+                    if (!isMappedField(field)) {
+                        continue;
+                    }
+                    String columnName = toSnakeCase(field.getName());
+                    // Avoid adding the same column multiple times
+                    if (addedColumns.add(columnName)) {
+                        columns.add(new Column(columnName, field, classLookup));
+                    }
+                }
+                currentClass = currentClass.getSuperclass();
+            }
+            if (columns.isEmpty()) {
+                throw new IllegalArgumentException("No fields available for mapping in " + type.getSimpleName());
+            }
+            this.rowMapper = loadRowMapper(type);
+            if (rowMapper != null) {
+                columns = inGeneratedOrder(columns, rowMapper);
+            }
+            this.columns = Collections.unmodifiableList(columns);
+            this.references = references;
+        } catch (ReflectiveOperationException e) {
+            throw new IllegalArgumentException("Cannot build mapper for " + type.getSimpleName(), e);
+        }
+
+        Column versionColumn = null;
+        List<Column> updateColumns = new ArrayList<>();
+        for (Column column : columns) {
+            if (Versioned.class.isAssignableFrom(type) && column.name.equals(VERSION_COLUMN)) {
+                versionColumn = column;
+            } else if (!column.name.equals(idColumnName)) {
+                updateColumns.add(column);
+            }
+        }
+        this.versionColumn = versionColumn;
+        this.updateColumns = Collections.unmodifiableList(updateColumns);
+
+        Map<String, Column> columnsByField = new HashMap<>();
+        for (Column column : columns) {
+            columnsByField.put(column.fieldName, column);
+        }
+        this.columnsByField = columnsByField;
+
+        this.insertSql = insertSql(tableName);
+        this.upsertSql = upsertSql(tableName);
+        this.updateSql = updateSql(tableName);
+        this.selectByIdSql = selectByIdSql(tableName);
+        this.deleteSql = deleteSql(tableName);
+    }
+
+    public Class<T> getType() {
+        return type;
+    }
+
+    /**
+     * @return whether rows are bound and read by a compile-time generated {@link RowMapper}
+     */
+    public boolean hasGeneratedRowMapper() {
+        return rowMapper != null;
+    }
+
+    /**
+     * @return the default table of the entity, used by the SQL getters; a {@link DBRepository} on another
+     * table builds its statements with the package-private variants taking the table name
+     */
+    public String getTableName() {
+        return tableName;
+    }
+
+    public String getIdColumnName() {
+        return idColumnName;
+    }
+
+    /**
+     * @return whether the entity implements {@link Versioned} and its updates are checked against the version column
+     */
+    public boolean isVersioned() {
+        return versionColumn != null;
+    }
+
+    /**
+     * Advances the in-memory version after the row was updated; does nothing for unversioned entities.
+     */
+    void incrementVersion(T obj) {
+        if (versionColumn != null) {
+            Versioned versioned = (Versioned) obj;
+            versioned.setVersion(versioned.getVersion() + 1);
+        }
+    }
+
+    /**
+     * Creates an independent copy of an entity: a new instance with the same column values, mutable
+     * dates copied, and referenced entities (e.g. a leasing's car) copied the same way.
+     * Collections are not mapped and start out as the constructor leaves them.
+     */
+    T copy(T obj) {
+        if (obj == null) {
+            return null;
+        }
+        try {
+            @SuppressWarnings("unchecked")
+            T copy = (T) (Object) constructor.invokeExact();
+            for (Column column : columns) {
+                column.copy(obj, copy);
+            }
+            for (MethodHandle[] reference : references) {
+                HasID referenced = (HasID) (Object) reference[0].invokeExact((Object) obj);
+                if (referenced != null) {
+                    reference[1].invokeExact((Object) copy, (Object) forClass(referenced.getClass()).copyUnchecked(referenced));
+                }
+            }
+            return copy;
+        } catch (Throwable t) {
+            throw new IllegalStateException("Cannot copy " + type.getSimpleName(), t);
+        }
+    }
+
+    @SuppressWarnings("unchecked")
+    private Object copyUnchecked(HasID obj) {
+        return copy((T) obj);
+    }
+
+    /**
+     * @return the mapped column names, in insert order
+     */
+    public List<String> getColumnNames() {
+        List<String> names = new ArrayList<>(columns.size());
+        for (Column column : columns) {
+            names.add(column.name);
+        }
+        return names;
+    }
+
+    /**
+     * Looks up a mapped column by the name of its Java field, e.g. {@code "year"} or {@code "firstName"}.
+     *
+     * @throws IllegalArgumentException if the field is not mapped
+     */
+    Column column(String fieldName) {
+        Column column = columnsByField.get(fieldName);
+        if (column == null) {
+            throw new IllegalArgumentException("Unknown field " + fieldName + " in " + type.getSimpleName());
+        }
+        return column;
+    }
+
+    /**
+     * @return whether the column at the given insert position is the {@link Versioned} version column
+     */
+    boolean isVersionColumn(int index) {
+        return columns.get(index) == versionColumn;
+    }
+
+    /**
+     * @return the value of the column at the given insert position (0-based) as the text the database
+     * stores, e.g. the label of an enum, or {@code null} if the field is null
+     */
+    String columnText(T obj, int index) {
+        Column column = columns.get(index);
+        Object value = column.get(obj);
+        if (value == null) {
+            return null;
+        }
+        if (column.kind == Kind.ENUM) {
+            return column.enumLabels[((Enum<?>) value).ordinal()];
+        }
+        if (value instanceof Date) {
+            return new Timestamp(((Date) value).getTime()).toString();
+        }
+        return value.toString();
+    }
+
+    public String getInsertSql() {
+        return insertSql;
+    }
+
+    /**
+     * @return an insert that updates the existing row instead when the id is taken, e.g.
+     * {@code INSERT INTO cars (...) VALUES (...) ON CONFLICT (car_id) DO UPDATE SET brand = EXCLUDED.brand, ...}.
+     * It takes the same parameters as {@link #getInsertSql()}.
+     */
+    public String getUpsertSql() {
+        return upsertSql;
+    }
+
+    public String getUpdateSql() {
+        return updateSql;
+    }
+
+    public String getSelectByIdSql() {
+        return selectByIdSql;
+    }
+
+    public String getDeleteSql() {
+        return deleteSql;
+    }
+
+    /**
+     * Binds every mapped column of {@code obj} to the placeholders of {@link #getInsertSql()}.
+     */
+    public void bindInsert(PreparedStatement stmt, T obj) throws SQLException {
+        if (rowMapper != null) {
+            rowMapper.bindInsert(stmt, obj);
+            return;
+        }
+        int index = 1;
+        for (Column column : columns) {
+            column.bind(stmt, index++, obj);
+        }
+    }
+
+    /**
+     * Binds the non-id columns of {@code obj} followed by its id, and for versioned entities its version,
+     * to the placeholders of {@link #getUpdateSql()}.
+     */
+    public void bindUpdate(PreparedStatement stmt, T obj) throws SQLException {
+        if (rowMapper != null) {
+            rowMapper.bindUpdate(stmt, obj);
+            return;
+        }
+        int index = 1;
+        for (Column column : updateColumns) {
+            column.bind(stmt, index++, obj);
+        }
+        stmt.setLong(index++, obj.getId());
+        if (versionColumn != null) {
+            stmt.setLong(index, ((Versioned) obj).getVersion());
+        }
+    }
+
+    /**
+     * Materialises the current row of the result set into a new entity.
+     * Resolves the column positions on every call; use {@link #plan} when mapping more than one row.
+     *
+     * @throws SQLException if a mapped column is missing from the result set or has an incompatible type
+     */
+    public T map(ResultSet rs) throws SQLException {
+        return map(rs, "");
+    }
+
+    /**
+     * Materialises an entity from columns selected with {@link #selectList(String, String)},
+     * i.e. whose labels are the column names preceded by {@code prefix}.
+     */
+    public T map(ResultSet rs, String prefix) throws SQLException {
+        return plan(rs.getMetaData(), prefix).map(rs);
+    }
+
+    /**
+     * Resolves the position of every mapped column in a result set, so that its rows can be read
+     * by index with typed getters. Build the plan once per result set and reuse it for each row.
+     *
+     * @param metaData the metadata of the result set to map
+     * @param prefix   the prefix of the column labels, or an empty string
+     * @return the mapping plan
+     * @throws SQLException if a mapped column is missing from the result set or has an incompatible type
+     */
+    public RowPlan<T> plan(ResultSetMetaData metaData, String prefix) throws SQLException {
+        Map<String, Integer> positions = new HashMap<>();
+        for (int i = metaData.getColumnCount(); i >= 1; i--) {
+            // Keep the first occurrence when a label repeats
+            positions.put(metaData.getColumnLabel(i).toLowerCase(), i);
+        }
+
+        int[] indexes = new int[columns.size()];
+        int idIndex = 0;
+        for (int i = 0; i < indexes.length; i++) {
+            Column column = columns.get(i);
+            String label = prefix + column.name;
+            Integer position = positions.get(label);
+            if (position == null) {
+                throw new SQLException("Result set for " + tableName + " has no column " + label);
+            }
+            int sqlType = metaData.getColumnType(position);
+            if (!column.accepts(sqlType)) {
+                throw new SQLException("Column " + label + " has SQL type " + metaData.getColumnTypeName(position)
+                        + ", which cannot be read into " + column.javaType.getSimpleName() + " " + column.fieldName);
+            }
+            indexes[i] = position;
+            if (column.name.equals(idColumnName)) {
+                idIndex = position;
+            }
+        }
+        return new RowPlan<>(this, indexes, idIndex);
+    }
+
+    /**
+     * Returns the projection of this entity onto a record whose components are named after entity fields.
+     *
+     * @throws IllegalArgumentException if a component does not match a mapped field of the same type
+     */
+    @SuppressWarnings("unchecked")
+    public <R extends Record> Projection<R> projection(Class<R> recordType) {
+        return (Projection<R>) projections.computeIfAbsent(recordType, t -> new Projection<>(recordType, this));
+    }
+
+    /**
+     * Builds a select list for joining this entity's table, e.g.
+     * {@code c.car_id AS car__car_id, c.brand AS car__brand, ...}.
+     *
+     * @param tableAlias the alias of this entity's table in the query
+     * @param prefix     the prefix added to every column label
+     * @return the comma-separated select list
+     */
+    public String selectList(String tableAlias, String prefix) {
+        StringJoiner list = new StringJoiner(", ");
+        for (Column column : columns) {
+            list.add(tableAlias + "." + column.name + " AS " + prefix + column.name);
+        }
+        return list.toString();
+    }
+
+    @SuppressWarnings("unchecked")
+    private T newInstance() throws SQLException {
+        try {
+            return (T) (Object) constructor.invokeExact();
+        } catch (Throwable t) {
+            throw new SQLException("Cannot instantiate " + type.getSimpleName(), t);
+        }
+    }
+
+    // The generated mapper for org.example.Car is org.example.CarRowMapper
+    @SuppressWarnings("unchecked")
+    private static <T extends HasID> RowMapper<T> loadRowMapper(Class<T> type) {
+        Class<?> mapperClass;
+        try {
+            mapperClass = Class.forName(type.getName() + "RowMapper", true, type.getClassLoader());
+        } catch (ClassNotFoundException e) {
+            return null;
+        }
+        if (!RowMapper.class.isAssignableFrom(mapperClass)) {
+            return null;
+        }
+        try {
+            return (RowMapper<T>) mapperClass.getConstructor().newInstance();
+        } catch (ReflectiveOperationException e) {
+            throw new IllegalArgumentException("Cannot instantiate " + mapperClass.getSimpleName(), e);
+        }
+    }
+
+    // SQL placeholders and plan indexes must follow the order the generated code binds and reads in
+    private List<Column> inGeneratedOrder(List<Column> columns, RowMapper<T> rowMapper) {
+        Map<String, Column> byName = new HashMap<>();
+        for (Column column : columns) {
+            byName.put(column.name, column);
+        }
+        List<Column> ordered = new ArrayList<>(columns.size());
+        for (String name : rowMapper.columnNames()) {
+            Column column = byName.remove(name);
+            if (column == null) {
+                break;
+            }
+            ordered.add(column);
+        }
+        if (!byName.isEmpty() || ordered.size() != rowMapper.columnNames().size()) {
+            throw new IllegalStateException(rowMapper.getClass().getSimpleName() + " does not match the fields of "
+                    + type.getSimpleName() + "; rebuild the project to regenerate it");
+        }
+        return ordered;
+    }
+
+    String insertSql(String table) {
+        StringJoiner names = new StringJoiner(", ");
+        StringJoiner placeholders = new StringJoiner(", ");
+        for (Column column : columns) {
+            names.add(column.name);
+            placeholders.add("?");
+        }
+        return "INSERT INTO " + table + " (" + names + ") VALUES (" + placeholders + ")";
+    }
+
+    String upsertSql(String table) {
+        StringJoiner assignments = new StringJoiner(", ");
+        for (Column column : updateColumns) {
+            assignments.add(column.name + " = EXCLUDED." + column.name);
+        }
+        if (versionColumn != null) {
+            assignments.add(VERSION_COLUMN + " = " + table + "." + VERSION_COLUMN + " + 1");
+        }
+        return insertSql(table) + " ON CONFLICT (" + idColumnName + ") DO UPDATE SET " + assignments;
+    }
+
+    String updateSql(String table) {
+        StringJoiner assignments = new StringJoiner(", ");
+        for (Column column : updateColumns) {
+            assignments.add(column.name + " = ?");
+        }
+        if (versionColumn != null) {
+            // Only matches the row the entity was read from, and marks it as changed
+            assignments.add(VERSION_COLUMN + " = " + VERSION_COLUMN + " + 1");
+            return "UPDATE " + table + " SET " + assignments + " WHERE " + idColumnName + " = ? AND "
+                    + VERSION_COLUMN + " = ?";
+        }
+        return "UPDATE " + table + " SET " + assignments + " WHERE " + idColumnName + " = ?";
+    }
+
+    String selectByIdSql(String table) {
+        return "SELECT * FROM " + table + " WHERE " + idColumnName + " = ?";
+    }
+
+    String deleteSql(String table) {
+        return "DELETE FROM " + table + " WHERE " + idColumnName + " = ?";
+    }
+
+    // Collections and object references (Leasing's car/client) are not stored as columns
+    private static boolean isMappedField(Field field) {
+        if (Modifier.isStatic(field.getModifiers()) || field.isSynthetic()) {
+            return false;
+        }
+        if (Collection.class.isAssignableFrom(field.getType())) {
+            return false;
+        }
+        return !HasID.class.isAssignableFrom(field.getType());
+    }
+
+    static String toSnakeCase(String camelCase) {
+        StringBuilder sb = new StringBuilder(camelCase.length() + 4);
+        for (int i = 0; i < camelCase.length(); i++) {
+            char c = camelCase.charAt(i);
+            if (i > 0 && Character.isUpperCase(c) && Character.isLowerCase(camelCase.charAt(i - 1))) {
+                sb.append('_');
+            }
+            sb.append(Character.toLowerCase(c));
+        }
+        return sb.toString();
+    }
+
+    static String tableNameFor(Class<?> type) {
+        if (type == Car.class) {
+            return "cars";
+        } else if (type == Client.class) {
+            return "clients";
+        } else if (type == Employee.class) {
+            return "employees";
+        } else if (type == Leasing.class) {
+            return "leasings";
+        } else if (type == Transaction.class) {
+            return "transactions";
+        } else {
+            throw new IllegalArgumentException("Unknown entity type: " + type.getSimpleName());
+        }
+    }
+
+    static String idColumnNameFor(Class<?> type) {
+        return type.getSimpleName().toLowerCase() + "_id";
+    }
+
+    /**
+     * Column positions of one result set, resolved by {@link #plan}.
+     *
+     * @param <T> The type of the entity extending HasID.
+     */
+    public static final class RowPlan<T extends HasID> {
+        private final EntityMapper<T> mapper;
+        private final Column[] columns;
+        private final int[] indexes;
+        private final int idIndex;
+
+        private RowPlan(EntityMapper<T> mapper, int[] indexes, int idIndex) {
+            this.mapper = mapper;
+            this.columns = mapper.columns.toArray(new Column[0]);
+            this.indexes = indexes;
+            this.idIndex = idIndex;
+        }
+
+        /**
+         * Materialises the current row into a new entity.
+         */
+        public T map(ResultSet rs) throws SQLException {
+            if (mapper.rowMapper != null) {
+                return mapper.rowMapper.read(rs, indexes);
+            }
+            T obj = mapper.newInstance();
+            for (int i = 0; i < columns.length; i++) {
+                columns[i].read(rs, indexes[i], obj);
+            }
+            return obj;
+        }
+
+        /**
+         * Materialises the current row, or returns {@code null} when its id column is NULL,
+         * e.g. for the unmatched side of an outer join.
+         */
+        public T mapNullable(ResultSet rs) throws SQLException {
+            if (idIndex > 0) {
+                rs.getLong(idIndex);
+                if (rs.wasNull()) {
+                    return null;
+                }
+            }
+            return map(rs);
+        }
+    }
+
+    private enum Kind { LONG, INT, FLOAT, DOUBLE, BOOLEAN, STRING, ENUM, DATE, OBJECT }
+
+    /**
+     * A single mapped column with exact-typed accessors for its backing field.
+     */
+    static final class Column {
+        final String name;
+        final String fieldName;
+        final Class<?> javaType;
+        private final Kind kind;
+        private final MethodHandle getter;
+        private final MethodHandle setter;
+        private final Enum<?>[] enumConstants;
+        private final String[] enumLabels;
+
+        Column(String name, Field field, MethodHandles.Lookup lookup) throws IllegalAccessException {
+            this.name = name;
+            this.fieldName = field.getName();
+            this.javaType = field.getType();
+            this.kind = kindOf(javaType);
+
+            Class<?> valueType = isPrimitiveKind(kind) ? javaType : Object.class;
+            this.getter = lookup.unreflectGetter(field)
+                    .asType(MethodType.methodType(valueType, Object.class));
+            this.setter = lookup.unreflectSetter(field)
+                    .asType(MethodType.methodType(void.class, Object.class, valueType));
+
+            if (kind == Kind.ENUM) {
+                enumConstants = (Enum<?>[]) javaType.getEnumConstants();
+                enumLabels = new String[enumConstants.length];
+                for (Enum<?> constant : enumConstants) {
+                    enumLabels[constant.ordinal()] = capitalizeFirstLetter(constant.name());
+                }
+            } else {
+                enumConstants = null;
+                enumLabels = null;
+            }
+        }
+
+        void bind(PreparedStatement stmt, int index, Object entity) throws SQLException {
+            try {
+                switch (kind) {
+                    case LONG:
+                        stmt.setLong(index, (long) getter.invokeExact(entity));
+                        break;
+                    case INT:
+                        stmt.setInt(index, (int) getter.invokeExact(entity));
+                        break;
+                    case FLOAT:
+                        stmt.setFloat(index, (float) getter.invokeExact(entity));
+                        break;
+                    case DOUBLE:
+                        stmt.setDouble(index, (double) getter.invokeExact(entity));
+                        break;
+                    case BOOLEAN:
+                        stmt.setBoolean(index, (boolean) getter.invokeExact(entity));
+                        break;
+                    case STRING:
+                        stmt.setString(index, (String) (Object) getter.invokeExact(entity));
+                        break;
+                    case ENUM: {
+                        Enum<?> value = (Enum<?>) (Object) getter.invokeExact(entity);
+                        stmt.setString(index, value == null ? null : enumLabels[value.ordinal()]);
+                        break;
+                    }
+                    case DATE: {
+                        Date value = (Date) (Object) getter.invokeExact(entity);
+                        stmt.setTimestamp(index, value == null ? null : new Timestamp(value.getTime()));
+                        break;
+                    }
+                    default:
+                        stmt.setObject(index, (Object) getter.invokeExact(entity));
+                }
+            } catch (SQLException e) {
+                throw e;
+            } catch (Throwable t) {
+                throw new SQLException("Error binding column " + name, t);
+            }
+        }
+
+        /**
+         * @return the boxed field value, for in-memory evaluation
+         */
+        Object get(Object entity) {
+            try {
+                return getter.invoke(entity);
+            } catch (Throwable t) {
+                throw new IllegalStateException("Error reading field " + fieldName, t);
+            }
+        }
+
+        // Copies the field between two instances; dates are mutable and copied by value
+        void copy(Object from, Object to) throws Throwable {
+            Object value = getter.invoke(from);
+            if (value instanceof Date) {
+                value = ((Date) value).clone();
+            }
+            setter.invoke(to, value);
+        }
+
+        /**
+         * Assigns a standalone value (e.g. a new status) to the field, converting it like {@link #bindValue}.
+         */
+        void set(Object entity, Object value) {
+            try {
+                switch (kind) {
+                    case LONG:
+                        setter.invokeExact(entity, ((Number) value).longValue());
+                        break;
+                    case INT:
+                        setter.invokeExact(entity, ((Number) value).intValue());
+                        break;
+                    case FLOAT:
+                        setter.invokeExact(entity, ((Number) value).floatValue());
+                        break;
+                    case DOUBLE:
+                        setter.invokeExact(entity, ((Number) value).doubleValue());
+                        break;
+                    case BOOLEAN:
+                        setter.invokeExact(entity, (boolean) (Boolean) value);
+                        break;
+                    case ENUM:
+                        setter.invokeExact(entity, value == null || value instanceof Enum
+                                ? value : toEnum(value.toString()));
+                        break;
+                    default:
+                        setter.invokeExact(entity, value);
+                }
+            } catch (RuntimeException e) {
+                throw e;
+            } catch (Throwable t) {
+                throw new IllegalStateException("Error writing field " + fieldName, t);
+            }
+        }
+
+        /**
+         * Binds a standalone value (e.g. a criteria operand) using this column's type conversion.
+         */
+        void bindValue(PreparedStatement stmt, int index, Object value) throws SQLException {
+            if (value == null) {
+                stmt.setObject(index, null);
+                return;
+            }
+            switch (kind) {
+                case LONG:
+                    stmt.setLong(index, ((Number) value).longValue());
+                    break;
+                case INT:
+                    stmt.setInt(index, ((Number) value).intValue());
+                    break;
+                case FLOAT:
+                    stmt.setFloat(index, ((Number) value).floatValue());
+                    break;
+                case DOUBLE:
+                    stmt.setDouble(index, ((Number) value).doubleValue());
+                    break;
+                case ENUM:
+                    stmt.setString(index, value instanceof Enum
+                            ? enumLabels[((Enum<?>) value).ordinal()]
+                            : value.toString());
+                    break;
+                case DATE:
+                    stmt.setTimestamp(index, new Timestamp(((Date) value).getTime()));
+                    break;
+                default:
+                    stmt.setObject(index, value);
+            }
+        }
+
+        void read(ResultSet rs, int index, Object entity) throws SQLException {
+            try {
+                switch (kind) {
+                    case LONG:
+                        setter.invokeExact(entity, rs.getLong(index));
+                        break;
+                    case INT:
+                        setter.invokeExact(entity, rs.getInt(index));
+                        break;
+                    case FLOAT:
+                        setter.invokeExact(entity, rs.getFloat(index));
+                        break;
+                    case DOUBLE:
+                        setter.invokeExact(entity, rs.getDouble(index));
+                        break;
+                    case BOOLEAN:
+                        setter.invokeExact(entity, rs.getBoolean(index));
+                        break;
+                    case STRING:
+                        setter.invokeExact(entity, (Object) rs.getString(index));
+                        break;
+                    case ENUM:
+                        setter.invokeExact(entity, (Object) toEnum(rs.getString(index)));
+                        break;
+                    case DATE:
+                        setter.invokeExact(entity, (Object) rs.getTimestamp(index));
+                        break;
+                    default:
+                        setter.invokeExact(entity, rs.getObject(index));
+                }
+            } catch (SQLException e) {
+                throw e;
+            } catch (Throwable t) {
+                throw new SQLException("Error reading column " + name, t);
+            }
+        }
+
+        boolean isNumeric() {
+            return kind == Kind.LONG || kind == Kind.INT || kind == Kind.FLOAT || kind == Kind.DOUBLE;
+        }
+
+        /**
+         * @return the boxed numeric field value, for summing in memory
+         * @throws IllegalArgumentException if the field is not numeric
+         */
+        double getDouble(Object entity) {
+            if (!isNumeric()) {
+                throw new IllegalArgumentException("Field " + fieldName + " is not numeric");
+            }
+            return ((Number) get(entity)).doubleValue();
+        }
+
+        /**
+         * @return the column at {@code index} of the current row, boxed, for building records
+         */
+        Object readValue(ResultSet rs, int index) throws SQLException {
+            switch (kind) {
+                case LONG:
+                    return rs.getLong(index);
+                case INT:
+                    return rs.getInt(index);
+                case FLOAT:
+                    return rs.getFloat(index);
+                case DOUBLE:
+                    return rs.getDouble(index);
+                case BOOLEAN:
+                    return rs.getBoolean(index);
+                case STRING:
+                    return rs.getString(index);
+                case ENUM:
+                    return toEnum(rs.getString(index));
+                case DATE:
+                    return rs.getTimestamp(index);
+                default:
+                    return rs.getObject(index);
+            }
+        }
+
+        /**
+         * @return whether a result set column of the given {@link Types} code can be read into this field
+         */
+        boolean accepts(int sqlType) {
+            switch (kind) {
+                case LONG:
+                case INT:
+                case FLOAT:
+                case DOUBLE:
+                    return isNumeric(sqlType);
+                case BOOLEAN:
+                    return sqlType == Types.BOOLEAN || sqlType == Types.BIT || isNumeric(sqlType);
+                case DATE:
+                    return sqlType == Types.TIMESTAMP || sqlType == Types.TIMESTAMP_WITH_TIMEZONE
+                            || sqlType == Types.DATE;
+                default:
+                    // Every SQL type has a text form
+                    return true;
+            }
+        }
+
+        private static boolean isNumeric(int sqlType) {
+            switch (sqlType) {
+                case Types.TINYINT:
+                case Types.SMALLINT:
+                case Types.INTEGER:
+                case Types.BIGINT:
+                case Types.REAL:
+                case Types.FLOAT:
+                case Types.DOUBLE:
+                case Types.NUMERIC:
+                case Types.DECIMAL:
+                    return true;
+                default:
+                    return false;
+            }
+        }
+
+        Enum<?> toEnum(String value) {
+            if (value == null) {
+                return null;
+            }
+            for (Enum<?> constant : enumConstants) {
+                if (constant.name().equalsIgnoreCase(value)) {
+                    return constant;
+                }
+            }
+            throw new IllegalArgumentException("Unknown " + javaType.getSimpleName() + " value: " + value);
+        }
+
+        private static Kind kindOf(Class<?> type) {
+            if (type == long.class) return Kind.LONG;
+            if (type == int.class) return Kind.INT;
+            if (type == float.class) return Kind.FLOAT;
+            if (type == double.class) return Kind.DOUBLE;
+            if (type == boolean.class) return Kind.BOOLEAN;
+            if (type == String.class) return Kind.STRING;
+            if (type.isEnum()) return Kind.ENUM;
+            if (Date.class.isAssignableFrom(type)) return Kind.DATE;
+            return Kind.OBJECT;
+        }
+
+        private static boolean isPrimitiveKind(Kind kind) {
+            return kind == Kind.LONG || kind == Kind.INT || kind == Kind.FLOAT
+                    || kind == Kind.DOUBLE || kind == Kind.BOOLEAN;
+        }
+
+        private static String capitalizeFirstLetter(String str) {
+            if (str == null || str.isEmpty()) return str;
+            return str.substring(0, 1).toUpperCase() + str.substring(1).toLowerCase();
+        }
+    }
+}
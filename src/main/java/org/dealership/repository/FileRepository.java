@@ -53,7 +53,7 @@ public class FileRepository<T> implements IRepository<T> {
      * @param entity the entity to create
      */
     @Override
-    public void create(T entity) {
+    public synchronized void create(T entity) {
         try (FileWriter writer = new FileWriter(file, true)) {
             writer.write(parser.toCSV(entity) + "\n");
         } catch (IOException e) {
@@ -96,6 +96,137 @@ public class FileRepository<T> implements IRepository<T> {
         }
     }
 
+    /**
+     * Reads the entities matching the given criteria.
+     * Lines are parsed and filtered one at a time, so non-matching entities are never collected.
+     *
+     * @param criteria the filter to evaluate against each entity
+     * @return a list of matching entities
+     */
+    @Override
+    public List<T> find(Criteria criteria) {
+        try (BufferedReader reader = new BufferedReader(new FileReader(file))) {
+            return reader.lines()
+                    .map(parser::fromCSV)
+                    .filter(criteria::matches)
+                    .collect(Collectors.toList());
+        } catch (IOException e) {
+            throw new RuntimeException("Failed to read matching entries from file.", e);
+        }
+    }
+
+    /**
+     * Reads a sorted window of the entities matching the given criteria.
+     * With a limit, the file is streamed through a bounded heap of {@code offset + limit} entities
+     * instead of loading and sorting every match.
+     *
+     * @param criteria the filter to evaluate against each entity
+     * @param sort     the sort order, or {@code null} to keep the entities in file order
+     * @param offset   the number of leading matches to skip
+     * @param limit    the maximum number of entities to return, or a non-positive value for no limit
+     * @return the selected entities, sorted
+     */
+    @Override
+    public List<T> find(Criteria criteria, Sort sort, int offset, int limit) {
+        try (BufferedReader reader = new BufferedReader(new FileReader(file))) {
+            return Sort.selectTop(reader.lines()
+                            .map(parser::fromCSV)
+                            .filter(criteria::matches)
+                            .iterator(),
+                    sort == null ? null : sort.comparator(), offset, limit);
+        } catch (IOException e) {
+            throw new RuntimeException("Failed to read sorted entries from file.", e);
+        }
+    }
+
+    /**
+     * Reads a page of entities ordered by ID, starting after the given ID.
+     * The file is scanned line by line and only the {@code limit} smallest matching IDs are kept,
+     * so memory stays bounded by the page size rather than the file size.
+     *
+     * @param afterId the ID of the last entity on the previous page, or 0 for the first page
+     * @param limit   the maximum number of entities to return
+     * @return up to {@code limit} entities with an ID greater than {@code afterId}, or none if {@code limit <= 0}
+     */
+    @Override
+    public List<T> readPage(long afterId, int limit) {
+        if (limit <= 0) {
+            return new ArrayList<>();
+        }
+        // Max-heap on ID: the head is the largest ID currently kept
+        Comparator<T> byId = Comparator.comparingLong(parser::getId);
+        PriorityQueue<T> page = new PriorityQueue<>(limit, byId.reversed());
+        try (BufferedReader reader = new BufferedReader(new FileReader(file))) {
+            String line;
+            while ((line = reader.readLine()) != null) {
+                T entity = parser.fromCSV(line);
+                long id = parser.getId(entity);
+                if (id <= afterId) {
+                    continue;
+                }
+                if (page.size() < limit) {
+                    page.add(entity);
+                } else if (id < parser.getId(page.peek())) {
+                    page.poll();
+                    page.add(entity);
+                }
+            }
+        } catch (IOException e) {
+            throw new RuntimeException("Failed to read page from file.", e);
+        }
+        List<T> result = new ArrayList<>(page);
+        result.sort(byId);
+        return result;
+    }
+
+    /**
+     * Counts the entities matching the given criteria while streaming the file, without collecting them.
+     */
+    @Override
+    public long count(Criteria criteria) {
+        try (BufferedReader reader = new BufferedReader(new FileReader(file))) {
+            return reader.lines()
+                    .map(parser::fromCSV)
+                    .filter(criteria::matches)
+                    .count();
+        } catch (IOException e) {
+            throw new RuntimeException("Failed to count entries in file.", e);
+        }
+    }
+
+    /**
+     * Counts the entities per distinct value of a field while streaming the file, e.g. cars per status.
+     */
+    @Override
+    public Map<Object, Long> groupCount(String field) {
+        Map<Object, Long> counts = new HashMap<>();
+        try (BufferedReader reader = new BufferedReader(new FileReader(file))) {
+            reader.lines()
+                    .map(parser::fromCSV)
+                    .forEach(entity -> counts.merge(
+                            EntityMapper.forClass(entity.getClass()).column(field).get(entity), 1L, Long::sum));
+        } catch (IOException e) {
+            throw new RuntimeException("Failed to count entries in file.", e);
+        }
+        return counts;
+    }
+
+    /**
+     * Sums a numeric field over the matching entities while streaming the file.
+     */
+    @Override
+    public double sum(String field, Criteria criteria) {
+        try (BufferedReader reader = new BufferedReader(new FileReader(file))) {
+            return reader.lines()
+                    .map(parser::fromCSV)
+                    .filter(criteria::matches)
+                    .mapToDouble(entity -> EntityMapper.forClass(entity.getClass()).column(field).getDouble(entity))
+                    .sum();
+        } catch (IOException e) {
+            throw new RuntimeException("Failed to sum entries in file.", e);
+        }
+    }
+
     /**
      * Updates an existing entity in the repository.
      * If the entity does not exist, no changes are made.
@@ -103,7 +234,7 @@ public class FileRepository<T> implements IRepository<T> {
      * @param entity the updated entity
      */
     @Override
-    public void update(T entity) {
+    public synchronized void update(T entity) {
         List<T> allEntities = readAll();
         try (FileWriter writer = new FileWriter(file)) {
             for (T current : allEntities) {
@@ -118,6 +249,28 @@ public class FileRepository<T> implements IRepository<T> {
         }
     }
 
+    /**
+     * Sets a field of the stored entity only if its current value equals {@code expected}.
+     * The whole file is rewritten on every change, so the check and the rewrite hold the
+     * repository lock that {@link #create}, {@link #update} and {@link #delete} also take.
+     *
+     * @param id       the ID of the entity
+     * @param field    the Java name of the field, e.g. {@code "status"}
+     * @param expected the value the field must currently have
+     * @param newValue the value to assign
+     * @return {@code true} if the entity existed and the field was changed
+     */
+    @Override
+    public synchronized boolean compareAndSet(long id, String field, Object expected, Object newValue) {
+        T entity = read(id);
+        if (entity == null || !Criteria.eq(field, expected).matches(entity)) {
+            return false;
+        }
+        EntityMapper.forClass(entity.getClass()).column(field).set(entity, newValue);
+        update(entity);
+        return true;
+    }
+
     /**
      * Deletes an entity with the specified ID from the repository.
      * If the entity does not exist, no changes are made.
@@ -125,7 +278,7 @@ public class FileRepository<T> implements IRepository<T> {
      * @param id the ID of the entity to delete
      */
     @Override
-    public void delete(long id) {
+    public synchronized void delete(long id) {
         List<T> allEntities = readAll();
         try (FileWriter writer = new FileWriter(file)) {
             for (T entity : allEntities) {
@@ -1,6 +1,7 @@
 package org.dealership.repository;
 
 import java.util.List;
+import java.util.Map;
 
 /**
  * A generic interface defining CRUD (Create, Read, Update, Delete) operations
@@ -12,6 +13,13 @@ public interface IRepository<T> {
     void create(T entity);                // Add a new entity
     T read(long id);                      // Retrieve an entity by ID
     List<T> readAll();                    // Retrieve all entities
+    List<T> readPage(long afterId, int limit); // Retrieve up to limit entities with ID > afterId, ordered by ID; none if limit <= 0
+    List<T> find(Criteria criteria);      // Retrieve the entities matching the criteria
+    List<T> find(Criteria criteria, Sort sort, int offset, int limit); // Sorted matches, limit <= 0 means no limit
+    long count(Criteria criteria);        // Number of entities matching the criteria
+    Map<Object, Long> groupCount(String field); // Number of entities per distinct value of the field
+    double sum(String field, Criteria criteria); // Sum of a numeric field over the matching entities
     void update(T entity);                // Update an existing entity
+    boolean compareAndSet(long id, String field, Object expected, Object newValue); // Atomically set field only if it equals expected
     void delete(long id);                 // Delete an entity by ID
 }
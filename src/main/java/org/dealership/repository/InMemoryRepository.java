@@ -4,6 +4,9 @@ import java.util.ArrayList;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.NavigableMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.atomic.AtomicLong;
 
 
 /**
@@ -13,8 +16,24 @@ import java.util.Map;
  * @param <T> the type of entity managed by the repository
  */
 public class InMemoryRepository<T> implements IRepository<T> {
-    private final Map<Long, T> storage = new HashMap<>();
-    private long currentId = 0; // Auto-increment ID generator
+    // Sorted by ID for paging; safe to change and walk from several threads
+    private final NavigableMap<Long, T> storage = new ConcurrentSkipListMap<>();
+    private final AtomicLong currentId = new AtomicLong(); // Auto-increment ID generator
+
+    // Serialises changes to the same stored entity without blocking changes to unrelated ones.
+    // The map itself needs no locking; these only guard the entities' fields.
+    private static final int LOCK_STRIPES = 16;
+    private final Object[] locks = new Object[LOCK_STRIPES];
+
+    public InMemoryRepository() {
+        for (int i = 0; i < LOCK_STRIPES; i++) {
+            locks[i] = new Object();
+        }
+    }
+
+    private Object lockFor(long id) {
+        return locks[Long.hashCode(id) & (LOCK_STRIPES - 1)];
+    }
 
 
     /**
@@ -26,14 +45,14 @@ public class InMemoryRepository<T> implements IRepository<T> {
      */
     @Override
     public void create(T entity) {
-        currentId++;
+        long id = currentId.incrementAndGet();
         try {
             // Using reflection to set the entity ID (assuming `setId` exists)
-            entity.getClass().getMethod("setId", long.class).invoke(entity, currentId);
+            entity.getClass().getMethod("setId", long.class).invoke(entity, id);
         } catch (Exception e) {
             throw new RuntimeException("Entity must have a `setId` method.", e);
         }
-        storage.put(currentId, entity);
+        storage.put(id, entity);
     }
 
     /**
@@ -57,6 +76,102 @@ public class InMemoryRepository<T> implements IRepository<T> {
         return new ArrayList<>(storage.values());
     }
 
+    /**
+     * Retrieves a page of entities ordered by ID, starting after the given ID.
+     * The lookup walks the sorted keys from {@code afterId}, so its cost does not depend on the page depth.
+     *
+     * @param afterId the ID of the last entity on the previous page, or 0 for the first page
+     * @param limit   the maximum number of entities to return
+     * @return up to {@code limit} entities with an ID greater than {@code afterId}, or none if {@code limit <= 0}
+     */
+    @Override
+    public List<T> readPage(long afterId, int limit) {
+        if (limit <= 0) {
+            return new ArrayList<>();
+        }
+        List<T> page = new ArrayList<>(Math.min(limit, storage.size()));
+        for (T entity : storage.tailMap(afterId, false).values()) {
+            if (page.size() == limit) {
+                break;
+            }
+            page.add(entity);
+        }
+        return page;
+    }
+
+    /**
+     * Retrieves the entities matching the given criteria.
+     *
+     * @param criteria the filter to evaluate against each entity
+     * @return a list of matching entities
+     */
+    @Override
+    public List<T> find(Criteria criteria) {
+        List<T> result = new ArrayList<>();
+        for (T entity : storage.values()) {
+            if (criteria.matches(entity)) {
+                result.add(entity);
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Retrieves a sorted window of the entities matching the given criteria.
+     * With a limit, only {@code offset + limit} entities are kept in a bounded heap instead of sorting all matches.
+     *
+     * @param criteria the filter to evaluate against each entity
+     * @param sort     the sort order, or {@code null} to keep the entities in ID order
+     * @param offset   the number of leading matches to skip
+     * @param limit    the maximum number of entities to return, or a non-positive value for no limit
+     * @return the selected entities, sorted
+     */
+    @Override
+    public List<T> find(Criteria criteria, Sort sort, int offset, int limit) {
+        return Sort.selectTop(storage.values().stream().filter(criteria::matches).iterator(),
+                sort == null ? null : sort.comparator(), offset, limit);
+    }
+
+    /**
+     * Counts the entities matching the given criteria in a single pass, without copying them.
+     */
+    @Override
+    public long count(Criteria criteria) {
+        long count = 0;
+        for (T entity : storage.values()) {
+            if (criteria.matches(entity)) {
+                count++;
+            }
+        }
+        return count;
+    }
+
+    /**
+     * Counts the entities per distinct value of a field in a single pass, e.g. cars per status.
+     */
+    @Override
+    public Map<Object, Long> groupCount(String field) {
+        Map<Object, Long> counts = new HashMap<>();
+        for (T entity : storage.values()) {
+            counts.merge(EntityMapper.forClass(entity.getClass()).column(field).get(entity), 1L, Long::sum);
+        }
+        return counts;
+    }
+
+    /**
+     * Sums a numeric field over the entities matching the given criteria in a single pass.
+     */
+    @Override
+    public double sum(String field, Criteria criteria) {
+        double sum = 0;
+        for (T entity : storage.values()) {
+            if (criteria.matches(entity)) {
+                sum += EntityMapper.forClass(entity.getClass()).column(field).getDouble(entity);
+            }
+        }
+        return sum;
+    }
+
     /**
      * Updates an existing entity in the repository.
      * The entity must already exist, and its ID is retrieved using reflection.
@@ -67,17 +182,42 @@ public class InMemoryRepository<T> implements IRepository<T> {
      */
     @Override
     public void update(T entity) {
+        long id;
         try {
             // Using reflection to get the entity ID (assuming `getId` exists)
-            long id = (long) entity.getClass().getMethod("getId").invoke(entity);
-            if (storage.containsKey(id)) {
-                storage.put(id, entity);
-            } else {
-                throw new IllegalArgumentException("Entity with ID " + id + " does not exist.");
-            }
+            id = (long) entity.getClass().getMethod("getId").invoke(entity);
         } catch (Exception e) {
             throw new RuntimeException("Entity must have a `getId` method.", e);
         }
+        synchronized (lockFor(id)) {
+            // replace() only stores over an existing entry, so a concurrent delete is not undone
+            if (storage.replace(id, entity) == null) {
+                throw new IllegalArgumentException("Entity with ID " + id + " does not exist.");
+            }
+        }
+    }
+
+    /**
+     * Sets a field of the stored entity only if its current value equals {@code expected}.
+     * The check and the assignment hold the lock stripe of the entity's ID, so concurrent
+     * transitions of the same entity cannot both succeed.
+     *
+     * @param id       the ID of the entity
+     * @param field    the Java name of the field, e.g. {@code "status"}
+     * @param expected the value the field must currently have
+     * @param newValue the value to assign
+     * @return {@code true} if the entity existed and the field was changed
+     */
+    @Override
+    public boolean compareAndSet(long id, String field, Object expected, Object newValue) {
+        synchronized (lockFor(id)) {
+            T entity = storage.get(id);
+            if (entity == null || !Criteria.eq(field, expected).matches(entity)) {
+                return false;
+            }
+            EntityMapper.forClass(entity.getClass()).column(field).set(entity, newValue);
+            return true;
+        }
     }
 
     /**
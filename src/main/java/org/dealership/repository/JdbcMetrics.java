@@ -0,0 +1,258 @@
+package org.dealership.repository;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.logging.Logger;
+
+/**
+ * Timings of the JDBC calls made by {@link DBRepository}, per table and operation
+ * (e.g. {@code cars/read}), split into the phases of a call: borrowing the connection,
+ * preparing the statement, executing it and mapping the rows.
+ * <p>
+ * Statements whose execution takes longer than the slow-query threshold are logged to the
+ * {@code org.dealership.repository.slowQueries} logger with their SQL and number of bound parameters.
+ */
+public class JdbcMetrics {
+    private static final Logger SLOW_QUERY_LOG = Logger.getLogger("org.dealership.repository.slowQueries");
+
+    private static JdbcMetrics shared;
+
+    /**
+     * The phases of a JDBC call, in the order they happen.
+     */
+    public enum Phase { ACQUIRE, PREPARE, EXECUTE, MAP }
+
+    private final Map<String, Map<String, OperationStats>> tables = new ConcurrentHashMap<>();
+    private final LongAdder slowQueries = new LongAdder();
+    private volatile long slowQueryThresholdNanos;
+
+    /**
+     * @param slowQueryThresholdMillis the execution time above which a statement is logged,
+     *                                 or a non-positive value to log nothing
+     */
+    public JdbcMetrics(long slowQueryThresholdMillis) {
+        setSlowQueryThresholdMillis(slowQueryThresholdMillis);
+    }
+
+    /**
+     * Creates metrics with the {@code carvy.db.slowQueryThresholdMillis} setting.
+     */
+    public static JdbcMetrics fromConfig(DatabaseConfig config) {
+        return new JdbcMetrics(config.getSlowQueryThresholdMillis());
+    }
+
+    /**
+     * Returns the metrics shared by every {@link DBRepository} that was not given its own.
+     *
+     * @return the shared metrics
+     */
+    public static synchronized JdbcMetrics shared() {
+        if (shared == null) {
+            shared = fromConfig(DatabaseConfig.load());
+        }
+        return shared;
+    }
+
+    public long getSlowQueryThresholdMillis() {
+        return TimeUnit.NANOSECONDS.toMillis(slowQueryThresholdNanos);
+    }
+
+    public void setSlowQueryThresholdMillis(long slowQueryThresholdMillis) {
+        this.slowQueryThresholdNanos = slowQueryThresholdMillis > 0
+                ? TimeUnit.MILLISECONDS.toNanos(slowQueryThresholdMillis) : Long.MAX_VALUE;
+    }
+
+    public long getSlowQueryCount() {
+        return slowQueries.sum();
+    }
+
+    /**
+     * @return the statistics of one operation on one table, created on first use
+     */
+    public OperationStats stats(String table, String operation) {
+        return tables.computeIfAbsent(table, t -> new ConcurrentHashMap<>())
+                .computeIfAbsent(operation, op -> new OperationStats(table, op));
+    }
+
+    /**
+     * @return the statistics of every operation timed so far, ordered by table and operation
+     */
+    public List<OperationStats> getStats() {
+        List<OperationStats> all = new ArrayList<>();
+        tables.values().forEach(operations -> all.addAll(operations.values()));
+        all.sort(Comparator.comparing(OperationStats::getTable).thenComparing(OperationStats::getOperation));
+        return all;
+    }
+
+    /**
+     * Starts timing one call of an operation.
+     */
+    public Timer start(String table, String operation) {
+        return new Timer(stats(table, operation));
+    }
+
+    @Override
+    public String toString() {
+        StringBuilder report = new StringBuilder("slowQueries=").append(getSlowQueryCount());
+        for (OperationStats stats : getStats()) {
+            report.append(System.lineSeparator()).append(stats);
+        }
+        return report.toString();
+    }
+
+    // Placeholders per statement; our SQL has no quoted literals, so every '?' is a parameter
+    static int countParameters(String sql) {
+        int count = 0;
+        for (int i = 0; i < sql.length(); i++) {
+            if (sql.charAt(i) == '?') {
+                count++;
+            }
+        }
+        return count;
+    }
+
+    /**
+     * One histogram per {@link Phase} for an operation on a table.
+     */
+    public static final class OperationStats {
+        private final String table;
+        private final String operation;
+        private final LatencyHistogram[] phases = new LatencyHistogram[Phase.values().length];
+        private final LongAdder slowQueries = new LongAdder();
+
+        OperationStats(String table, String operation) {
+            this.table = table;
+            this.operation = operation;
+            for (int i = 0; i < phases.length; i++) {
+                phases[i] = new LatencyHistogram();
+            }
+        }
+
+        public String getTable() {
+            return table;
+        }
+
+        public String getOperation() {
+            return operation;
+        }
+
+        public LatencyHistogram getHistogram(Phase phase) {
+            return phases[phase.ordinal()];
+        }
+
+        public long getSlowQueryCount() {
+            return slowQueries.sum();
+        }
+
+        @Override
+        public String toString() {
+            StringBuilder line = new StringBuilder(table).append('/').append(operation)
+                    .append(" (slow=").append(getSlowQueryCount()).append(')');
+            for (Phase phase : Phase.values()) {
+                LatencyHistogram histogram = getHistogram(phase);
+                if (histogram.getCount() > 0) {
+                    line.append(System.lineSeparator()).append("  ").append(phase).append(": ").append(histogram);
+                }
+            }
+            return line.toString();
+        }
+    }
+
+    /**
+     * Times the phases of a single call. Each method performs the JDBC call it names and records
+     * how long it took; a phase that fails is not recorded.
+     */
+    public final class Timer {
+        private final OperationStats stats;
+        private String sql;
+        private long executedAt;
+
+        private Timer(OperationStats stats) {
+            this.stats = stats;
+        }
+
+        public Connection acquire(ConnectionPool connectionPool) throws SQLException {
+            long start = System.nanoTime();
+            Connection conn = connectionPool.getConnection();
+            record(Phase.ACQUIRE, start);
+            return conn;
+        }
+
+        public PreparedStatement prepare(Connection conn, String sql) throws SQLException {
+            long start = System.nanoTime();
+            PreparedStatement stmt = conn.prepareStatement(sql);
+            record(Phase.PREPARE, start);
+            this.sql = sql;
+            return stmt;
+        }
+
+        public PreparedStatement prepare(Connection conn, String sql, int resultSetType, int resultSetConcurrency)
+                throws SQLException {
+            long start = System.nanoTime();
+            PreparedStatement stmt = conn.prepareStatement(sql, resultSetType, resultSetConcurrency);
+            record(Phase.PREPARE, start);
+            this.sql = sql;
+            return stmt;
+        }
+
+        public ResultSet executeQuery(PreparedStatement stmt) throws SQLException {
+            long start = System.nanoTime();
+            ResultSet rs = stmt.executeQuery();
+            executed(start, 1);
+            return rs;
+        }
+
+        public int executeUpdate(PreparedStatement stmt) throws SQLException {
+            long start = System.nanoTime();
+            int count = stmt.executeUpdate();
+            executed(start, 1);
+            return count;
+        }
+
+        /**
+         * @param rows the number of parameter sets in the batch
+         */
+        public int[] executeBatch(PreparedStatement stmt, int rows) throws SQLException {
+            long start = System.nanoTime();
+            int[] counts = stmt.executeBatch();
+            executed(start, rows);
+            return counts;
+        }
+
+        /**
+         * Records the time spent mapping rows since the last execution.
+         */
+        public void mapped() {
+            if (executedAt != 0) {
+                record(Phase.MAP, executedAt);
+            }
+        }
+
+        private void executed(long start, int rows) {
+            long end = System.nanoTime();
+            long elapsed = end - start;
+            stats.getHistogram(Phase.EXECUTE).record(elapsed);
+            executedAt = end;
+            if (elapsed > slowQueryThresholdNanos) {
+                stats.slowQueries.increment();
+                slowQueries.increment();
+                SLOW_QUERY_LOG.warning(String.format("Slow %s/%s: %.1f ms, %d bound parameters: %s",
+                        stats.table, stats.operation, elapsed / 1e6,
+                        sql == null ? 0 : countParameters(sql) * rows, sql));
+            }
+        }
+
+        private void record(Phase phase, long start) {
+            stats.getHistogram(phase).record(System.nanoTime() - start);
+        }
+    }
+}
@@ -0,0 +1,81 @@
+package org.dealership.repository;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAccumulator;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Lock-free latency histogram with power-of-two buckets. Recording a value is a handful of atomic
+ * increments and never allocates, so it can sit on every JDBC call; the price is that percentiles
+ * are only accurate to within a factor of two.
+ */
+public class LatencyHistogram {
+    private static final int BUCKETS = 64;
+
+    // Bucket i counts durations in [2^i, 2^(i+1)) nanoseconds; bucket 0 also holds 0
+    private final AtomicLongArray buckets = new AtomicLongArray(BUCKETS);
+    private final LongAdder count = new LongAdder();
+    private final LongAdder totalNanos = new LongAdder();
+    private final LongAccumulator maxNanos = new LongAccumulator(Math::max, 0);
+
+    public void record(long nanos) {
+        long value = Math.max(0, nanos);
+        buckets.incrementAndGet(value == 0 ? 0 : 63 - Long.numberOfLeadingZeros(value));
+        count.increment();
+        totalNanos.add(value);
+        maxNanos.accumulate(value);
+    }
+
+    public long getCount() {
+        return count.sum();
+    }
+
+    public long getTotalNanos() {
+        return totalNanos.sum();
+    }
+
+    public long getMaxNanos() {
+        return maxNanos.get();
+    }
+
+    public double getMeanNanos() {
+        long n = count.sum();
+        return n == 0 ? 0 : (double) totalNanos.sum() / n;
+    }
+
+    /**
+     * @param quantile a value between 0 and 1, e.g. {@code 0.99}
+     * @return an upper bound for the given quantile, at most twice the true value and never above the maximum
+     */
+    public long getPercentileNanos(double quantile) {
+        if (quantile < 0 || quantile > 1) {
+            throw new IllegalArgumentException("Quantile must be between 0 and 1.");
+        }
+        long n = count.sum();
+        if (n == 0) {
+            return 0;
+        }
+        long rank = Math.max(1, (long) Math.ceil(quantile * n));
+        long seen = 0;
+        for (int i = 0; i < BUCKETS; i++) {
+            seen += buckets.get(i);
+            if (seen >= rank) {
+                long upperBound = i == BUCKETS - 1 ? Long.MAX_VALUE : (1L << (i + 1)) - 1;
+                return Math.min(upperBound, getMaxNanos());
+            }
+        }
+        return getMaxNanos();
+    }
+
+    @Override
+    public String toString() {
+        return String.format("count=%d, mean=%.3fms, p50=%.3fms, p99=%.3fms, max=%.3fms",
+                getCount(), getMeanNanos() / TimeUnit.MILLISECONDS.toNanos(1),
+                toMillis(getPercentileNanos(0.5)), toMillis(getPercentileNanos(0.99)), toMillis(getMaxNanos()));
+    }
+
+    private static double toMillis(long nanos) {
+        return nanos / (double) TimeUnit.MILLISECONDS.toNanos(1);
+    }
+}
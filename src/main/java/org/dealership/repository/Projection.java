@@ -0,0 +1,80 @@
+package org.dealership.repository;
+
+import org.dealership.model.HasID;
+
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.lang.reflect.RecordComponent;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.StringJoiner;
+
+/**
+ * Maps a subset of an entity's columns onto a record, e.g. {@code record CarSummary(long carId, String brand)}.
+ * Each record component names the entity field it is read from and must have the same type.
+ * Built once per record and entity by {@link EntityMapper#projection(Class)}.
+ *
+ * @param <R> the record type
+ */
+public final class Projection<R extends Record> {
+    private final Class<R> type;
+    private final EntityMapper.Column[] columns;
+    private final MethodHandle constructor;
+
+    Projection(Class<R> type, EntityMapper<? extends HasID> mapper) {
+        this.type = type;
+        RecordComponent[] components = type.getRecordComponents();
+        this.columns = new EntityMapper.Column[components.length];
+        Class<?>[] parameterTypes = new Class<?>[components.length];
+        for (int i = 0; i < components.length; i++) {
+            EntityMapper.Column column = mapper.column(components[i].getName());
+            if (components[i].getType() != column.javaType) {
+                throw new IllegalArgumentException(type.getSimpleName() + "." + components[i].getName() + " is "
+                        + components[i].getType().getSimpleName() + " but the entity field is "
+                        + column.javaType.getSimpleName());
+            }
+            columns[i] = column;
+            parameterTypes[i] = components[i].getType();
+        }
+        try {
+            MethodHandles.Lookup lookup = MethodHandles.privateLookupIn(type, MethodHandles.lookup());
+            this.constructor = lookup.findConstructor(type, MethodType.methodType(void.class, parameterTypes))
+                    .asSpreader(Object[].class, components.length)
+                    .asType(MethodType.methodType(Object.class, Object[].class));
+        } catch (ReflectiveOperationException e) {
+            throw new IllegalArgumentException("Cannot build projection " + type.getSimpleName(), e);
+        }
+    }
+
+    public Class<R> getType() {
+        return type;
+    }
+
+    /**
+     * @return the projected columns for a {@code SELECT} list, e.g. {@code car_id, brand, model, price}
+     */
+    String selectList(String qualifier) {
+        StringJoiner list = new StringJoiner(", ");
+        for (EntityMapper.Column column : columns) {
+            list.add(qualifier + column.name);
+        }
+        return list.toString();
+    }
+
+    /**
+     * Builds a record from the current row, whose columns are in {@link #selectList} order.
+     */
+    @SuppressWarnings("unchecked")
+    R map(ResultSet rs) throws SQLException {
+        Object[] values = new Object[columns.length];
+        for (int i = 0; i < columns.length; i++) {
+            values[i] = columns[i].readValue(rs, i + 1);
+        }
+        try {
+            return (R) (Object) constructor.invokeExact(values);
+        } catch (Throwable t) {
+            throw new SQLException("Cannot instantiate " + type.getSimpleName(), t);
+        }
+    }
+}
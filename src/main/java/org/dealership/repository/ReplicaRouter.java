@@ -0,0 +1,129 @@
+package org.dealership.repository;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.LongSupplier;
+import java.util.function.Supplier;
+
+/**
+ * Splits {@link DBRepository} traffic between a primary pool, which takes every write, and a read
+ * replica pool, which serves reads. A replica lags behind the primary, so a thread that has written
+ * reads from the primary for {@code readYourWrites} afterwards and always sees its own changes.
+ * <p>
+ * One router is shared by all repositories of an application, so a write to one table also
+ * sends the writer's reads of the other tables to the primary.
+ * <p>
+ * The window belongs to the calling thread. Work handed to another thread must be wrapped with
+ * {@link #inCallersWindow} to share it, as {@link AsyncRepository} does; otherwise that thread
+ * reads from the replica and the caller does not see its writes.
+ */
+public class ReplicaRouter {
+    private static final long NEVER = Long.MIN_VALUE;
+
+    private final ConnectionPool primary;
+    private final ConnectionPool replica;
+    private final long readYourWritesNanos;
+    private final LongSupplier clock;
+
+    // Time of the last write made by each thread, shared with the tasks it hands to other threads
+    private final ThreadLocal<AtomicLong> lastWrite = ThreadLocal.withInitial(() -> new AtomicLong(NEVER));
+
+    private final LongAdder replicaReads = new LongAdder();
+    private final LongAdder primaryReads = new LongAdder();
+
+    /**
+     * @param primary        the pool receiving writes and the reads that must see them
+     * @param replica        the pool serving all other reads
+     * @param readYourWrites how long a thread keeps reading from the primary after a write;
+     *                       should exceed the usual replication lag
+     * @param unit           the unit of {@code readYourWrites}
+     */
+    public ReplicaRouter(ConnectionPool primary, ConnectionPool replica, long readYourWrites, TimeUnit unit) {
+        this(primary, replica, unit.toNanos(readYourWrites), System::nanoTime);
+    }
+
+    ReplicaRouter(ConnectionPool primary, ConnectionPool replica, long readYourWritesNanos, LongSupplier clock) {
+        this.primary = primary;
+        this.replica = replica;
+        this.readYourWritesNanos = readYourWritesNanos;
+        this.clock = clock;
+    }
+
+    /**
+     * Creates a router for the pool of {@code carvy.db.replica.url}, using the
+     * {@code carvy.db.replica.readYourWritesMillis} setting.
+     */
+    public static ReplicaRouter fromConfig(ConnectionPool primary, ConnectionPool replica, DatabaseConfig config) {
+        return new ReplicaRouter(primary, replica, config.getReadYourWritesMillis(), TimeUnit.MILLISECONDS);
+    }
+
+    public ConnectionPool getPrimary() {
+        return primary;
+    }
+
+    public ConnectionPool getReplica() {
+        return replica;
+    }
+
+    /**
+     * @return the primary if the calling thread wrote within the read-your-writes window, otherwise the replica
+     */
+    public ConnectionPool forRead() {
+        long written = lastWrite.get().get();
+        if (written != NEVER && clock.getAsLong() - written < readYourWritesNanos) {
+            primaryReads.increment();
+            return primary;
+        }
+        replicaReads.increment();
+        return replica;
+    }
+
+    /**
+     * Records that the calling thread has just finished a write, starting its read-your-writes window.
+     */
+    public void written() {
+        lastWrite.get().accumulateAndGet(clock.getAsLong(), Math::max);
+    }
+
+    /**
+     * Wraps a task so that, on whatever thread it runs, it shares the read-your-writes window of the
+     * calling thread: it reads from the primary if the caller wrote recently, and its own writes send
+     * the caller's later reads to the primary.
+     *
+     * @param task the task to run on another thread
+     * @return the wrapped task
+     */
+    public <R> Supplier<R> inCallersWindow(Supplier<R> task) {
+        AtomicLong callersWindow = lastWrite.get();
+        return () -> {
+            AtomicLong ownWindow = lastWrite.get();
+            lastWrite.set(callersWindow);
+            try {
+                return task.get();
+            } finally {
+                lastWrite.set(ownWindow);
+            }
+        };
+    }
+
+    public long getReplicaReads() {
+        return replicaReads.sum();
+    }
+
+    /**
+     * @return the number of reads sent to the primary because the reader had written recently
+     */
+    public long getPrimaryReads() {
+        return primaryReads.sum();
+    }
+
+    @Override
+    public String toString() {
+        return "ReplicaRouter{" +
+                "replicaReads=" + getReplicaReads() +
+                ", primaryReads=" + getPrimaryReads() +
+                ", readYourWritesMs=" + TimeUnit.NANOSECONDS.toMillis(readYourWritesNanos) +
+                '}';
+    }
+}
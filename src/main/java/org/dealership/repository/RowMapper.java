@@ -0,0 +1,73 @@
+package org.dealership.repository;
+
+import org.dealership.model.HasID;
+
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.List;
+
+/**
+ * Binds and reads the columns of one entity type with plain getter and setter calls.
+ * Implementations are generated at compile time for entities annotated with
+ * {@link org.dealership.model.GenerateRowMapper}; {@link EntityMapper} uses them
+ * when present and falls back to field handles otherwise.
+ *
+ * @param <T> The type of the entity extending HasID.
+ */
+public interface RowMapper<T extends HasID> {
+
+    /**
+     * @return the mapped column names, in the order they are bound and read
+     */
+    List<String> columnNames();
+
+    /**
+     * Binds every column of {@code entity}, in {@link #columnNames()} order, starting at placeholder 1.
+     */
+    void bindInsert(PreparedStatement stmt, T entity) throws SQLException;
+
+    /**
+     * Binds every column except the id, in {@link #columnNames()} order, followed by the id.
+     * For {@link org.dealership.model.Versioned} entities the version column is left out of the
+     * changed columns and bound after the id instead.
+     */
+    void bindUpdate(PreparedStatement stmt, T entity) throws SQLException;
+
+    /**
+     * Materialises the current row into a new entity.
+     *
+     * @param indexes the result set position of each column, in {@link #columnNames()} order
+     */
+    T read(ResultSet rs, int[] indexes) throws SQLException;
+
+    /**
+     * @return the labels stored for the given enum constants, e.g. {@code "Available"} for {@code AVAILABLE}
+     */
+    static String[] enumLabels(Enum<?>[] constants) {
+        String[] labels = new String[constants.length];
+        for (Enum<?> constant : constants) {
+            String name = constant.name();
+            labels[constant.ordinal()] = name.substring(0, 1).toUpperCase() + name.substring(1).toLowerCase();
+        }
+        return labels;
+    }
+
+    /**
+     * Converts a stored label back to its enum constant, ignoring case.
+     *
+     * @throws IllegalArgumentException if no constant matches
+     */
+    static <E extends Enum<E>> E toEnum(E[] constants, String value) {
+        if (value == null) {
+            return null;
+        }
+        for (E constant : constants) {
+            if (constant.name().equalsIgnoreCase(value)) {
+                return constant;
+            }
+        }
+        throw new IllegalArgumentException("Unknown " + constants.getClass().getComponentType().getSimpleName()
+                + " value: " + value);
+    }
+}
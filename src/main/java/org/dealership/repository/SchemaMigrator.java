@@ -0,0 +1,128 @@
+package org.dealership.repository;
+
+import org.dealership.exceptions.DatabaseException;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Applies the versioned SQL scripts under {@code db/migration} at startup.
+ * Each script is named {@code V<version>__<description>.sql} and runs at most once;
+ * the applied versions are recorded in the {@code schema_version} table, so an
+ * up-to-date database only costs a single version lookup. The whole migration, including
+ * the creation of {@code schema_version}, runs in one transaction under an advisory lock.
+ */
+public class SchemaMigrator {
+    private static final String MIGRATION_PATH = "/db/migration/";
+
+    // Applied in this order; append new scripts at the end
+    static final List<String> MIGRATIONS = Collections.unmodifiableList(Arrays.asList(
+            "V1__create_tables.sql",
+            "V2__create_indexes.sql",
+            "V3__add_car_version.sql"
+    ));
+
+    // Serialises migrations when several application instances start at once
+    private static final long MIGRATION_LOCK_KEY = 0x43617276794442L;
+
+    private final ConnectionPool connectionPool;
+
+    public SchemaMigrator(ConnectionPool connectionPool) {
+        this.connectionPool = connectionPool;
+    }
+
+    /**
+     * Brings the schema up to the latest version.
+     *
+     * @return the names of the scripts applied, in order; empty if the schema was up to date
+     * @throws DatabaseException if a script fails; that script's changes are rolled back
+     */
+    public List<String> migrate() {
+        try (Connection conn = connectionPool.getConnection()) {
+            boolean autoCommit = conn.getAutoCommit();
+            conn.setAutoCommit(false);
+            try {
+                List<String> applied = new ArrayList<>();
+                // Taken first: concurrent CREATE TABLE IF NOT EXISTS statements can still collide
+                try (Statement stmt = conn.createStatement()) {
+                    stmt.execute("SELECT pg_advisory_xact_lock(" + MIGRATION_LOCK_KEY + ")");
+                    stmt.execute("CREATE TABLE IF NOT EXISTS schema_version ("
+                            + "version INTEGER PRIMARY KEY, "
+                            + "script VARCHAR(200) NOT NULL, "
+                            + "applied_at TIMESTAMP NOT NULL DEFAULT now())");
+                }
+                // Read under the lock, so a migration by another instance is either complete or not started
+                int current = currentVersion(conn);
+                for (String script : MIGRATIONS) {
+                    int version = versionOf(script);
+                    if (version <= current) {
+                        continue;
+                    }
+                    apply(conn, script, version);
+                    applied.add(script);
+                }
+                conn.commit();
+                return applied;
+            } catch (SQLException | RuntimeException e) {
+                conn.rollback();
+                throw e;
+            } finally {
+                conn.setAutoCommit(autoCommit);
+            }
+        } catch (SQLException e) {
+            throw new DatabaseException("Schema migration failed: " + e.getMessage(), e);
+        }
+    }
+
+    private void apply(Connection conn, String script, int version) throws SQLException {
+        try (Statement stmt = conn.createStatement()) {
+            stmt.execute(readScript(script));
+        }
+        try (PreparedStatement stmt = conn.prepareStatement(
+                "INSERT INTO schema_version (version, script) VALUES (?, ?)")) {
+            stmt.setInt(1, version);
+            stmt.setString(2, script);
+            stmt.executeUpdate();
+        }
+    }
+
+    private int currentVersion(Connection conn) throws SQLException {
+        try (Statement stmt = conn.createStatement();
+             ResultSet rs = stmt.executeQuery("SELECT COALESCE(MAX(version), 0) FROM schema_version")) {
+            rs.next();
+            return rs.getInt(1);
+        }
+    }
+
+    static int latestVersion() {
+        return versionOf(MIGRATIONS.get(MIGRATIONS.size() - 1));
+    }
+
+    static int versionOf(String script) {
+        if (!script.startsWith("V") || !script.contains("__")) {
+            throw new IllegalArgumentException("Migration script must be named V<version>__<description>.sql: " + script);
+        }
+        return Integer.parseInt(script.substring(1, script.indexOf("__")));
+    }
+
+    static String readScript(String script) {
+        try (InputStream in = SchemaMigrator.class.getResourceAsStream(MIGRATION_PATH + script)) {
+            if (in == null) {
+                throw new IllegalStateException("Missing migration script: " + script);
+            }
+            return new String(in.readAllBytes(), StandardCharsets.UTF_8);
+        } catch (IOException e) {
+            throw new RuntimeException("Failed to read migration script " + script, e);
+        }
+    }
+}
@@ -0,0 +1,117 @@
+package org.dealership.repository;
+
+import org.dealership.model.HasID;
+
+import java.util.*;
+
+/**
+ * Sort order on an entity field, referenced by its Java name (e.g. {@code Sort.asc("price")}).
+ * {@link DBRepository} turns it into an {@code ORDER BY} clause; the file and in-memory
+ * repositories use {@link #comparator()} with a bounded heap when a limit is given.
+ * Ties are broken by entity ID so that results and offsets are stable, and nulls sort last in
+ * both directions.
+ */
+public final class Sort {
+    private final String field;
+    private final boolean ascending;
+
+    private Sort(String field, boolean ascending) {
+        this.field = Objects.requireNonNull(field);
+        this.ascending = ascending;
+    }
+
+    public static Sort asc(String field) {
+        return new Sort(field, true);
+    }
+
+    public static Sort desc(String field) {
+        return new Sort(field, false);
+    }
+
+    public String getField() {
+        return field;
+    }
+
+    public boolean isAscending() {
+        return ascending;
+    }
+
+    /**
+     * Compiles the sort into an {@code ORDER BY} list, e.g. {@code price ASC, car_id ASC}.
+     * PostgreSQL sorts nulls first when descending, so that case asks for {@code NULLS LAST}.
+     */
+    String toSql(EntityMapper<?> mapper, String qualifier) {
+        String column = mapper.column(field).name;
+        String order = qualifier + column + (ascending ? " ASC" : " DESC NULLS LAST");
+        return column.equals(mapper.getIdColumnName()) ? order
+                : order + ", " + qualifier + mapper.getIdColumnName() + " ASC";
+    }
+
+    /**
+     * @return a comparator evaluating the sort field on entities, with nulls last
+     */
+    @SuppressWarnings({"unchecked", "rawtypes"})
+    public <T> Comparator<T> comparator() {
+        Comparator<T> byField = (a, b) -> {
+            Comparable left = (Comparable) EntityMapper.forClass(a.getClass()).column(field).get(a);
+            Comparable right = (Comparable) EntityMapper.forClass(b.getClass()).column(field).get(b);
+            if (left == null || right == null) {
+                return left == right ? 0 : (left == null ? 1 : -1);
+            }
+            int result = left.compareTo(right);
+            return ascending ? result : -result;
+        };
+        return byField.thenComparingLong(entity -> ((HasID) entity).getId());
+    }
+
+    /**
+     * Selects the entities at positions {@code [offset, offset + limit)} of the given sort order
+     * while holding at most {@code offset + limit} entities in a heap.
+     * A non-positive {@code limit} selects everything after {@code offset}.
+     *
+     * @param entities   the entities to select from, consumed once
+     * @param comparator the sort order, or {@code null} to keep the order of {@code entities}
+     * @param offset     the number of leading entities to skip
+     * @param limit      the maximum number of entities to return
+     * @return the selected entities, sorted
+     */
+    static <T> List<T> selectTop(Iterator<? extends T> entities, Comparator<? super T> comparator, int offset, int limit) {
+        if (comparator == null) {
+            List<T> window = new ArrayList<>();
+            for (int skipped = 0; skipped < offset && entities.hasNext(); skipped++) {
+                entities.next();
+            }
+            while (entities.hasNext() && (limit <= 0 || window.size() < limit)) {
+                window.add(entities.next());
+            }
+            return window;
+        }
+        if (limit <= 0) {
+            List<T> all = new ArrayList<>();
+            entities.forEachRemaining(all::add);
+            all.sort(comparator);
+            return offset >= all.size() ? new ArrayList<>() : new ArrayList<>(all.subList(offset, all.size()));
+        }
+
+        int capacity = offset + limit;
+        // Max-heap: the head is the entity that would be dropped first
+        PriorityQueue<T> heap = new PriorityQueue<>(capacity, comparator.reversed());
+        while (entities.hasNext()) {
+            T entity = entities.next();
+            if (heap.size() < capacity) {
+                heap.add(entity);
+            } else if (comparator.compare(entity, heap.peek()) < 0) {
+                heap.poll();
+                heap.add(entity);
+            }
+        }
+        List<T> result = new ArrayList<>(heap);
+        result.sort(comparator);
+        return offset >= result.size() ? new ArrayList<>() : new ArrayList<>(result.subList(offset, result.size()));
+    }
+
+    @Override
+    public String toString() {
+        return field + (ascending ? " ASC" : " DESC");
+    }
+}
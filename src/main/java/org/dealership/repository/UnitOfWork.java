@@ -0,0 +1,152 @@
+package org.dealership.repository;
+
+import org.dealership.exceptions.DatabaseException;
+import org.dealership.model.HasID;
+
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Runs writes against several {@link DBRepository} instances on one pooled connection in one transaction:
+ * <pre>{@code
+ * try (UnitOfWork work = UnitOfWork.begin(pool)) {
+ *     work.compareAndSet(cars, carId, "status", CarStatus.AVAILABLE, CarStatus.LEASED);
+ *     work.insert(leasings, leasing);
+ *     work.commit();
+ * }
+ * }</pre>
+ * Nothing is visible to other connections until {@link #commit()}; closing without committing rolls back.
+ * Repository caches are only updated once the transaction has committed.
+ */
+public class UnitOfWork implements AutoCloseable {
+    private final Connection conn;
+    private final boolean autoCommit;
+    private final List<Runnable> afterCommit = new ArrayList<>();
+    private boolean completed;
+
+    private UnitOfWork(Connection conn) throws SQLException {
+        this.conn = conn;
+        this.autoCommit = conn.getAutoCommit();
+        conn.setAutoCommit(false);
+    }
+
+    /**
+     * Borrows a connection from the pool and starts a transaction on it.
+     *
+     * @throws DatabaseException if no connection can be obtained
+     */
+    public static UnitOfWork begin(ConnectionPool connectionPool) {
+        Connection conn = null;
+        try {
+            conn = connectionPool.getConnection();
+            return new UnitOfWork(conn);
+        } catch (SQLException e) {
+            if (conn != null) {
+                try {
+                    conn.close();
+                } catch (SQLException closeFailure) {
+                    e.addSuppressed(closeFailure);
+                }
+            }
+            throw new DatabaseException("Cannot start unit of work: " + e.getMessage(), e);
+        }
+    }
+
+    /**
+     * Inserts an entity as part of this unit of work.
+     */
+    public <T extends HasID> void insert(DBRepository<T> repository, T entity) {
+        checkActive();
+        try {
+            repository.insert(conn, entity);
+        } catch (SQLException e) {
+            throw new DatabaseException("Insert into " + repository.getTableName() + " failed: " + e.getMessage(), e);
+        }
+        afterCommit.add(() -> {
+            repository.invalidateCached(entity.getId());
+            repository.written();
+        });
+    }
+
+    /**
+     * Sets a column only if it currently holds {@code expected}, as part of this unit of work.
+     * A successful change keeps the row locked until the unit of work ends.
+     *
+     * @return {@code true} if the row existed and was changed
+     * @see DBRepository#compareAndSet(long, String, Object, Object)
+     */
+    public <T extends HasID> boolean compareAndSet(DBRepository<T> repository, long id, String field,
+                                                   Object expected, Object newValue) {
+        checkActive();
+        boolean changed;
+        try {
+            changed = repository.compareAndSet(conn, id, field, expected, newValue);
+        } catch (SQLException e) {
+            throw new DatabaseException("Conditional update of " + repository.getTableName() + " failed: "
+                    + e.getMessage(), e);
+        }
+        afterCommit.add(() -> {
+            repository.invalidateCached(id);
+            repository.written();
+        });
+        return changed;
+    }
+
+    /**
+     * Commits every write of this unit of work at once.
+     *
+     * @throws DatabaseException if the commit fails; the writes are rolled back in that case
+     */
+    public void commit() {
+        checkActive();
+        try {
+            conn.commit();
+        } catch (SQLException e) {
+            throw new DatabaseException("Commit failed: " + e.getMessage(), e);
+        }
+        completed = true;
+        afterCommit.forEach(Runnable::run);
+    }
+
+    /**
+     * Rolls back the writes unless {@link #commit()} succeeded, and returns the connection to the pool.
+     * In a try-with-resources block a failure here is added to the suppressed exceptions of the
+     * failure that caused the rollback, rather than replacing it.
+     *
+     * @throws DatabaseException if the rollback or returning the connection fails
+     */
+    @Override
+    public void close() {
+        DatabaseException failure = null;
+        try {
+            if (!completed) {
+                completed = true;
+                conn.rollback();
+            }
+            conn.setAutoCommit(autoCommit);
+        } catch (SQLException e) {
+            failure = new DatabaseException("Rollback failed: " + e.getMessage(), e);
+        } finally {
+            try {
+                conn.close();
+            } catch (SQLException e) {
+                if (failure == null) {
+                    failure = new DatabaseException("Returning the connection failed: " + e.getMessage(), e);
+                } else {
+                    failure.addSuppressed(e);
+                }
+            }
+        }
+        if (failure != null) {
+            throw failure;
+        }
+    }
+
+    private void checkActive() {
+        if (completed) {
+            throw new IllegalStateException("Unit of work has already completed.");
+        }
+    }
+}
@@ -0,0 +1,354 @@
+package org.dealership.repository;
+
+import org.dealership.exceptions.OptimisticLockException;
+import org.dealership.model.HasID;
+import org.dealership.model.Versioned;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * Write-behind buffer for {@link DBRepository#update}. Updates are queued per entity ID, keeping only the
+ * latest state, and written with {@link DBRepository#updateAll} every {@code flushIntervalMillis} or as soon
+ * as {@code flushThreshold} entities are pending, whichever comes first.
+ * <p>
+ * At most {@code maxPending} distinct entities are queued; further updates block until a flush makes room.
+ * Pending updates are flushed by {@link #close()} and by a JVM shutdown hook.
+ * <p>
+ * A failed flush leaves its updates queued. Entities whose update failed before are then written one
+ * at a time, so a row that keeps failing, e.g. on a constraint, does not hold back the others. After
+ * {@value #MAX_FLUSH_ATTEMPTS} failed flushes its update is dropped and logged, so the buffer does not fill up
+ * with updates that can never be written.
+ * <p>
+ * Updates of {@link Versioned} entities are queued as copies holding the version the row is expected to
+ * have, and the submitted entity's version is advanced to the one the row will have once written, so the
+ * caller can keep updating the same object. A further update of a queued entity must carry that advanced
+ * version, otherwise {@link #submit} throws {@link OptimisticLockException} right away. A queued update
+ * that turns out to be stale when it is written is dropped and logged, as it can no longer reach its caller.
+ *
+ * @param <T> The type of the entity extending HasID.
+ */
+public class WriteBehindBuffer<T extends HasID> implements AutoCloseable {
+    private static final Logger LOG = Logger.getLogger(WriteBehindBuffer.class.getName());
+
+    static final int MAX_FLUSH_ATTEMPTS = 5;
+
+    private final DBRepository<T> repository;
+    private final EntityMapper<T> mapper;
+    private final int maxPending;
+    private final int flushThreshold;
+    private final ScheduledExecutorService flusher;
+    private final Thread shutdownHook;
+
+    private final ReentrantLock lock = new ReentrantLock();
+    private final Condition notFull = lock.newCondition();
+    private LinkedHashMap<Long, T> pending = new LinkedHashMap<>();
+    private boolean closed;
+
+    // Held for the whole of a flush so batches reach the database in submission order
+    private final ReentrantLock flushLock = new ReentrantLock();
+
+    // Failed flushes per entity since its update was last written or dropped
+    private final Map<Long, Integer> failedFlushes = new ConcurrentHashMap<>();
+    private final LongAdder droppedUpdates = new LongAdder();
+
+    /**
+     * Starts the periodic flush and registers the shutdown hook.
+     *
+     * @param repository          the repository receiving the batched updates
+     * @param maxPending          the maximum number of distinct entities waiting to be written
+     * @param flushThreshold      the number of pending entities that triggers an immediate flush
+     * @param flushIntervalMillis the maximum time an update waits before it is written
+     * @throws IllegalArgumentException if a limit is not positive
+     */
+    public WriteBehindBuffer(DBRepository<T> repository, int maxPending, int flushThreshold, long flushIntervalMillis) {
+        if (maxPending <= 0 || flushThreshold <= 0 || flushIntervalMillis <= 0) {
+            throw new IllegalArgumentException("Write-behind limits must be greater than 0.");
+        }
+        this.repository = repository;
+        this.mapper = repository.getMapper();
+        this.maxPending = maxPending;
+        this.flushThreshold = Math.min(flushThreshold, maxPending);
+        this.flusher = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "write-behind-" + repository.getTableName());
+            thread.setDaemon(true);
+            return thread;
+        });
+        flusher.scheduleWithFixedDelay(this::flushQuietly, flushIntervalMillis, flushIntervalMillis, TimeUnit.MILLISECONDS);
+        this.shutdownHook = new Thread(this::flushQuietly, "write-behind-shutdown-" + repository.getTableName());
+        Runtime.getRuntime().addShutdownHook(shutdownHook);
+    }
+
+    /**
+     * Queues the entity's current state, replacing any state already queued for its ID.
+     * Blocks while the buffer is full. A versioned entity's version is advanced as if it had been written.
+     *
+     * @throws OptimisticLockException if the entity is versioned, an update of it is queued, and the entity
+     *                                 does not carry the version that update will produce
+     * @throws IllegalStateException   if the buffer has been closed
+     */
+    public void submit(T entity) {
+        boolean flushNow;
+        lock.lock();
+        try {
+            long id = entity.getId();
+            while (!closed && !pending.containsKey(id) && pending.size() >= maxPending) {
+                requestFlush();
+                notFull.awaitUninterruptibly();
+            }
+            if (closed) {
+                throw new IllegalStateException("Write-behind buffer for " + repository.getTableName() + " is closed.");
+            }
+            pending.put(id, mapper.isVersioned() ? queueVersioned(entity) : entity);
+            flushNow = pending.size() == flushThreshold;
+        } finally {
+            lock.unlock();
+        }
+        if (flushNow) {
+            requestFlush();
+        }
+    }
+
+    // Called with the lock held; returns the copy to queue
+    private T queueVersioned(T entity) {
+        Versioned submitted = (Versioned) entity;
+        T queued = pending.get(entity.getId());
+        long expected = queued == null ? submitted.getVersion() : ((Versioned) queued).getVersion();
+        if (queued != null && submitted.getVersion() != expected + 1) {
+            throw new OptimisticLockException("Stale update of " + repository.getTableName() + " " + entity.getId()
+                    + " at version " + submitted.getVersion(), List.of(entity.getId()));
+        }
+        T copy = mapper.copy(entity);
+        ((Versioned) copy).setVersion(expected);
+        submitted.setVersion(expected + 1);
+        return copy;
+    }
+
+    /**
+     * @return the queued state of the entity, or {@code null} if no update is pending for it.
+     * A versioned entity carries the version its row will have once the update is written.
+     */
+    public T getPending(long id) {
+        lock.lock();
+        try {
+            T queued = pending.get(id);
+            if (queued == null || !mapper.isVersioned()) {
+                return queued;
+            }
+            T copy = mapper.copy(queued);
+            mapper.incrementVersion(copy);
+            return copy;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Drops the pending update of an entity, e.g. because it is being deleted.
+     */
+    public void discard(long id) {
+        lock.lock();
+        try {
+            if (pending.remove(id) != null) {
+                notFull.signalAll();
+            }
+            failedFlushes.remove(id);
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * @return the number of updates dropped because they failed {@value #MAX_FLUSH_ATTEMPTS} flushes or were stale
+     */
+    public long getDroppedCount() {
+        return droppedUpdates.sum();
+    }
+
+    public int getPendingCount() {
+        lock.lock();
+        try {
+            return pending.size();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Writes every pending update in one batch.
+     *
+     * @return the number of updated rows
+     * @throws org.dealership.exceptions.DatabaseException if a batch fails; its updates stay queued unless
+     *                                                     a newer state was submitted meanwhile or they
+     *                                                     have failed too often
+     */
+    public int flush() {
+        flushLock.lock();
+        try {
+            List<T> batch;
+            lock.lock();
+            try {
+                if (pending.isEmpty()) {
+                    return 0;
+                }
+                batch = new ArrayList<>(pending.values());
+                pending = new LinkedHashMap<>();
+                notFull.signalAll();
+            } finally {
+                lock.unlock();
+            }
+
+            List<T> others = new ArrayList<>();
+            List<T> failedBefore = new ArrayList<>();
+            for (T entity : batch) {
+                (failedFlushes.containsKey(entity.getId()) ? failedBefore : others).add(entity);
+            }
+            int written = 0;
+            RuntimeException failure = null;
+            if (!others.isEmpty()) {
+                try {
+                    written += write(others);
+                } catch (RuntimeException e) {
+                    failure = e;
+                }
+            }
+            for (T entity : failedBefore) {
+                try {
+                    written += write(Collections.singletonList(entity));
+                } catch (RuntimeException e) {
+                    if (failure == null) {
+                        failure = e;
+                    } else {
+                        failure.addSuppressed(e);
+                    }
+                }
+            }
+            if (failure != null) {
+                throw failure;
+            }
+            return written;
+        } finally {
+            flushLock.unlock();
+        }
+    }
+
+    // Writes one batch; if it fails, its updates are queued again unless they have failed too often
+    private int write(List<T> batch) {
+        try {
+            int written = repository.updateAll(batch);
+            for (T entity : batch) {
+                failedFlushes.remove(entity.getId());
+            }
+            return written;
+        } catch (OptimisticLockException e) {
+            // The batch was rolled back; only the stale updates are lost, the others are retried as they were
+            Set<Long> stale = new HashSet<>(e.getIds());
+            List<T> retry = new ArrayList<>(batch.size());
+            for (T entity : batch) {
+                if (stale.contains(entity.getId())) {
+                    failedFlushes.remove(entity.getId());
+                    droppedUpdates.increment();
+                    LOG.warning("Dropped the queued update of " + repository.getTableName() + " " + entity.getId()
+                            + ": the row was changed or deleted since version " + ((Versioned) entity).getVersion());
+                } else {
+                    retry.add(entity);
+                }
+            }
+            requeue(retry);
+            throw e;
+        } catch (RuntimeException e) {
+            List<T> retry = new ArrayList<>(batch.size());
+            for (T entity : batch) {
+                int failures = failedFlushes.merge(entity.getId(), 1, Integer::sum);
+                if (failures < MAX_FLUSH_ATTEMPTS) {
+                    retry.add(entity);
+                } else {
+                    failedFlushes.remove(entity.getId());
+                    droppedUpdates.increment();
+                    LOG.log(Level.SEVERE, "Dropped the queued update of " + repository.getTableName() + " "
+                            + entity.getId() + " after " + failures + " failed flushes", e);
+                }
+            }
+            requeue(retry);
+            throw e;
+        }
+    }
+
+    private void requeue(List<T> batch) {
+        lock.lock();
+        try {
+            LinkedHashMap<Long, T> merged = new LinkedHashMap<>();
+            for (T entity : batch) {
+                merged.put(entity.getId(), entity);
+            }
+            // Updates submitted during the failed flush are newer and win, but the row is still at the
+            // version the failed update expected
+            for (Map.Entry<Long, T> entry : pending.entrySet()) {
+                T failed = merged.put(entry.getKey(), entry.getValue());
+                if (failed != null && mapper.isVersioned()) {
+                    ((Versioned) entry.getValue()).setVersion(((Versioned) failed).getVersion());
+                }
+            }
+            pending = merged;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private void requestFlush() {
+        try {
+            flusher.execute(this::flushQuietly);
+        } catch (RejectedExecutionException e) {
+            // Closing; close() flushes what is left
+        }
+    }
+
+    private void flushQuietly() {
+        try {
+            flush();
+        } catch (RuntimeException e) {
+            LOG.log(Level.WARNING, "Write-behind flush of " + repository.getTableName() + " failed; "
+                    + getPendingCount() + " updates are queued", e);
+        }
+    }
+
+    /**
+     * Stops the periodic flush and writes the remaining updates.
+     */
+    @Override
+    public void close() {
+        lock.lock();
+        try {
+            if (closed) {
+                return;
+            }
+            closed = true;
+            notFull.signalAll();
+        } finally {
+            lock.unlock();
+        }
+        repository.detachWriteBehind(this);
+        flusher.shutdown();
+        try {
+            Runtime.getRuntime().removeShutdownHook(shutdownHook);
+        } catch (IllegalStateException e) {
+            // The JVM is already shutting down and runs the hook itself
+        }
+        flush();
+    }
+}
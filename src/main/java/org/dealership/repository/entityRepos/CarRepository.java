@@ -2,12 +2,12 @@ package org.dealership.repository.entityRepos;
 
 import org.dealership.model.Car;
 import org.dealership.model.enums.CarStatus;
+import org.dealership.repository.Criteria;
 import org.dealership.repository.FileRepository;
 import org.dealership.repository.parsers.EntityParser;
 
 import java.io.File;
 import java.util.List;
-import java.util.stream.Collectors;
 
 /**
  * Repository for managing {@link Car} entities.
@@ -23,20 +23,14 @@ public class CarRepository extends FileRepository<Car> {
      * @return a list of cars with the status {@link CarStatus#AVAILABLE}.
      */
     public List<Car> findAvailableCars() {
-        return readAll().stream()
-                .filter(car -> car.getStatus() == CarStatus.AVAILABLE)
-                .collect(Collectors.toList());
+        return find(Criteria.eq("status", CarStatus.AVAILABLE));
     }
 
     public List<Car> findSoldCars() {
-        return readAll().stream()
-                .filter(car -> car.getStatus() == CarStatus.SOLD)
-                .collect(Collectors.toList());
+        return find(Criteria.eq("status", CarStatus.SOLD));
     }
 
     public List<Car> findLeasedCars() {
-        return readAll().stream()
-                .filter(car -> car.getStatus() == CarStatus.LEASED)
-                .collect(Collectors.toList());
+        return find(Criteria.eq("status", CarStatus.LEASED));
     }
 }
\ No newline at end of file
@@ -0,0 +1,382 @@
+package org.dealership.repository.mapping;
+
+import javax.annotation.processing.AbstractProcessor;
+import javax.annotation.processing.RoundEnvironment;
+import javax.annotation.processing.SupportedAnnotationTypes;
+import javax.lang.model.SourceVersion;
+import javax.lang.model.element.Element;
+import javax.lang.model.element.ElementKind;
+import javax.lang.model.element.ExecutableElement;
+import javax.lang.model.element.Modifier;
+import javax.lang.model.element.TypeElement;
+import javax.lang.model.element.VariableElement;
+import javax.lang.model.type.DeclaredType;
+import javax.lang.model.type.TypeKind;
+import javax.lang.model.type.TypeMirror;
+import javax.lang.model.util.ElementFilter;
+import javax.lang.model.util.Types;
+import javax.tools.Diagnostic;
+import java.io.IOException;
+import java.io.Writer;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.StringJoiner;
+
+/**
+ * Generates a {@code RowMapper} implementation for every class annotated with
+ * {@code @org.dealership.model.GenerateRowMapper}.
+ * The mapped columns are the ones {@code EntityMapper} derives by reflection: every non-static field of
+ * the class and its superclasses, except collections and references to other entities, named in
+ * snake case. The generated code calls the entity's getters and setters directly, so the JIT sees
+ * monomorphic, inlinable calls and no field access checks are needed at runtime.
+ * <p>
+ * This class only depends on the JDK, and refers to the annotation and the entity types by name, so that
+ * the build can compile it before the sources it processes.
+ */
+@SupportedAnnotationTypes("org.dealership.model.GenerateRowMapper")
+public class RowMapperProcessor extends AbstractProcessor {
+    private static final String HAS_ID = "org.dealership.model.HasID";
+    private static final String VERSIONED = "org.dealership.model.Versioned";
+    private static final String VERSION_COLUMN = "version";
+    private static final String ROW_MAPPER = "org.dealership.repository.RowMapper";
+
+    private enum Kind { LONG, INT, FLOAT, DOUBLE, BOOLEAN, STRING, ENUM, DATE, OBJECT }
+
+    @Override
+    public SourceVersion getSupportedSourceVersion() {
+        return SourceVersion.latestSupported();
+    }
+
+    @Override
+    public boolean process(Set<? extends TypeElement> annotations, RoundEnvironment roundEnv) {
+        for (Element element : roundEnv.getElementsAnnotatedWithAny(annotations.toArray(new TypeElement[0]))) {
+            if (element.getKind() != ElementKind.CLASS) {
+                error(element, "@GenerateRowMapper only applies to classes");
+                continue;
+            }
+            TypeElement type = (TypeElement) element;
+            List<MappedColumn> columns = collectColumns(type);
+            if (columns != null) {
+                write(type, columns);
+            }
+        }
+        return true;
+    }
+
+    // Returns null after reporting an error
+    private List<MappedColumn> collectColumns(TypeElement type) {
+        Types types = processingEnv.getTypeUtils();
+        TypeMirror collection = types.erasure(processingEnv.getElementUtils().getTypeElement("java.util.Collection").asType());
+        TypeMirror hasId = processingEnv.getElementUtils().getTypeElement(HAS_ID).asType();
+        TypeMirror date = processingEnv.getElementUtils().getTypeElement("java.util.Date").asType();
+        String idColumn = type.getSimpleName().toString().toLowerCase() + "_id";
+
+        if (!types.isAssignable(type.asType(), hasId)) {
+            error(type, type.getSimpleName() + " must implement HasID to get a row mapper");
+            return null;
+        }
+        boolean hasConstructor = false;
+        for (ExecutableElement constructor : ElementFilter.constructorsIn(type.getEnclosedElements())) {
+            hasConstructor |= constructor.getParameters().isEmpty() && constructor.getModifiers().contains(Modifier.PUBLIC);
+        }
+        if (!hasConstructor) {
+            error(type, type.getSimpleName() + " needs a public no-argument constructor");
+            return null;
+        }
+
+        List<ExecutableElement> methods = ElementFilter.methodsIn(processingEnv.getElementUtils().getAllMembers(type));
+        List<MappedColumn> columns = new ArrayList<>();
+        Set<String> addedColumns = new HashSet<>();
+        boolean valid = true;
+        // Same traversal and exclusions as EntityMapper, so the column sets match
+        for (TypeElement current = type; current != null && !current.getQualifiedName().contentEquals("java.lang.Object");
+             current = superclassOf(current)) {
+            for (VariableElement field : ElementFilter.fieldsIn(current.getEnclosedElements())) {
+                TypeMirror fieldType = field.asType();
+                if (field.getModifiers().contains(Modifier.STATIC)
+                        || types.isAssignable(types.erasure(fieldType), collection)
+                        || types.isAssignable(fieldType, hasId)) {
+                    continue;
+                }
+                String fieldName = field.getSimpleName().toString();
+                String columnName = toSnakeCase(fieldName);
+                if (!addedColumns.add(columnName)) {
+                    continue;
+                }
+                boolean isId = columnName.equals(idColumn);
+                String suffix = isId ? "Id" : capitalize(fieldName);
+                ExecutableElement getter = findGetter(methods, suffix, fieldType);
+                ExecutableElement setter = findSetter(methods, suffix, fieldType);
+                if (getter == null || setter == null) {
+                    error(field, "@GenerateRowMapper needs public get" + suffix + "() and set" + suffix
+                            + "(...) accessors compatible with " + fieldType);
+                    valid = false;
+                    continue;
+                }
+                columns.add(new MappedColumn(columnName, fieldType, kindOf(fieldType, date), isId,
+                        getter.getSimpleName().toString(), setter.getSimpleName().toString()));
+            }
+        }
+        if (columns.isEmpty()) {
+            error(type, "No fields available for mapping in " + type.getSimpleName());
+            return null;
+        }
+        return valid ? columns : null;
+    }
+
+    private TypeElement superclassOf(TypeElement type) {
+        TypeMirror superclass = type.getSuperclass();
+        return superclass.getKind() == TypeKind.DECLARED ? (TypeElement) ((DeclaredType) superclass).asElement() : null;
+    }
+
+    private ExecutableElement findGetter(List<ExecutableElement> methods, String suffix, TypeMirror fieldType) {
+        Types types = processingEnv.getTypeUtils();
+        for (ExecutableElement method : methods) {
+            String name = method.getSimpleName().toString();
+            if ((name.equals("get" + suffix) || name.equals("is" + suffix)) && method.getParameters().isEmpty()
+                    && isAccessible(method) && types.isAssignable(method.getReturnType(), fieldType)) {
+                return method;
+            }
+        }
+        return null;
+    }
+
+    private ExecutableElement findSetter(List<ExecutableElement> methods, String suffix, TypeMirror fieldType) {
+        Types types = processingEnv.getTypeUtils();
+        for (ExecutableElement method : methods) {
+            if (method.getSimpleName().contentEquals("set" + suffix) && method.getParameters().size() == 1
+                    && isAccessible(method) && types.isAssignable(fieldType, method.getParameters().get(0).asType())) {
+                return method;
+            }
+        }
+        return null;
+    }
+
+    private static boolean isAccessible(ExecutableElement method) {
+        return method.getModifiers().contains(Modifier.PUBLIC) && !method.getModifiers().contains(Modifier.STATIC);
+    }
+
+    private Kind kindOf(TypeMirror type, TypeMirror date) {
+        switch (type.getKind()) {
+            case LONG:
+                return Kind.LONG;
+            case INT:
+                return Kind.INT;
+            case FLOAT:
+                return Kind.FLOAT;
+            case DOUBLE:
+                return Kind.DOUBLE;
+            case BOOLEAN:
+                return Kind.BOOLEAN;
+            case DECLARED:
+                Element element = ((DeclaredType) type).asElement();
+                if (element.getKind() == ElementKind.ENUM) {
+                    return Kind.ENUM;
+                }
+                if (((TypeElement) element).getQualifiedName().contentEquals("java.lang.String")) {
+                    return Kind.STRING;
+                }
+                if (processingEnv.getTypeUtils().isAssignable(type, date)) {
+                    return Kind.DATE;
+                }
+                return Kind.OBJECT;
+            default:
+                return Kind.OBJECT;
+        }
+    }
+
+    private void write(TypeElement type, List<MappedColumn> columns) {
+        String packageName = processingEnv.getElementUtils().getPackageOf(type).getQualifiedName().toString();
+        String entity = type.getSimpleName().toString();
+        String mapperName = entity + "RowMapper";
+        if (columns.stream().noneMatch(column -> column.isId)) {
+            error(type, entity + " has no id field " + entity.toLowerCase() + "Id");
+            return;
+        }
+
+        StringBuilder src = new StringBuilder();
+        if (!packageName.isEmpty()) {
+            src.append("package ").append(packageName).append(";\n\n");
+        }
+        src.append("import java.sql.PreparedStatement;\n")
+                .append("import java.sql.ResultSet;\n")
+                .append("import java.sql.SQLException;\n")
+                .append("import java.util.List;\n\n");
+        src.append("@javax.annotation.processing.Generated(\"").append(getClass().getName()).append("\")\n")
+                .append("public final class ").append(mapperName)
+                .append(" implements ").append(ROW_MAPPER).append('<').append(entity).append("> {\n");
+
+        StringJoiner names = new StringJoiner(", ");
+        for (MappedColumn column : columns) {
+            names.add('"' + column.name + '"');
+        }
+        src.append("    private static final List<String> COLUMNS = List.of(").append(names).append(");\n");
+        for (MappedColumn column : columns) {
+            if (column.kind == Kind.ENUM) {
+                String constant = constantName(column);
+                src.append("    private static final ").append(column.type).append("[] ").append(constant)
+                        .append("_VALUES = ").append(column.type).append(".values();\n")
+                        .append("    private static final String[] ").append(constant).append("_LABELS = ")
+                        .append(ROW_MAPPER).append(".enumLabels(").append(constant).append("_VALUES);\n");
+            }
+        }
+
+        src.append("\n    @Override\n    public List<String> columnNames() {\n        return COLUMNS;\n    }\n");
+
+        src.append("\n    @Override\n    public void bindInsert(PreparedStatement stmt, ").append(entity)
+                .append(" entity) throws SQLException {\n");
+        int index = 1;
+        for (MappedColumn column : columns) {
+            appendBind(src, column, index++);
+        }
+        src.append("    }\n");
+
+        src.append("\n    @Override\n    public void bindUpdate(PreparedStatement stmt, ").append(entity)
+                .append(" entity) throws SQLException {\n");
+        // Same parameter order as EntityMapper's update SQL: changed columns, id, then the expected version
+        boolean versioned = processingEnv.getTypeUtils().isAssignable(type.asType(),
+                processingEnv.getElementUtils().getTypeElement(VERSIONED).asType());
+        index = 1;
+        for (MappedColumn column : columns) {
+            if (!column.isId && !(versioned && column.name.equals(VERSION_COLUMN))) {
+                appendBind(src, column, index++);
+            }
+        }
+        src.append("        stmt.setLong(").append(index++).append(", entity.getId());\n");
+        if (versioned) {
+            src.append("        stmt.setLong(").append(index).append(", entity.getVersion());\n");
+        }
+        src.append("    }\n");
+
+        src.append("\n    @Override\n    public ").append(entity)
+                .append(" read(ResultSet rs, int[] indexes) throws SQLException {\n")
+                .append("        ").append(entity).append(" entity = new ").append(entity).append("();\n");
+        for (int i = 0; i < columns.size(); i++) {
+            appendRead(src, columns.get(i), "indexes[" + i + "]");
+        }
+        src.append("        return entity;\n    }\n}\n");
+
+        try (Writer writer = processingEnv.getFiler()
+                .createSourceFile((packageName.isEmpty() ? "" : packageName + ".") + mapperName, type)
+                .openWriter()) {
+            writer.write(src.toString());
+        } catch (IOException e) {
+            error(type, "Cannot write " + mapperName + ": " + e.getMessage());
+        }
+    }
+
+    private static void appendBind(StringBuilder src, MappedColumn column, int index) {
+        String value = "entity." + column.getter + "()";
+        src.append("        ");
+        switch (column.kind) {
+            case LONG:
+                src.append("stmt.setLong(").append(index).append(", ").append(value).append(");\n");
+                break;
+            case INT:
+                src.append("stmt.setInt(").append(index).append(", ").append(value).append(");\n");
+                break;
+            case FLOAT:
+                src.append("stmt.setFloat(").append(index).append(", ").append(value).append(");\n");
+                break;
+            case DOUBLE:
+                src.append("stmt.setDouble(").append(index).append(", ").append(value).append(");\n");
+                break;
+            case BOOLEAN:
+                src.append("stmt.setBoolean(").append(index).append(", ").append(value).append(");\n");
+                break;
+            case STRING:
+                src.append("stmt.setString(").append(index).append(", ").append(value).append(");\n");
+                break;
+            case ENUM:
+                src.append("{\n            ").append(column.type).append(" value = ").append(value).append(";\n")
+                        .append("            stmt.setString(").append(index).append(", value == null ? null : ")
+                        .append(constantName(column)).append("_LABELS[value.ordinal()]);\n        }\n");
+                break;
+            case DATE:
+                src.append("{\n            java.util.Date value = ").append(value).append(";\n")
+                        .append("            stmt.setTimestamp(").append(index)
+                        .append(", value == null ? null : new java.sql.Timestamp(value.getTime()));\n        }\n");
+                break;
+            default:
+                src.append("stmt.setObject(").append(index).append(", ").append(value).append(");\n");
+        }
+    }
+
+    private static void appendRead(StringBuilder src, MappedColumn column, String index) {
+        String value;
+        switch (column.kind) {
+            case LONG:
+                value = "rs.getLong(" + index + ")";
+                break;
+            case INT:
+                value = "rs.getInt(" + index + ")";
+                break;
+            case FLOAT:
+                value = "rs.getFloat(" + index + ")";
+                break;
+            case DOUBLE:
+                value = "rs.getDouble(" + index + ")";
+                break;
+            case BOOLEAN:
+                value = "rs.getBoolean(" + index + ")";
+                break;
+            case STRING:
+                value = "rs.getString(" + index + ")";
+                break;
+            case ENUM:
+                value = ROW_MAPPER + ".toEnum(" + constantName(column) + "_VALUES, rs.getString(" + index + "))";
+                break;
+            case DATE:
+                value = "rs.getTimestamp(" + index + ")";
+                break;
+            default:
+                value = "(" + column.type + ") rs.getObject(" + index + ")";
+        }
+        src.append("        entity.").append(column.setter).append('(').append(value).append(");\n");
+    }
+
+    private static String constantName(MappedColumn column) {
+        return column.name.toUpperCase();
+    }
+
+    // Must stay in line with EntityMapper.toSnakeCase
+    static String toSnakeCase(String camelCase) {
+        StringBuilder sb = new StringBuilder(camelCase.length() + 4);
+        for (int i = 0; i < camelCase.length(); i++) {
+            char c = camelCase.charAt(i);
+            if (i > 0 && Character.isUpperCase(c) && Character.isLowerCase(camelCase.charAt(i - 1))) {
+                sb.append('_');
+            }
+            sb.append(Character.toLowerCase(c));
+        }
+        return sb.toString();
+    }
+
+    private static String capitalize(String name) {
+        return Character.toUpperCase(name.charAt(0)) + name.substring(1);
+    }
+
+    private void error(Element element, String message) {
+        processingEnv.getMessager().printMessage(Diagnostic.Kind.ERROR, message, element);
+    }
+
+    private static final class MappedColumn {
+        final String name;
+        final TypeMirror type;
+        final Kind kind;
+        final boolean isId;
+        final String getter;
+        final String setter;
+
+        MappedColumn(String name, TypeMirror type, Kind kind, boolean isId, String getter, String setter) {
+            this.name = name;
+            this.type = type;
+            this.kind = kind;
+            this.isId = isId;
+            this.getter = getter;
+            this.setter = setter;
+        }
+    }
+}
@@ -2,16 +2,24 @@ package org.dealership.service;
 
 import org.dealership.model.Car;
 import org.dealership.model.enums.CarStatus;
+import org.dealership.repository.Criteria;
 import org.dealership.repository.DBRepository;
+import org.dealership.repository.IRepository;
+import org.dealership.repository.Sort;
 import org.dealership.repository.entityRepos.CarRepository;
 
 import org.dealership.exceptions.BusinessLogicException;
 import org.dealership.exceptions.DatabaseException;
 import org.dealership.exceptions.EntityNotFoundException;
+import org.dealership.exceptions.OptimisticLockException;
 import org.dealership.exceptions.ValidationException;
 
+import java.util.Collection;
+import java.util.EnumMap;
+import java.util.LinkedHashMap;
 import java.util.List;
-import java.util.stream.Collectors;
+import java.util.Map;
+import java.util.function.Consumer;
 
 /**
  * Service class for managing {@link Car} entities.
@@ -19,6 +27,8 @@ import java.util.stream.Collectors;
  * and updating cars, as well as marking cars as sold or leased.
  */
 public class CarService {
+    private static final int UPDATE_ATTEMPTS = 3;
+
     private final CarRepository carRepository;
     private final DBRepository<Car> dbCarRepository;
 
@@ -27,20 +37,35 @@ public class CarService {
         this.dbCarRepository = dbCarRepository;
     }
 
+    // Queries and status transitions go to the database when it is configured, otherwise to the file repository
+    private IRepository<Car> queryRepository() {
+        return dbCarRepository != null ? dbCarRepository : carRepository;
+    }
+
     public void addCar(Car car) {
         carRepository.create(car);
     }
     public List<Car> getAllCars() {
         return carRepository.readAll();
     }
+    /**
+     * Retrieves a page of cars ordered by ID.
+     *
+     * @param afterId the ID of the last car on the previous page, or 0 for the first page
+     * @param limit   the maximum number of cars to return
+     * @return up to {@code limit} cars with an ID greater than {@code afterId}
+     */
+    public List<Car> getCarsPage(long afterId, int limit) {
+        return carRepository.readPage(afterId, limit);
+    }
     public List<Car> getAvailableCars() {
-        return carRepository.findAvailableCars();
+        return queryRepository().find(Criteria.eq("status", CarStatus.AVAILABLE));
     }
     public List<Car> getSoldCars() {
-        return carRepository.findSoldCars();
+        return queryRepository().find(Criteria.eq("status", CarStatus.SOLD));
     }
     public List<Car> getLeasedCars() {
-        return carRepository.findLeasedCars();
+        return queryRepository().find(Criteria.eq("status", CarStatus.LEASED));
     }
 
     /**
@@ -50,11 +75,7 @@ public class CarService {
      * @throws IllegalArgumentException if the car is not available or does not exist
      */
     public void markCarAsSold(long carId) {
-        Car car = carRepository.read(carId);
-        if (car != null && car.getStatus() == CarStatus.AVAILABLE) {
-            car.setStatus(CarStatus.SOLD);
-            carRepository.update(car);
-        } else {
+        if (!transitionStatus(carId, CarStatus.AVAILABLE, CarStatus.SOLD)) {
             throw new IllegalArgumentException("Car not available for selling.");
         }
     }
@@ -66,15 +87,67 @@ public class CarService {
      * @throws IllegalArgumentException if the car is not available or does not exist
      */
     public void markCarAsLeased(long carId) {
-        Car car = carRepository.read(carId);
-        if (car != null && car.getStatus() == CarStatus.AVAILABLE) {
-            car.setStatus(CarStatus.LEASED);
-            carRepository.update(car);
-        } else {
+        if (!transitionStatus(carId, CarStatus.AVAILABLE, CarStatus.LEASED)) {
             throw new IllegalArgumentException("Car not available for leasing..");
         }
     }
 
+    /**
+     * Atomically changes a car's status, provided it currently has the expected status.
+     * When two callers race to sell the same car, only one of them succeeds.
+     *
+     * @param carId the ID of the car
+     * @param from  the status the car must currently have
+     * @param to    the new status
+     * @return {@code true} if the car existed, had status {@code from} and now has status {@code to}
+     */
+    public boolean transitionStatus(long carId, CarStatus from, CarStatus to) {
+        return queryRepository().compareAndSet(carId, "status", from, to);
+    }
+
+    /**
+     * Applies a change to the latest state of a car and saves it. If another session updated the car
+     * in the meantime, the car is read again and the change reapplied, up to {@value #UPDATE_ATTEMPTS} times.
+     * Every attempt works on its own copy: reads never hand out the cached instance, and a conflict
+     * evicts the car from the cache, so the retry sees the row as it is now.
+     *
+     * @param carId  the ID of the car
+     * @param change the modification to apply; may run more than once
+     * @return the updated car
+     * @throws IllegalArgumentException if the car does not exist
+     * @throws BusinessLogicException   if the car kept changing concurrently
+     */
+    public Car updateCar(long carId, Consumer<Car> change) {
+        for (int attempt = 1; ; attempt++) {
+            Car car = findCarById(carId);
+            change.accept(car);
+            try {
+                queryRepository().update(car);
+                return car;
+            } catch (OptimisticLockException e) {
+                if (attempt == UPDATE_ATTEMPTS) {
+                    throw new BusinessLogicException("The Car with ID " + carId
+                            + " is being changed by another session, please try again.");
+                }
+            }
+        }
+    }
+
+    /**
+     * Changes the price of a car without overwriting concurrent changes to its other fields.
+     *
+     * @param carId the ID of the car
+     * @param price the new price
+     * @return the updated car
+     * @throws IllegalArgumentException if the price is not positive or the car does not exist
+     */
+    public Car changeCarPrice(long carId, float price) {
+        if (price <= 0) {
+            throw new IllegalArgumentException("The price must be greater than 0.");
+        }
+        return updateCar(carId, car -> car.setPrice(price));
+    }
+
     /**
      * Finds a car by its unique ID.
      *
@@ -83,13 +156,34 @@ public class CarService {
      * @throws IllegalArgumentException if the car does not exist
      */
     public Car findCarById(long carId) {
-        Car car = carRepository.read(carId);
+        Car car = queryRepository().read(carId);
         if (car == null) {
             throw new IllegalArgumentException("The Car with ID " + carId + " does not exist.");
         }
         return car;
     }
 
+    /**
+     * Finds several cars at once, e.g. the cars behind a client's transactions, with a single
+     * query when the database is configured.
+     *
+     * @param carIds the IDs of the cars to find
+     * @return the existing cars by ID, in the order of {@code carIds}
+     */
+    public Map<Long, Car> findCarsByIds(Collection<Long> carIds) {
+        if (dbCarRepository != null) {
+            return dbCarRepository.readAll(carIds);
+        }
+        Map<Long, Car> cars = new LinkedHashMap<>();
+        for (long carId : carIds) {
+            Car car = carRepository.read(carId);
+            if (car != null) {
+                cars.put(carId, car);
+            }
+        }
+        return cars;
+    }
+
     /**
      * Finds cars by their name (brand or model).
      *
@@ -97,10 +191,8 @@ public class CarService {
      * @return a list of {@link Car} entities matching the name
      */
     public List<Car> findCarsByName(String name) {
-        return carRepository.readAll().stream()
-                .filter(car -> car.getModel().toLowerCase().contains(name.toLowerCase()) ||
-                        car.getBrand().toLowerCase().contains(name.toLowerCase()))
-                .collect(Collectors.toList());
+        return queryRepository().find(Criteria.containsIgnoreCase("model", name)
+                .or(Criteria.containsIgnoreCase("brand", name)));
     }
 
     /**
@@ -110,9 +202,7 @@ public class CarService {
      * @return a list of {@link Car} entities newer than the specified year
      */
     public List<Car> getCarsNewerThan(int year) {
-        return carRepository.readAll().stream()
-                .filter(car -> car.getYear() > year)
-                .collect(Collectors.toList());
+        return queryRepository().find(Criteria.gt("year", year));
     }
 
     /**
@@ -122,9 +212,7 @@ public class CarService {
      * @return a list of {@link Car} entities within the budget
      */
     public List<Car> getCarsWithinBudget(float maxBudget) {
-        return carRepository.readAll().stream() // Read all cars
-                .filter(car -> car.getPrice() <= maxBudget) // Filter cars within the budget
-                .collect(Collectors.toList());
+        return queryRepository().find(Criteria.le("price", maxBudget));
     }
 
     /**
@@ -133,9 +221,7 @@ public class CarService {
      * @return a list of {@link Car} entities sorted by year
      */
     public List<Car> getCarsSortedByYearAscending() {
-        List<Car> cars = carRepository.readAll();
-        cars.sort((car1, car2) -> Integer.compare(car1.getYear(), car2.getYear()));
-        return cars;
+        return queryRepository().find(Criteria.all(), Sort.asc("year"), 0, 0);
     }
 
     /**
@@ -144,15 +230,62 @@ public class CarService {
      * @return a list of {@link Car} entities sorted by price
      */
     public List<Car> getCarsSortedByPriceAscending() {
-        List<Car> cars = carRepository.readAll();
-        cars.sort((car1, car2) -> Float.compare(car1.getPrice(), car2.getPrice()));
-        return cars;
+        return queryRepository().find(Criteria.all(), Sort.asc("price"), 0, 0);
+    }
+
+    /**
+     * Retrieves the cheapest available cars.
+     *
+     * @param limit the maximum number of cars to return
+     * @return up to {@code limit} available {@link Car} entities, cheapest first
+     */
+    public List<Car> getCheapestAvailableCars(int limit) {
+        return queryRepository().find(Criteria.eq("status", CarStatus.AVAILABLE), Sort.asc("price"), 0, limit);
+    }
+
+    /**
+     * Counts the cars in each status without loading them.
+     *
+     * @return the number of cars per {@link CarStatus}, with 0 for statuses that have no cars;
+     *         cars without a status are not counted
+     */
+    public Map<CarStatus, Long> countCarsByStatus() {
+        Map<CarStatus, Long> counts = new EnumMap<>(CarStatus.class);
+        for (CarStatus status : CarStatus.values()) {
+            counts.put(status, 0L);
+        }
+        queryRepository().groupCount("status").forEach((status, count) -> {
+            // cars.status is nullable, and an EnumMap has no null key
+            if (status != null) {
+                counts.put((CarStatus) status, count);
+            }
+        });
+        return counts;
+    }
+
+    /**
+     * Sums the prices of the cars still available, without loading them.
+     *
+     * @return the total price of the available inventory
+     */
+    public double getAvailableInventoryValue() {
+        return queryRepository().sum("price", Criteria.eq("status", CarStatus.AVAILABLE));
     }
 
     public void deleteCarFromDB(long carId) {
         dbCarRepository.delete(carId);
     }
 
+    /**
+     * Deletes several cars from the database in a single statement.
+     *
+     * @param carIds the IDs of the cars to delete
+     * @return the number of deleted cars
+     */
+    public int deleteCarsFromDB(Collection<Long> carIds) {
+        return dbCarRepository.deleteAll(carIds);
+    }
+
 
     public void deleteCar(long carId) {
         carRepository.delete(carId);
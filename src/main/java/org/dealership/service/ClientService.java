@@ -32,7 +32,8 @@ public class ClientService {
      * @throws IllegalArgumentException if the client does not exist
      */
     public Client findClientById(long clientId) {
-        Client client = clientRepository.read(clientId);
+        // Read through the database repository and its cache when it is configured
+        Client client = dbClientRepo != null ? dbClientRepo.read(clientId) : clientRepository.read(clientId);
         if (client == null) {
             throw new IllegalArgumentException("The Client with ID " + clientId + " does not exist.");
         }
@@ -59,6 +60,17 @@ public class ClientService {
         return clientRepository.readAll();
     }
 
+    /**
+     * Retrieves a page of clients ordered by ID.
+     *
+     * @param afterId the ID of the last client on the previous page, or 0 for the first page
+     * @param limit   the maximum number of clients to return
+     * @return up to {@code limit} clients with an ID greater than {@code afterId}
+     */
+    public List<Client> getClientsPage(long afterId, int limit) {
+        return clientRepository.readPage(afterId, limit);
+    }
+
 
     public void deleteClient(long clientId) {
         Client client = findClientById(clientId);
@@ -1,23 +1,45 @@
 package org.dealership.service;
 
+import org.dealership.exceptions.BusinessLogicException;
+import org.dealership.model.Car;
 import org.dealership.model.Client;
 import org.dealership.model.Employee;
 import org.dealership.model.Leasing;
+import org.dealership.model.LeasingParties;
+import org.dealership.model.Transaction;
+import org.dealership.model.enums.CarStatus;
+import org.dealership.model.enums.TransactionType;
+import org.dealership.repository.AsyncRepository;
+import org.dealership.repository.Criteria;
 import org.dealership.repository.DBRepository;
+import org.dealership.repository.UnitOfWork;
 import org.dealership.repository.entityRepos.LeasingRepository;
 
+import java.util.Date;
 import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
 
 /**
  * Service class for managing {@link Leasing} contracts.
  * This class provides business logic for adding, retrieving, and managing leasing contracts,
  * leveraging the {@link LeasingManager} for calculations.
+ * With database repositories, close the service to stop the threads running its lookups.
  */
-public class LeasingService {
+public class LeasingService implements AutoCloseable {
     private final LeasingRepository leasingRepository;
     private final LeasingManager leasingManager;
     private final DBRepository<Leasing> dbLeasingRepo;
+    private final DBRepository<Car> dbCarRepo;
+    private final DBRepository<Transaction> dbTransactionRepo;
 
+    // Database lookups that can run concurrently, each on its own virtual thread; null without database repositories
+    private final ExecutorService lookups;
+    private final AsyncRepository<Car> asyncCarRepo;
+    private final AsyncRepository<Client> asyncClientRepo;
+    private final AsyncRepository<Leasing> asyncLeasingRepo;
 
     /**
      * Constructs a new {@code LeasingService} with the specified repository and manager.
@@ -26,9 +48,92 @@ public class LeasingService {
      * @param leasingManager    the manager responsible for leasing calculations
      */
     public LeasingService(LeasingRepository leasingRepository, LeasingManager leasingManager, LeasingManagerImpl leasingManagerImpl, DBRepository<Leasing> dbLeasingRepo) {
+        this(leasingRepository, leasingManager, leasingManagerImpl, dbLeasingRepo, null, null, null);
+    }
+
+    /**
+     * Constructs a {@code LeasingService} that can also record leasings in the database together with
+     * the car status change and the matching transaction, see {@link #leaseCarInDB}, and load the
+     * parties of a new contract, see {@link #loadLeasingParties}.
+     */
+    public LeasingService(LeasingRepository leasingRepository, LeasingManager leasingManager, LeasingManagerImpl leasingManagerImpl,
+                          DBRepository<Leasing> dbLeasingRepo, DBRepository<Car> dbCarRepo, DBRepository<Client> dbClientRepo,
+                          DBRepository<Transaction> dbTransactionRepo) {
         this.leasingRepository = leasingRepository;
         this.leasingManager = leasingManager;
         this.dbLeasingRepo = dbLeasingRepo;
+        this.dbCarRepo = dbCarRepo;
+        this.dbTransactionRepo = dbTransactionRepo;
+
+        this.lookups = dbCarRepo != null || dbClientRepo != null || dbLeasingRepo != null
+                ? Executors.newVirtualThreadPerTaskExecutor() : null;
+        this.asyncCarRepo = dbCarRepo != null ? new AsyncRepository<>(dbCarRepo, lookups) : null;
+        this.asyncClientRepo = dbClientRepo != null ? new AsyncRepository<>(dbClientRepo, lookups) : null;
+        this.asyncLeasingRepo = dbLeasingRepo != null ? new AsyncRepository<>(dbLeasingRepo, lookups) : null;
+    }
+
+    /**
+     * Loads the car and client of a new leasing contract and the client's existing contracts from the
+     * database. The three queries run concurrently, so the wait is that of the slowest one rather than
+     * of all three in turn.
+     *
+     * @param carId    the ID of the car to lease
+     * @param clientId the ID of the client
+     * @return the car, the client and the client's contracts
+     * @throws IllegalArgumentException if the car or the client does not exist
+     * @throws org.dealership.exceptions.DatabaseException if a query fails
+     */
+    public LeasingParties loadLeasingParties(long carId, long clientId) {
+        CompletableFuture<Car> car = asyncCarRepo.read(carId);
+        CompletableFuture<Client> client = asyncClientRepo.read(clientId);
+        CompletableFuture<List<Leasing>> leasings = asyncLeasingRepo.find(Criteria.eq("clientId", clientId));
+        try {
+            CompletableFuture.allOf(car, client, leasings).join();
+        } catch (CompletionException e) {
+            if (e.getCause() instanceof RuntimeException cause) {
+                throw cause;
+            }
+            throw e;
+        }
+
+        if (car.join() == null) {
+            throw new IllegalArgumentException("The Car with ID " + carId + " does not exist.");
+        }
+        if (client.join() == null) {
+            throw new IllegalArgumentException("The Client with ID " + clientId + " does not exist.");
+        }
+        return new LeasingParties(car.join(), client.join(), leasings.join());
+    }
+
+    /**
+     * Records a leasing contract in the database as a single unit of work: the car is moved from
+     * {@link CarStatus#AVAILABLE} to {@link CarStatus#LEASED}, the contract is inserted and a
+     * {@link TransactionType#LEASED} transaction is recorded, all on one connection and committed once.
+     *
+     * @param leasing       the contract to record; its car and client must be set
+     * @param transactionId the ID of the transaction to record
+     * @return the recorded transaction
+     * @throws BusinessLogicException if the car is not available; nothing is written in that case
+     * @throws org.dealership.exceptions.DatabaseException if a statement fails; nothing is written in that case
+     */
+    public Transaction leaseCarInDB(Leasing leasing, long transactionId) {
+        long carId = leasing.getCar().getId();
+        long clientId = leasing.getClient().getId();
+        leasing.setCarId(carId);
+        leasing.setClientId(clientId);
+        Transaction transaction = new Transaction(transactionId, carId, clientId, TransactionType.LEASED, new Date());
+
+        try (UnitOfWork work = UnitOfWork.begin(dbLeasingRepo.getConnectionPool())) {
+            // Claim the car first so a concurrent lease of the same car fails before anything is inserted
+            if (!work.compareAndSet(dbCarRepo, carId, "status", CarStatus.AVAILABLE, CarStatus.LEASED)) {
+                throw new BusinessLogicException("Car not available for leasing.");
+            }
+            work.insert(dbLeasingRepo, leasing);
+            work.insert(dbTransactionRepo, transaction);
+            work.commit();
+        }
+        leasing.getCar().setStatus(CarStatus.LEASED);
+        return transaction;
     }
 
 
@@ -149,4 +254,14 @@ public class LeasingService {
     public List<Leasing> getAllLeasings() {
         return leasingRepository.readAll();
     }
-}
\ No newline at end of file
+
+    /**
+     * Waits for running database lookups to finish and stops their executor.
+     */
+    @Override
+    public void close() {
+        if (lookups != null) {
+            lookups.close();
+        }
+    }
+}
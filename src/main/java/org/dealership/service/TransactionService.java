@@ -2,7 +2,9 @@ package org.dealership.service;
 
 import org.dealership.model.Transaction;
 import org.dealership.model.enums.TransactionType;
+import org.dealership.repository.Criteria;
 import org.dealership.repository.DBRepository;
+import org.dealership.repository.IRepository;
 import org.dealership.repository.entityRepos.TransactionRepository;
 
 import java.util.List;
@@ -29,7 +31,29 @@ public class TransactionService {
         return transactionRepository.findByType(type);
     }
 
+    /**
+     * Counts the transactions of a specific type without loading them.
+     *
+     * @param type the {@link TransactionType} to count
+     * @return the number of transactions of that type
+     */
+    public long countTransactionsByType(TransactionType type) {
+        IRepository<Transaction> repository = dbTransactionRepo != null ? dbTransactionRepo : transactionRepository;
+        return repository.count(Criteria.eq("transactionType", type));
+    }
+
     public List<Transaction> getAllTransactions() {
         return transactionRepository.readAll();
     }
+
+    /**
+     * Retrieves a page of transactions ordered by ID.
+     *
+     * @param afterId the ID of the last transaction on the previous page, or 0 for the first page
+     * @param limit   the maximum number of transactions to return
+     * @return up to {@code limit} transactions with an ID greater than {@code afterId}
+     */
+    public List<Transaction> getTransactionsPage(long afterId, int limit) {
+        return transactionRepository.readPage(afterId, limit);
+    }
 }
\ No newline at end of file
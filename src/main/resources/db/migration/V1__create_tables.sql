@@ -0,0 +1,43 @@
+-- Tables backing the DBRepository entities
+CREATE TABLE IF NOT EXISTS cars (
+    car_id      BIGINT PRIMARY KEY,
+    brand       VARCHAR(100),
+    model       VARCHAR(100),
+    year        INTEGER,
+    price       REAL,
+    mileage     INTEGER,
+    status      VARCHAR(20)
+);
+
+CREATE TABLE IF NOT EXISTS clients (
+    client_id   BIGINT PRIMARY KEY,
+    first_name  VARCHAR(100),
+    last_name   VARCHAR(100),
+    cnp         VARCHAR(20)
+);
+
+CREATE TABLE IF NOT EXISTS employees (
+    employee_id BIGINT PRIMARY KEY,
+    first_name  VARCHAR(100),
+    last_name   VARCHAR(100),
+    cnp         VARCHAR(20),
+    role        VARCHAR(50)
+);
+
+CREATE TABLE IF NOT EXISTS leasings (
+    leasing_id      BIGINT PRIMARY KEY,
+    car_id          BIGINT,
+    client_id       BIGINT,
+    duration_months INTEGER,
+    monthly_rate    REAL,
+    interest_rate   REAL,
+    total_amount    REAL
+);
+
+CREATE TABLE IF NOT EXISTS transactions (
+    transaction_id   BIGINT PRIMARY KEY,
+    car_id           BIGINT,
+    client_id        BIGINT,
+    transaction_type VARCHAR(20),
+    transaction_date TIMESTAMP
+);
@@ -0,0 +1,7 @@
+-- Indexes for the non-primary-key access paths
+CREATE INDEX IF NOT EXISTS idx_cars_status ON cars (status);
+CREATE INDEX IF NOT EXISTS idx_cars_price ON cars (price);
+CREATE INDEX IF NOT EXISTS idx_cars_year ON cars (year);
+CREATE INDEX IF NOT EXISTS idx_leasings_client_id ON leasings (client_id);
+CREATE INDEX IF NOT EXISTS idx_leasings_car_id ON leasings (car_id);
+CREATE INDEX IF NOT EXISTS idx_transactions_type_date ON transactions (transaction_type, transaction_date);
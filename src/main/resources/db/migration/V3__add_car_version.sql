@@ -0,0 +1,2 @@
+-- Version column for optimistic concurrency control of car updates
+ALTER TABLE cars ADD COLUMN IF NOT EXISTS version BIGINT NOT NULL DEFAULT 0;
@@ -0,0 +1,143 @@
+package org.dealership.repository;
+
+import org.dealership.model.Car;
+import org.dealership.model.enums.CarStatus;
+import org.dealership.repository.parsers.CarParser;
+import org.dealership.service.CarService;
+import org.junit.Test;
+
+import java.io.File;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.util.Map;
+
+import static org.junit.Assert.*;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.*;
+
+public class AggregateTest {
+
+    private static void addCars(IRepository<Car> repository) {
+        repository.create(new Car(0, "Audi", "A4", 2020, 30000, 0, CarStatus.AVAILABLE));
+        repository.create(new Car(0, "BMW", "X5", 2021, 50000, 0, CarStatus.AVAILABLE));
+        repository.create(new Car(0, "Dacia", "Logan", 2018, 8000, 0, CarStatus.SOLD));
+    }
+
+    private static void assertAggregates(IRepository<Car> repository) {
+        assertEquals(2, repository.count(Criteria.eq("status", CarStatus.AVAILABLE)));
+        assertEquals(3, repository.count(Criteria.all()));
+
+        Map<Object, Long> byStatus = repository.groupCount("status");
+        assertEquals(Long.valueOf(2), byStatus.get(CarStatus.AVAILABLE));
+        assertEquals(Long.valueOf(1), byStatus.get(CarStatus.SOLD));
+        assertNull(byStatus.get(CarStatus.LEASED));
+
+        assertEquals(80000, repository.sum("price", Criteria.eq("status", CarStatus.AVAILABLE)), 0.001);
+        assertEquals(0, repository.sum("price", Criteria.eq("status", CarStatus.LEASED)), 0.001);
+    }
+
+    @Test
+    public void testInMemoryAggregates() {
+        InMemoryRepository<Car> repository = new InMemoryRepository<>();
+        addCars(repository);
+        assertAggregates(repository);
+    }
+
+    @Test
+    public void testFileAggregates() throws Exception {
+        File file = File.createTempFile("cars", ".txt");
+        file.deleteOnExit();
+        FileRepository<Car> repository = new FileRepository<>(file, new CarParser());
+        addCars(repository);
+        assertAggregates(repository);
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testSumOfNonNumericFieldFails() {
+        InMemoryRepository<Car> repository = new InMemoryRepository<>();
+        addCars(repository);
+        repository.sum("brand", Criteria.all());
+    }
+
+    @Test
+    public void testDBCountRunsOnTheServer() throws Exception {
+        ConnectionPool pool = mock(ConnectionPool.class);
+        Connection connection = mock(Connection.class);
+        PreparedStatement statement = mock(PreparedStatement.class);
+        ResultSet resultSet = mock(ResultSet.class);
+        when(pool.getConnection()).thenReturn(connection);
+        when(connection.prepareStatement(anyString())).thenReturn(statement);
+        when(statement.executeQuery()).thenReturn(resultSet);
+        when(resultSet.next()).thenReturn(true);
+        when(resultSet.getLong(1)).thenReturn(42L);
+        DBRepository<Car> repository = new DBRepository<>(Car.class, "cars", pool);
+
+        assertEquals(42, repository.count(Criteria.eq("status", CarStatus.AVAILABLE)));
+
+        verify(connection).prepareStatement("SELECT COUNT(*) FROM cars WHERE status = ?");
+        verify(statement).setString(1, "Available");
+        verify(resultSet, never()).getMetaData();
+    }
+
+    @Test
+    public void testDBGroupCountConvertsKeys() throws Exception {
+        ConnectionPool pool = mock(ConnectionPool.class);
+        Connection connection = mock(Connection.class);
+        PreparedStatement statement = mock(PreparedStatement.class);
+        ResultSet resultSet = mock(ResultSet.class);
+        when(pool.getConnection()).thenReturn(connection);
+        when(connection.prepareStatement(anyString())).thenReturn(statement);
+        when(statement.executeQuery()).thenReturn(resultSet);
+        when(resultSet.next()).thenReturn(true, true, false);
+        when(resultSet.getString(1)).thenReturn("Available", "Sold");
+        when(resultSet.getLong(2)).thenReturn(5L, 3L);
+        DBRepository<Car> repository = new DBRepository<>(Car.class, "cars", pool);
+
+        Map<Object, Long> byStatus = repository.groupCount("status");
+
+        verify(connection).prepareStatement("SELECT status, COUNT(*) FROM cars GROUP BY status");
+        assertEquals(2, byStatus.size());
+        assertEquals(Long.valueOf(5), byStatus.get(CarStatus.AVAILABLE));
+        assertEquals(Long.valueOf(3), byStatus.get(CarStatus.SOLD));
+    }
+
+    @Test
+    public void testStatusCountsSkipCarsWithoutStatus() throws Exception {
+        ConnectionPool pool = mock(ConnectionPool.class);
+        Connection connection = mock(Connection.class);
+        PreparedStatement statement = mock(PreparedStatement.class);
+        ResultSet resultSet = mock(ResultSet.class);
+        when(pool.getConnection()).thenReturn(connection);
+        when(connection.prepareStatement(anyString())).thenReturn(statement);
+        when(statement.executeQuery()).thenReturn(resultSet);
+        when(resultSet.next()).thenReturn(true, true, false);
+        when(resultSet.getString(1)).thenReturn("Available", (String) null);
+        when(resultSet.getLong(2)).thenReturn(5L, 2L);
+        CarService carService = new CarService(null, new DBRepository<>(Car.class, "cars", pool));
+
+        Map<CarStatus, Long> counts = carService.countCarsByStatus();
+
+        assertEquals(Long.valueOf(5), counts.get(CarStatus.AVAILABLE));
+        assertEquals(Long.valueOf(0), counts.get(CarStatus.SOLD));
+        assertEquals(CarStatus.values().length, counts.size());
+    }
+
+    @Test
+    public void testDBSumUsesCoalesce() throws Exception {
+        ConnectionPool pool = mock(ConnectionPool.class);
+        Connection connection = mock(Connection.class);
+        PreparedStatement statement = mock(PreparedStatement.class);
+        ResultSet resultSet = mock(ResultSet.class);
+        when(pool.getConnection()).thenReturn(connection);
+        when(connection.prepareStatement(anyString())).thenReturn(statement);
+        when(statement.executeQuery()).thenReturn(resultSet);
+        when(resultSet.next()).thenReturn(true);
+        when(resultSet.getDouble(1)).thenReturn(80000.0);
+        DBRepository<Car> repository = new DBRepository<>(Car.class, "cars", pool);
+
+        assertEquals(80000, repository.sum("price", Criteria.eq("status", CarStatus.AVAILABLE)), 0.001);
+
+        verify(connection).prepareStatement("SELECT COALESCE(SUM(price), 0) FROM cars WHERE status = ?");
+    }
+}
@@ -0,0 +1,118 @@
+package org.dealership.repository;
+
+import org.dealership.model.Car;
+import org.dealership.model.Client;
+import org.dealership.model.Leasing;
+import org.dealership.model.LeasingParties;
+import org.dealership.model.enums.CarStatus;
+import org.dealership.service.LeasingManagerImpl;
+import org.dealership.service.LeasingService;
+import org.junit.Test;
+
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.Mockito.*;
+
+public class AsyncRepositoryTest {
+
+    @Test
+    public void testCallsRunOnVirtualThreads() throws Exception {
+        @SuppressWarnings("unchecked")
+        IRepository<Car> repository = mock(IRepository.class);
+        when(repository.read(anyLong())).thenAnswer(invocation -> {
+            assertTrue(Thread.currentThread().isVirtual());
+            return new Car(invocation.getArgument(0), "Audi", "A4", 2020, 30000, 0, CarStatus.AVAILABLE);
+        });
+
+        try (AsyncRepository<Car> cars = new AsyncRepository<>(repository)) {
+            assertEquals(7L, cars.read(7).get(5, TimeUnit.SECONDS).getId());
+        }
+    }
+
+    @Test
+    public void testIndependentLookupsRunConcurrently() throws Exception {
+        CountDownLatch bothStarted = new CountDownLatch(2);
+        @SuppressWarnings("unchecked")
+        IRepository<Car> repository = mock(IRepository.class);
+        when(repository.read(anyLong())).thenAnswer(invocation -> {
+            bothStarted.countDown();
+            // Only completes if the other lookup is in flight at the same time
+            assertTrue(bothStarted.await(5, TimeUnit.SECONDS));
+            return new Car(invocation.getArgument(0), "Audi", "A4", 2020, 30000, 0, CarStatus.AVAILABLE);
+        });
+
+        try (AsyncRepository<Car> cars = new AsyncRepository<>(repository)) {
+            CompletableFuture<Car> first = cars.read(1);
+            CompletableFuture<Car> second = cars.read(2);
+            CompletableFuture.allOf(first, second).get(10, TimeUnit.SECONDS);
+            assertEquals(1L, first.join().getId());
+            assertEquals(2L, second.join().getId());
+        }
+    }
+
+    @Test
+    public void testFailuresCompleteTheFutureExceptionally() {
+        @SuppressWarnings("unchecked")
+        IRepository<Car> repository = mock(IRepository.class);
+        when(repository.readAll()).thenThrow(new IllegalStateException("offline"));
+
+        try (AsyncRepository<Car> cars = new AsyncRepository<>(repository)) {
+            CompletableFuture<List<Car>> all = cars.readAll();
+            try {
+                all.join();
+                fail("Expected the failure to propagate");
+            } catch (RuntimeException e) {
+                assertTrue(e.getCause() instanceof IllegalStateException);
+            }
+        }
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    public void testLeasingPartiesAreLoadedConcurrently() {
+        CountDownLatch allStarted = new CountDownLatch(3);
+        DBRepository<Car> carRepository = mock(DBRepository.class);
+        DBRepository<Client> clientRepository = mock(DBRepository.class);
+        DBRepository<Leasing> leasingRepository = mock(DBRepository.class);
+        Car car = new Car(3, "Audi", "A4", 2020, 30000, 0, CarStatus.AVAILABLE);
+        Client client = new Client("Ana", "Pop", "2900101000000", 8);
+        Leasing leasing = new Leasing(1L, 3L, 8L, 36, 5);
+        // Each lookup only completes if the other two are in flight at the same time
+        when(carRepository.read(3)).thenAnswer(invocation -> awaitAll(allStarted, car));
+        when(clientRepository.read(8)).thenAnswer(invocation -> awaitAll(allStarted, client));
+        when(leasingRepository.find(any(Criteria.class))).thenAnswer(invocation -> awaitAll(allStarted, List.of(leasing)));
+        LeasingService leasingService = new LeasingService(null, new LeasingManagerImpl(), new LeasingManagerImpl(),
+                leasingRepository, carRepository, clientRepository, null);
+
+        LeasingParties parties = leasingService.loadLeasingParties(3, 8);
+
+        assertSame(car, parties.car());
+        assertSame(client, parties.client());
+        assertEquals(List.of(leasing), parties.leasings());
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    @SuppressWarnings("unchecked")
+    public void testLeasingPartiesRequireAnExistingClient() {
+        DBRepository<Car> carRepository = mock(DBRepository.class);
+        DBRepository<Client> clientRepository = mock(DBRepository.class);
+        DBRepository<Leasing> leasingRepository = mock(DBRepository.class);
+        when(carRepository.read(3)).thenReturn(new Car(3, "Audi", "A4", 2020, 30000, 0, CarStatus.AVAILABLE));
+        LeasingService leasingService = new LeasingService(null, new LeasingManagerImpl(), new LeasingManagerImpl(),
+                leasingRepository, carRepository, clientRepository, null);
+
+        leasingService.loadLeasingParties(3, 8);
+    }
+
+    private static <R> R awaitAll(CountDownLatch allStarted, R result) throws InterruptedException {
+        allStarted.countDown();
+        assertTrue(allStarted.await(5, TimeUnit.SECONDS));
+        return result;
+    }
+}
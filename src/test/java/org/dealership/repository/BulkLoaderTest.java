@@ -0,0 +1,77 @@
+package org.dealership.repository;
+
+import org.dealership.model.Car;
+import org.dealership.model.enums.CarStatus;
+import org.junit.Test;
+import org.postgresql.PGConnection;
+import org.postgresql.copy.CopyIn;
+import org.postgresql.copy.CopyManager;
+
+import java.io.ByteArrayOutputStream;
+import java.nio.charset.StandardCharsets;
+import java.sql.Connection;
+import java.util.Arrays;
+
+import static org.junit.Assert.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.*;
+
+public class BulkLoaderTest {
+
+    @Test
+    public void testCopySqlUsesMappedColumns() {
+        BulkLoader<Car> loader = new BulkLoader<>(Car.class, mock(ConnectionPool.class));
+        // The version column is left to its default
+        assertEquals("COPY cars (car_id, brand, model, year, price, mileage, status) FROM STDIN WITH (FORMAT csv)",
+                loader.getCopySql());
+    }
+
+    @Test
+    public void testCopyRowUsesDatabaseEnumLabels() {
+        BulkLoader<Car> loader = new BulkLoader<>(Car.class, mock(ConnectionPool.class));
+        Car car = new Car(3, "Audi", "A4", 2021, 40000.0f, 10000, CarStatus.AVAILABLE);
+        assertEquals("\"3\",\"Audi\",\"A4\",\"2021\",\"40000.0\",\"10000\",\"Available\"", loader.toCopyRow(car));
+    }
+
+    @Test
+    public void testCopyRowQuotesTextAndLeavesNullsEmpty() {
+        BulkLoader<Car> loader = new BulkLoader<>(Car.class, mock(ConnectionPool.class));
+        Car car = new Car(4, "null", "A4 \"Avant\", 2.0\nTDI", 2021, 40000.0f, 10000, null);
+        assertEquals("\"4\",\"null\",\"A4 \"\"Avant\"\", 2.0\nTDI\",\"2021\",\"40000.0\",\"10000\",",
+                loader.toCopyRow(car));
+    }
+
+    @Test
+    public void testLoadStreamsCarRowsToCopy() throws Exception {
+        ConnectionPool pool = mock(ConnectionPool.class);
+        Connection connection = mock(Connection.class);
+        PGConnection pgConnection = mock(PGConnection.class);
+        CopyManager copyManager = mock(CopyManager.class);
+        CopyIn copyIn = mock(CopyIn.class);
+        when(pool.getConnection()).thenReturn(connection);
+        when(connection.unwrap(PGConnection.class)).thenReturn(pgConnection);
+        when(pgConnection.getCopyAPI()).thenReturn(copyManager);
+        when(copyManager.copyIn(anyString())).thenReturn(copyIn);
+        when(copyIn.isActive()).thenReturn(true);
+        when(copyIn.endCopy()).thenReturn(2L);
+        ByteArrayOutputStream copied = new ByteArrayOutputStream();
+        doAnswer(invocation -> {
+            copied.write(invocation.<byte[]>getArgument(0), invocation.getArgument(1), invocation.getArgument(2));
+            return null;
+        }).when(copyIn).writeToCopy(any(byte[].class), anyInt(), anyInt());
+
+        BulkLoader<Car> loader = new BulkLoader<>(Car.class, pool);
+        long loaded = loader.load(Arrays.asList(
+                new Car(1, "Audi", "A4", 2021, 40000.0f, 10000, CarStatus.AVAILABLE),
+                new Car(2, "BMW", "X5", 2019, 35000.0f, 60000, CarStatus.SOLD)));
+
+        assertEquals(2, loaded);
+        verify(copyManager).copyIn(loader.getCopySql());
+        verify(copyIn, never()).cancelCopy();
+        assertEquals("\"1\",\"Audi\",\"A4\",\"2021\",\"40000.0\",\"10000\",\"Available\"\n"
+                        + "\"2\",\"BMW\",\"X5\",\"2019\",\"35000.0\",\"60000\",\"Sold\"\n",
+                copied.toString(StandardCharsets.UTF_8));
+    }
+}
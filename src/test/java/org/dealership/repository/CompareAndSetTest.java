@@ -0,0 +1,123 @@
+package org.dealership.repository;
+
+import org.dealership.model.Car;
+import org.dealership.model.enums.CarStatus;
+import org.dealership.repository.parsers.CarParser;
+import org.junit.Test;
+
+import java.io.File;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import static org.junit.Assert.*;
+import static org.mockito.Mockito.*;
+
+public class CompareAndSetTest {
+
+    private static Car availableCar(long id) {
+        return new Car(id, "Audi", "A4", 2020, 30000, 0, CarStatus.AVAILABLE);
+    }
+
+    @Test
+    public void testInMemoryOnlyOneConcurrentTransitionWins() throws Exception {
+        InMemoryRepository<Car> repository = new InMemoryRepository<>();
+        repository.create(availableCar(0));
+
+        int attempts = 16;
+        CountDownLatch start = new CountDownLatch(1);
+        ExecutorService executor = Executors.newFixedThreadPool(attempts);
+        List<Future<Boolean>> results = new ArrayList<>();
+        for (int i = 0; i < attempts; i++) {
+            CarStatus target = i % 2 == 0 ? CarStatus.SOLD : CarStatus.LEASED;
+            results.add(executor.submit(() -> {
+                start.await();
+                return repository.compareAndSet(1, "status", CarStatus.AVAILABLE, target);
+            }));
+        }
+        start.countDown();
+        int successes = 0;
+        for (Future<Boolean> result : results) {
+            successes += result.get() ? 1 : 0;
+        }
+        executor.shutdown();
+
+        assertEquals(1, successes);
+        assertNotEquals(CarStatus.AVAILABLE, repository.read(1).getStatus());
+    }
+
+    @Test
+    public void testInMemoryConcurrentCreatesDeletesAndTransitions() throws Exception {
+        InMemoryRepository<Car> repository = new InMemoryRepository<>();
+        int threads = 8;
+        int perThread = 500;
+        CountDownLatch start = new CountDownLatch(1);
+        ExecutorService executor = Executors.newFixedThreadPool(threads);
+        List<Future<?>> results = new ArrayList<>();
+        for (int t = 0; t < threads; t++) {
+            results.add(executor.submit(() -> {
+                start.await();
+                for (int i = 0; i < perThread; i++) {
+                    Car car = availableCar(0);
+                    repository.create(car);
+                    repository.compareAndSet(car.getId(), "status", CarStatus.AVAILABLE, CarStatus.SOLD);
+                    repository.readPage(car.getId() - 10, 5);
+                    if (i % 2 == 0) {
+                        repository.delete(car.getId());
+                    }
+                }
+                return null;
+            }));
+        }
+        start.countDown();
+        for (Future<?> result : results) {
+            result.get();
+        }
+        executor.shutdown();
+
+        List<Car> remaining = repository.readAll();
+        assertEquals(threads * perThread / 2, remaining.size());
+        assertEquals(remaining.size(), repository.count(Criteria.eq("status", CarStatus.SOLD)));
+    }
+
+    @Test
+    public void testInMemoryMissingEntityFails() {
+        assertFalse(new InMemoryRepository<Car>().compareAndSet(1, "status", CarStatus.AVAILABLE, CarStatus.SOLD));
+    }
+
+    @Test
+    public void testFileTransitionIsPersisted() throws Exception {
+        File file = File.createTempFile("cars", ".txt");
+        file.deleteOnExit();
+        FileRepository<Car> repository = new FileRepository<>(file, new CarParser());
+        repository.create(availableCar(3));
+
+        assertTrue(repository.compareAndSet(3, "status", CarStatus.AVAILABLE, CarStatus.SOLD));
+        assertFalse(repository.compareAndSet(3, "status", CarStatus.AVAILABLE, CarStatus.LEASED));
+        assertEquals(CarStatus.SOLD, new FileRepository<>(file, new CarParser()).read(3).getStatus());
+    }
+
+    @Test
+    public void testDBTransitionIsASingleConditionalUpdate() throws Exception {
+        JdbcMocks jdbc = new JdbcMocks();
+        Connection connection = jdbc.connection;
+        PreparedStatement statement = jdbc.statement;
+        when(statement.executeUpdate()).thenReturn(1, 0);
+        DBRepository<Car> repository = new DBRepository<>(Car.class, "cars", jdbc.pool);
+
+        assertTrue(repository.compareAndSet(7, "status", CarStatus.AVAILABLE, CarStatus.SOLD));
+        assertFalse(repository.compareAndSet(7, "status", CarStatus.AVAILABLE, CarStatus.SOLD));
+
+        verify(connection, times(2))
+                .prepareStatement("UPDATE cars SET status = ?, version = version + 1 WHERE car_id = ? AND status = ?");
+        verify(statement, times(2)).setString(1, "Sold");
+        verify(statement, times(2)).setLong(2, 7L);
+        verify(statement, times(2)).setString(3, "Available");
+        verify(statement, never()).executeQuery();
+    }
+}
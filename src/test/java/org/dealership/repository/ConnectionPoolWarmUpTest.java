@@ -0,0 +1,60 @@
+package org.dealership.repository;
+
+import org.dealership.model.Car;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.util.Properties;
+
+import static org.junit.Assert.*;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.*;
+
+public class ConnectionPoolWarmUpTest {
+    private ConnectionPool pool;
+    private Connection first;
+    private Connection second;
+
+    @Before
+    public void setUp() throws SQLException {
+        Properties properties = new Properties();
+        properties.setProperty("carvy.db.pool.initialSize", "2");
+        pool = spy(new ConnectionPool(new DatabaseConfig(properties)));
+        first = mockConnection();
+        second = mockConnection();
+        doReturn(first, second).when(pool).getConnection();
+    }
+
+    private static Connection mockConnection() throws SQLException {
+        Connection connection = mock(Connection.class);
+        when(connection.prepareStatement(anyString())).thenAnswer(invocation -> mock(PreparedStatement.class));
+        return connection;
+    }
+
+    @Test
+    public void testWarmUpPreparesRegisteredStatementsOnEachConnection() throws SQLException {
+        new DBRepository<>(Car.class, "cars", pool);
+        EntityMapper<Car> mapper = EntityMapper.of(Car.class);
+
+        int prepared = pool.warmUp();
+
+        assertEquals(18, prepared);
+        for (Connection connection : new Connection[]{first, second}) {
+            verify(connection).prepareStatement(mapper.getInsertSql());
+            verify(connection).prepareStatement(mapper.getUpdateSql());
+            verify(connection).prepareStatement(mapper.getSelectByIdSql());
+            verify(connection).close();
+        }
+    }
+
+    @Test
+    public void testWarmUpWithoutRepositoriesOnlyOpensConnections() throws SQLException {
+        assertEquals(0, pool.warmUp());
+        verify(first, never()).prepareStatement(anyString());
+        verify(first).close();
+        verify(second).close();
+    }
+}
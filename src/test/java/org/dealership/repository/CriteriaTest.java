@@ -0,0 +1,56 @@
+package org.dealership.repository;
+
+import org.dealership.model.Car;
+import org.dealership.model.enums.CarStatus;
+import org.junit.Test;
+
+import java.sql.PreparedStatement;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.Assert.*;
+import static org.mockito.Mockito.*;
+
+public class CriteriaTest {
+    private final Car audi = new Car(1, "Audi", "A4", 2021, 40000.0f, 10000, CarStatus.AVAILABLE);
+    private final Car dacia = new Car(2, "Dacia", "Logan", 2015, 8000.0f, 90000, CarStatus.SOLD);
+
+    @Test
+    public void testCompilesToParameterisedWhereClause() throws Exception {
+        Criteria criteria = Criteria.gt("year", 2018).and(Criteria.eq("status", CarStatus.AVAILABLE));
+        List<Criteria.Parameter> params = new ArrayList<>();
+
+        String sql = criteria.toSql(EntityMapper.of(Car.class), "", params);
+
+        assertEquals("(year > ? AND status = ?)", sql);
+        PreparedStatement stmt = mock(PreparedStatement.class);
+        assertEquals(3, Criteria.bind(stmt, params, 1));
+        verify(stmt).setInt(1, 2018);
+        verify(stmt).setString(2, "Available");
+    }
+
+    @Test
+    public void testContainsIsEscapedAndQualified() {
+        List<Criteria.Parameter> params = new ArrayList<>();
+        String sql = Criteria.containsIgnoreCase("brand", "50%").toSql(EntityMapper.of(Car.class), "c.", params);
+
+        assertEquals("LOWER(c.brand) LIKE ? ESCAPE '\\'", sql);
+        assertEquals("%50\\%%", params.get(0).value);
+    }
+
+    @Test
+    public void testEvaluatesInMemory() {
+        assertTrue(Criteria.gt("year", 2018).matches(audi));
+        assertFalse(Criteria.gt("year", 2018).matches(dacia));
+        assertTrue(Criteria.le("price", 8000.0f).matches(dacia));
+        assertTrue(Criteria.eq("status", CarStatus.SOLD).matches(dacia));
+        assertTrue(Criteria.containsIgnoreCase("model", "log")
+                .or(Criteria.containsIgnoreCase("brand", "log")).matches(dacia));
+        assertFalse(Criteria.containsIgnoreCase("brand", "log").matches(audi));
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testUnknownFieldIsRejected() {
+        Criteria.eq("colour", "red").matches(audi);
+    }
+}
@@ -0,0 +1,110 @@
+package org.dealership.repository;
+
+import org.dealership.model.Car;
+import org.dealership.model.enums.CarStatus;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.Assert.*;
+import static org.mockito.ArgumentMatchers.contains;
+import static org.mockito.ArgumentMatchers.startsWith;
+import static org.mockito.Mockito.*;
+
+public class DBRepositoryBatchTest {
+    private Connection connection;
+    private PreparedStatement statement;
+    private DBRepository<Car> carRepository;
+
+    @Before
+    public void setUp() throws SQLException {
+        JdbcMocks jdbc = new JdbcMocks(2);
+        connection = jdbc.connection;
+        statement = jdbc.statement;
+        when(statement.executeBatch()).thenReturn(new int[]{1, 1}, new int[]{1});
+
+        carRepository = new DBRepository<>(Car.class, "cars", jdbc.pool);
+    }
+
+    @Test
+    public void testCreateAllFlushesEveryBatchAndCommitsOnce() throws SQLException {
+        List<Car> cars = new ArrayList<>();
+        for (int i = 1; i <= 3; i++) {
+            cars.add(new Car(i, "Toyota", "Camry", 2022, 25000, 12000, CarStatus.AVAILABLE));
+        }
+
+        int inserted = carRepository.createAll(cars);
+
+        assertEquals(3, inserted);
+        verify(connection, times(1)).prepareStatement(EntityMapper.of(Car.class).getInsertSql());
+        verify(statement, times(3)).addBatch();
+        verify(statement, times(2)).executeBatch();
+        verify(connection).setAutoCommit(false);
+        verify(connection, times(1)).commit();
+        verify(connection, never()).rollback();
+    }
+
+    @Test
+    public void testCreateAllRollsBackOnFailure() throws SQLException {
+        when(statement.executeBatch()).thenThrow(new SQLException("duplicate key"));
+        List<Car> cars = new ArrayList<>();
+        cars.add(new Car(1, "Toyota", "Camry", 2022, 25000, 12000, CarStatus.AVAILABLE));
+
+        try {
+            carRepository.createAll(cars);
+            fail("Expected DatabaseException");
+        } catch (org.dealership.exceptions.DatabaseException e) {
+            verify(connection).rollback();
+            verify(connection, never()).commit();
+        }
+    }
+
+    @Test
+    public void testUpsertAllBatchesOnConflictStatements() throws SQLException {
+        List<Car> cars = new ArrayList<>();
+        for (int i = 1; i <= 3; i++) {
+            cars.add(new Car(i, "Toyota", "Camry", 2022, 25000, 12000, CarStatus.AVAILABLE));
+        }
+
+        assertEquals(3, carRepository.upsertAll(cars));
+        verify(connection, times(1)).prepareStatement(EntityMapper.of(Car.class).getUpsertSql());
+        verify(statement, times(3)).addBatch();
+        verify(connection, times(1)).commit();
+    }
+
+    @Test
+    public void testUpsertIsASingleStatement() throws SQLException {
+        carRepository.upsert(new Car(4, "Toyota", "Camry", 2022, 25000, 12000, CarStatus.SOLD));
+
+        verify(connection).prepareStatement(EntityMapper.of(Car.class).getUpsertSql());
+        verify(statement).setLong(1, 4L);
+        verify(statement).setString(7, "Sold");
+        verify(statement, times(1)).executeUpdate();
+        verify(statement, never()).executeQuery();
+    }
+
+    @Test
+    public void testEveryStatementUsesTheRepositoryTable() throws SQLException {
+        JdbcMocks jdbc = new JdbcMocks();
+        when(jdbc.statement.executeUpdate()).thenReturn(1);
+        DBRepository<Car> archive = new DBRepository<>(Car.class, "cars_archive", jdbc.pool);
+        Car car = new Car(7, "Toyota", "Camry", 2022, 25000, 12000, CarStatus.AVAILABLE);
+
+        archive.create(car);
+        archive.update(car);
+        archive.upsert(car);
+        archive.delete(7);
+
+        // The upsert is an insert too
+        verify(jdbc.connection, times(2)).prepareStatement(startsWith("INSERT INTO cars_archive ("));
+        verify(jdbc.connection).prepareStatement(startsWith("UPDATE cars_archive SET"));
+        verify(jdbc.connection).prepareStatement(contains("version = cars_archive.version + 1"));
+        verify(jdbc.connection).prepareStatement("DELETE FROM cars_archive WHERE car_id = ?");
+        verify(jdbc.connection, never()).prepareStatement(contains(" cars "));
+    }
+}
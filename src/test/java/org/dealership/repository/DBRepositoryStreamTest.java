@@ -0,0 +1,95 @@
+package org.dealership.repository;
+
+import org.dealership.exceptions.DatabaseException;
+import org.dealership.model.Car;
+import org.junit.Test;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.ResultSetMetaData;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.Assert.*;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.*;
+
+public class DBRepositoryStreamTest {
+
+    @Test
+    public void testForEachUsesCursorAndReleasesConnection() throws Exception {
+        ConnectionPool pool = mock(ConnectionPool.class);
+        Connection connection = mock(Connection.class);
+        PreparedStatement statement = mock(PreparedStatement.class);
+        ResultSet rs = mock(ResultSet.class);
+        when(pool.getConnection()).thenReturn(connection);
+        when(pool.getBatchSize()).thenReturn(100);
+        when(pool.getFetchSize()).thenReturn(50);
+        when(connection.prepareStatement(anyString(), anyInt(), anyInt())).thenReturn(statement);
+        when(statement.executeQuery()).thenReturn(rs);
+        ResultSetMetaData metaData = ResultSetMocks.carMetaData("");
+        when(rs.getMetaData()).thenReturn(metaData);
+        when(rs.next()).thenReturn(true, true, false);
+        when(rs.getLong(1)).thenReturn(1L, 2L);
+
+        DBRepository<Car> carRepository = new DBRepository<>(Car.class, "cars", pool);
+        List<Long> ids = new ArrayList<>();
+        carRepository.forEach(car -> ids.add(car.getId()));
+
+        assertEquals(List.of(1L, 2L), ids);
+        verify(connection).setAutoCommit(false);
+        verify(statement).setFetchSize(50);
+        verify(rs).close();
+        verify(statement).close();
+        verify(connection).close();
+    }
+
+    @Test
+    public void testFailedQueryReleasesStatementAndConnection() throws Exception {
+        ConnectionPool pool = mock(ConnectionPool.class);
+        Connection connection = mock(Connection.class);
+        PreparedStatement statement = mock(PreparedStatement.class);
+        when(pool.getConnection()).thenReturn(connection);
+        when(connection.prepareStatement(anyString(), anyInt(), anyInt())).thenReturn(statement);
+        when(statement.executeQuery()).thenThrow(new SQLException("canceling statement due to statement timeout"));
+
+        DBRepository<Car> carRepository = new DBRepository<>(Car.class, "cars", pool);
+        try {
+            carRepository.stream();
+            fail("Expected the failed query to be reported");
+        } catch (DatabaseException e) {
+            assertTrue(e.getMessage().contains("statement timeout"));
+        }
+
+        verify(statement).close();
+        verify(connection).rollback();
+        verify(connection).close();
+    }
+
+    @Test
+    public void testFailedRollbackStillReturnsTheConnection() throws Exception {
+        ConnectionPool pool = mock(ConnectionPool.class);
+        Connection connection = mock(Connection.class);
+        PreparedStatement statement = mock(PreparedStatement.class);
+        when(pool.getConnection()).thenReturn(connection);
+        when(connection.prepareStatement(anyString(), anyInt(), anyInt())).thenReturn(statement);
+        when(statement.executeQuery()).thenThrow(new SQLException("connection reset"));
+        doThrow(new SQLException("connection is closed")).when(connection).rollback();
+
+        DBRepository<Car> carRepository = new DBRepository<>(Car.class, "cars", pool);
+        try {
+            carRepository.stream();
+            fail("Expected the failed query to be reported");
+        } catch (DatabaseException e) {
+            assertTrue(e.getMessage().contains("connection reset"));
+            assertEquals(1, e.getSuppressed().length);
+            assertTrue(e.getSuppressed()[0].getMessage().contains("connection is closed"));
+        }
+
+        verify(statement).close();
+        verify(connection).close();
+    }
+}
@@ -0,0 +1,144 @@
+package org.dealership.repository;
+
+import org.dealership.model.Car;
+import org.dealership.model.Client;
+import org.dealership.model.Leasing;
+import org.dealership.model.Transaction;
+import org.dealership.model.enums.CarStatus;
+import org.dealership.model.enums.TransactionType;
+import org.junit.Test;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.ResultSetMetaData;
+import java.util.Date;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.Assert.*;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.*;
+
+public class EntityCacheTest {
+
+    private static Car car(long id) {
+        return new Car(id, "Audi", "A4", 2020, 30000, 0, CarStatus.AVAILABLE);
+    }
+
+    @Test
+    public void testEvictsLeastRecentlyUsed() {
+        EntityCache<Car> cache = new EntityCache<>(2, 1, TimeUnit.HOURS);
+        cache.put(car(1));
+        cache.put(car(2));
+        cache.get(1);
+        cache.put(car(3));
+
+        assertNotNull(cache.get(1));
+        assertNull(cache.get(2));
+        assertNotNull(cache.get(3));
+        assertEquals(1, cache.getEvictionCount());
+        assertEquals(3, cache.getHitCount());
+        assertEquals(1, cache.getMissCount());
+    }
+
+    @Test
+    public void testStoresAndReturnsCopies() {
+        EntityCache<Car> cache = new EntityCache<>(10, 1, TimeUnit.HOURS);
+        Car car = car(1);
+        cache.put(car);
+        car.setPrice(1);
+
+        Car read = cache.get(1);
+        assertNotSame(car, read);
+        assertEquals(30000f, read.getPrice(), 0.001f);
+        read.setStatus(CarStatus.SOLD);
+        assertEquals(CarStatus.AVAILABLE, cache.get(1).getStatus());
+    }
+
+    @Test
+    public void testCopiesReferencedEntitiesAndDates() {
+        EntityCache<Transaction> transactions = new EntityCache<>(10, 1, TimeUnit.HOURS);
+        Date date = new Date(1000);
+        transactions.put(new Transaction(1, 2L, 3L, TransactionType.SOLD, date));
+        date.setTime(2000);
+        assertEquals(new Date(1000), transactions.get(1).getTransactionDate());
+
+        EntityCache<Leasing> leasings = new EntityCache<>(10, 1, TimeUnit.HOURS);
+        Client client = new Client();
+        client.setId(8);
+        Car leased = car(3);
+        leasings.put(new Leasing(1, leased, client, 36, 900, 5, 32400));
+        leased.setStatus(CarStatus.LEASED);
+
+        Leasing read = leasings.get(1);
+        assertNotSame(leased, read.getCar());
+        assertEquals(CarStatus.AVAILABLE, read.getCar().getStatus());
+        assertEquals(8, read.getClient().getId());
+    }
+
+    @Test
+    public void testExpiresAfterTtl() {
+        AtomicLong now = new AtomicLong();
+        EntityCache<Car> cache = new EntityCache<>(10, TimeUnit.SECONDS.toNanos(60), now::get);
+        cache.put(car(1));
+
+        now.set(TimeUnit.SECONDS.toNanos(59));
+        assertNotNull(cache.get(1));
+        now.set(TimeUnit.SECONDS.toNanos(60));
+        assertNull(cache.get(1));
+        assertEquals(0, cache.size());
+        assertEquals(1, cache.getEvictionCount());
+    }
+
+    @Test
+    public void testDBRepositoryReadsThroughAndInvalidatesOnWrite() throws Exception {
+        ConnectionPool pool = mock(ConnectionPool.class);
+        Connection connection = mock(Connection.class);
+        PreparedStatement statement = mock(PreparedStatement.class);
+        ResultSet rs = mock(ResultSet.class);
+        ResultSetMetaData metaData = ResultSetMocks.carMetaData("");
+        when(pool.getConnection()).thenReturn(connection);
+        when(pool.getBatchSize()).thenReturn(100);
+        when(connection.prepareStatement(anyString())).thenReturn(statement);
+        when(statement.executeQuery()).thenReturn(rs);
+        when(statement.executeUpdate()).thenReturn(1);
+        when(rs.getMetaData()).thenReturn(metaData);
+        when(rs.next()).thenReturn(true);
+        when(rs.getLong(1)).thenReturn(5L);
+        when(rs.getString(7)).thenReturn("Available");
+
+        DBRepository<Car> repository = new DBRepository<>(Car.class, "cars", pool);
+        EntityCache<Car> cache = new EntityCache<>(10, 1, TimeUnit.HOURS);
+        repository.setCache(cache);
+
+        repository.read(5);
+        assertEquals(5, repository.read(5).getId());
+        verify(statement, times(1)).executeQuery();
+
+        Car sold = car(5);
+        sold.setStatus(CarStatus.SOLD);
+        repository.update(sold);
+        assertEquals(CarStatus.SOLD, repository.read(5).getStatus());
+
+        repository.delete(5);
+        repository.read(5);
+        verify(statement, times(2)).executeQuery();
+        assertEquals(2, cache.getHitCount());
+        assertEquals(2, cache.getMissCount());
+    }
+
+    @Test
+    public void testUpdateOfMissingRowIsNotCached() throws Exception {
+        JdbcMocks jdbc = new JdbcMocks();
+        when(jdbc.statement.executeUpdate()).thenReturn(0);
+        DBRepository<Client> repository = new DBRepository<>(Client.class, "clients", jdbc.pool);
+        EntityCache<Client> cache = new EntityCache<>(10, 1, TimeUnit.HOURS);
+        repository.setCache(cache);
+        cache.put(new Client("Ana", "Pop", "2900101000000", 4));
+
+        repository.update(new Client("Ana", "Popa", "2900101000000", 4));
+
+        assertNull(cache.get(4));
+    }
+}
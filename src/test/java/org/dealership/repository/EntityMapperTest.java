@@ -0,0 +1,202 @@
+package org.dealership.repository;
+
+import org.dealership.model.Car;
+import org.dealership.model.Client;
+import org.dealership.model.Employee;
+import org.dealership.model.HasID;
+import org.dealership.model.Leasing;
+import org.dealership.model.Transaction;
+import org.dealership.model.enums.CarStatus;
+import org.dealership.model.enums.TransactionType;
+import org.junit.Test;
+
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.ResultSetMetaData;
+import java.sql.SQLException;
+import java.sql.Timestamp;
+import java.sql.Types;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Date;
+import java.util.List;
+
+import static org.junit.Assert.*;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.*;
+
+public class EntityMapperTest {
+
+    @Test
+    public void testCarMapping() {
+        EntityMapper<Car> mapper = EntityMapper.of(Car.class);
+        assertEquals("cars", mapper.getTableName());
+        assertEquals("car_id", mapper.getIdColumnName());
+        assertEquals(Arrays.asList("car_id", "brand", "model", "year", "price", "mileage", "status", "version"),
+                mapper.getColumnNames());
+        assertEquals("INSERT INTO cars (car_id, brand, model, year, price, mileage, status, version)"
+                        + " VALUES (?, ?, ?, ?, ?, ?, ?, ?)",
+                mapper.getInsertSql());
+        assertEquals("UPDATE cars SET brand = ?, model = ?, year = ?, price = ?, mileage = ?, status = ?,"
+                        + " version = version + 1 WHERE car_id = ? AND version = ?",
+                mapper.getUpdateSql());
+        assertEquals("INSERT INTO cars (car_id, brand, model, year, price, mileage, status, version)"
+                        + " VALUES (?, ?, ?, ?, ?, ?, ?, ?)"
+                        + " ON CONFLICT (car_id) DO UPDATE SET brand = EXCLUDED.brand, model = EXCLUDED.model,"
+                        + " year = EXCLUDED.year, price = EXCLUDED.price, mileage = EXCLUDED.mileage,"
+                        + " status = EXCLUDED.status, version = cars.version + 1",
+                mapper.getUpsertSql());
+    }
+
+    @Test
+    public void testClientMappingIncludesInheritedFields() {
+        EntityMapper<Client> mapper = EntityMapper.of(Client.class);
+        assertEquals(Arrays.asList("client_id", "first_name", "last_name", "cnp"), mapper.getColumnNames());
+    }
+
+    @Test
+    public void testLeasingMappingSkipsObjectReferences() {
+        EntityMapper<Leasing> mapper = EntityMapper.of(Leasing.class);
+        assertFalse(mapper.getColumnNames().contains("car"));
+        assertFalse(mapper.getColumnNames().contains("client"));
+        assertTrue(mapper.getColumnNames().contains("car_id"));
+        assertTrue(mapper.getColumnNames().contains("client_id"));
+    }
+
+    @Test
+    public void testEntitiesUseGeneratedRowMappers() {
+        for (Class<? extends HasID> type : Arrays.asList(Car.class, Client.class, Employee.class,
+                Leasing.class, Transaction.class)) {
+            assertTrue(type.getSimpleName(), EntityMapper.forClass(type).hasGeneratedRowMapper());
+        }
+    }
+
+    @Test
+    public void testGeneratedMapperBindsEnumLabelsAndDates() throws Exception {
+        EntityMapper<Transaction> mapper = EntityMapper.of(Transaction.class);
+        PreparedStatement stmt = mock(PreparedStatement.class);
+        mapper.bindUpdate(stmt, new Transaction(4, 2L, 3L, TransactionType.SOLD, new Date(1000)));
+
+        verify(stmt).setLong(1, 2L);
+        verify(stmt).setLong(2, 3L);
+        verify(stmt).setString(3, "Sold");
+        verify(stmt).setTimestamp(4, new Timestamp(1000));
+        verify(stmt).setLong(5, 4L);
+    }
+
+    @Test
+    public void testEnumLabelsRoundTrip() {
+        String[] labels = RowMapper.enumLabels(CarStatus.values());
+        assertArrayEquals(new String[]{"Available", "Sold", "Leased"}, labels);
+        assertEquals(CarStatus.SOLD, RowMapper.toEnum(CarStatus.values(), "SOLD"));
+        assertNull(RowMapper.toEnum(CarStatus.values(), null));
+    }
+
+    @Test
+    public void testMapperIsCachedPerClass() {
+        assertSame(EntityMapper.of(Car.class), EntityMapper.of(Car.class));
+    }
+
+    @Test
+    public void testBindInsert() throws Exception {
+        EntityMapper<Car> mapper = EntityMapper.of(Car.class);
+        PreparedStatement stmt = mock(PreparedStatement.class);
+        mapper.bindInsert(stmt, new Car(5, "BMW", "X5", 2021, 50000f, 1000, CarStatus.AVAILABLE));
+
+        verify(stmt).setLong(1, 5L);
+        verify(stmt).setString(2, "BMW");
+        verify(stmt).setInt(4, 2021);
+        verify(stmt).setFloat(5, 50000f);
+        verify(stmt).setString(7, "Available");
+    }
+
+    @Test
+    public void testMapRow() throws Exception {
+        EntityMapper<Car> mapper = EntityMapper.of(Car.class);
+        ResultSet rs = mock(ResultSet.class);
+        ResultSetMetaData metaData = ResultSetMocks.carMetaData("");
+        when(rs.getMetaData()).thenReturn(metaData);
+        when(rs.getLong(1)).thenReturn(9L);
+        when(rs.getString(2)).thenReturn("Audi");
+        when(rs.getString(3)).thenReturn("A4");
+        when(rs.getInt(4)).thenReturn(2020);
+        when(rs.getFloat(5)).thenReturn(30000f);
+        when(rs.getString(7)).thenReturn("Leased");
+
+        Car car = mapper.map(rs);
+        assertEquals(9L, car.getId());
+        assertEquals("Audi", car.getBrand());
+        assertEquals(2020, car.getYear());
+        assertEquals(30000f, car.getPrice(), 0.001f);
+        assertEquals(CarStatus.LEASED, car.getStatus());
+        verify(rs, never()).getObject(anyString());
+    }
+
+    @Test
+    public void testPlanResolvesColumnsOnceInResultSetOrder() throws Exception {
+        EntityMapper<Car> mapper = EntityMapper.of(Car.class);
+        ResultSetMetaData metaData = ResultSetMocks.metaData("version", Types.BIGINT, "status", Types.VARCHAR,
+                "mileage", Types.INTEGER, "price", Types.REAL, "year", Types.INTEGER, "model", Types.VARCHAR,
+                "brand", Types.VARCHAR, "CAR_ID", Types.BIGINT);
+        EntityMapper.RowPlan<Car> plan = mapper.plan(metaData, "");
+
+        ResultSet rs = mock(ResultSet.class);
+        when(rs.getLong(8)).thenReturn(1L, 2L);
+        when(rs.getString(7)).thenReturn("Audi", "BMW");
+        List<String> brands = new ArrayList<>();
+        for (int i = 0; i < 2; i++) {
+            brands.add(plan.map(rs).getBrand());
+        }
+
+        assertEquals(Arrays.asList("Audi", "BMW"), brands);
+        verify(metaData, times(1)).getColumnCount();
+        verify(rs, never()).getMetaData();
+    }
+
+    @Test
+    public void testPlanFailsOnMissingColumn() throws Exception {
+        ResultSetMetaData metaData = ResultSetMocks.metaData("car_id", Types.BIGINT, "brand", Types.VARCHAR);
+        try {
+            EntityMapper.of(Car.class).plan(metaData, "");
+            fail("Expected a missing column to be rejected");
+        } catch (SQLException e) {
+            assertTrue(e.getMessage().contains("model"));
+        }
+    }
+
+    @Test(expected = SQLException.class)
+    public void testPlanFailsOnIncompatibleColumnType() throws Exception {
+        ResultSetMetaData metaData = ResultSetMocks.metaData("car_id", Types.BIGINT, "brand", Types.VARCHAR,
+                "model", Types.VARCHAR, "year", Types.VARCHAR, "price", Types.REAL,
+                "mileage", Types.INTEGER, "status", Types.VARCHAR);
+        EntityMapper.of(Car.class).plan(metaData, "");
+    }
+
+    @Test
+    public void testSelectListAndPrefixedMapping() throws Exception {
+        EntityMapper<Client> mapper = EntityMapper.of(Client.class);
+        assertEquals("cl.client_id AS client__client_id, cl.first_name AS client__first_name, "
+                        + "cl.last_name AS client__last_name, cl.cnp AS client__cnp",
+                mapper.selectList("cl", "client__"));
+
+        ResultSet rs = mock(ResultSet.class);
+        ResultSetMetaData metaData = ResultSetMocks.metaData("leasing_id", Types.BIGINT,
+                "client__client_id", Types.BIGINT, "client__first_name", Types.VARCHAR,
+                "client__last_name", Types.VARCHAR, "client__cnp", Types.VARCHAR);
+        when(rs.getMetaData()).thenReturn(metaData);
+        when(rs.getLong(2)).thenReturn(4L);
+        when(rs.getString(3)).thenReturn("Jane");
+        Client client = mapper.map(rs, "client__");
+        assertEquals(4L, client.getId());
+        assertEquals("Jane", client.getFirstName());
+    }
+
+    @Test
+    public void testMapNullableReturnsNullForUnmatchedJoin() throws Exception {
+        EntityMapper.RowPlan<Car> plan = EntityMapper.of(Car.class).plan(ResultSetMocks.carMetaData("car__"), "car__");
+        ResultSet rs = mock(ResultSet.class);
+        when(rs.wasNull()).thenReturn(true);
+
+        assertNull(plan.mapNullable(rs));
+    }
+}
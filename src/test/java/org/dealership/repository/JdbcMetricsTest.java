@@ -0,0 +1,157 @@
+package org.dealership.repository;
+
+import org.dealership.exceptions.DatabaseException;
+import org.dealership.model.Car;
+import org.dealership.model.enums.CarStatus;
+import org.junit.Test;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.ResultSetMetaData;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.logging.Handler;
+import java.util.logging.LogRecord;
+import java.util.logging.Logger;
+
+import static org.junit.Assert.*;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.*;
+
+public class JdbcMetricsTest {
+
+    @Test
+    public void testHistogramPercentilesAreWithinTwiceTheValue() {
+        LatencyHistogram histogram = new LatencyHistogram();
+        for (long nanos = 1; nanos <= 1000; nanos++) {
+            histogram.record(nanos * 1000);
+        }
+
+        assertEquals(1000, histogram.getCount());
+        assertEquals(1_000_000, histogram.getMaxNanos());
+        assertEquals(500_500, histogram.getMeanNanos(), 0.001);
+        long p50 = histogram.getPercentileNanos(0.5);
+        assertTrue(p50 >= 500_000 && p50 < 1_000_000);
+        assertEquals(1_000_000, histogram.getPercentileNanos(1.0));
+        assertEquals(0, new LatencyHistogram().getPercentileNanos(0.99));
+    }
+
+    @Test
+    public void testCountsPlaceholders() {
+        assertEquals(3, JdbcMetrics.countParameters("UPDATE cars SET status = ? WHERE car_id = ? AND status = ?"));
+        assertEquals(0, JdbcMetrics.countParameters("SELECT * FROM cars"));
+    }
+
+    @Test
+    public void testReadRecordsEveryPhase() throws Exception {
+        ConnectionPool pool = mock(ConnectionPool.class);
+        Connection connection = mock(Connection.class);
+        PreparedStatement statement = mock(PreparedStatement.class);
+        ResultSet resultSet = mock(ResultSet.class);
+        ResultSetMetaData metaData = ResultSetMocks.carMetaData("");
+        when(pool.getConnection()).thenReturn(connection);
+        when(connection.prepareStatement(anyString())).thenReturn(statement);
+        when(statement.executeQuery()).thenReturn(resultSet);
+        when(resultSet.getMetaData()).thenReturn(metaData);
+        when(resultSet.next()).thenReturn(true);
+        when(resultSet.getLong(1)).thenReturn(5L);
+        when(resultSet.getString(7)).thenReturn("Available");
+        DBRepository<Car> repository = new DBRepository<>(Car.class, "cars", pool);
+        JdbcMetrics metrics = new JdbcMetrics(0);
+        repository.setMetrics(metrics);
+
+        assertEquals(CarStatus.AVAILABLE, repository.read(5).getStatus());
+
+        JdbcMetrics.OperationStats stats = metrics.stats("cars", "read");
+        for (JdbcMetrics.Phase phase : JdbcMetrics.Phase.values()) {
+            assertEquals(phase.toString(), 1, stats.getHistogram(phase).getCount());
+        }
+        assertEquals(0, metrics.getSlowQueryCount());
+        verify(resultSet).close();
+    }
+
+    @Test
+    public void testSlowStatementIsLoggedWithParameterCount() throws Exception {
+        ConnectionPool pool = mock(ConnectionPool.class);
+        Connection connection = mock(Connection.class);
+        PreparedStatement statement = mock(PreparedStatement.class);
+        when(pool.getConnection()).thenReturn(connection);
+        when(connection.prepareStatement(anyString())).thenReturn(statement);
+        when(statement.executeBatch()).thenAnswer(invocation -> {
+            Thread.sleep(20);
+            return new int[]{1, 1};
+        });
+        DBRepository<Car> repository = new DBRepository<>(Car.class, "cars", pool);
+        JdbcMetrics metrics = new JdbcMetrics(5);
+        repository.setMetrics(metrics);
+
+        List<LogRecord> logged = new ArrayList<>();
+        Logger log = Logger.getLogger("org.dealership.repository.slowQueries");
+        Handler handler = new Handler() {
+            @Override
+            public void publish(LogRecord record) {
+                logged.add(record);
+            }
+
+            @Override
+            public void flush() {
+            }
+
+            @Override
+            public void close() {
+            }
+        };
+        log.addHandler(handler);
+        log.setUseParentHandlers(false);
+        try {
+            repository.createAll(Arrays.asList(
+                    new Car(1, "Audi", "A4", 2020, 30000, 0, CarStatus.AVAILABLE),
+                    new Car(2, "BMW", "X5", 2021, 50000, 0, CarStatus.AVAILABLE)));
+        } finally {
+            log.removeHandler(handler);
+            log.setUseParentHandlers(true);
+        }
+
+        assertEquals(1, metrics.getSlowQueryCount());
+        assertEquals(1, metrics.stats("cars", "createAll").getSlowQueryCount());
+        assertEquals(1, logged.size());
+        String message = logged.get(0).getMessage();
+        assertTrue(message, message.contains("cars/createAll"));
+        assertTrue(message, message.contains("16 bound parameters"));
+        assertTrue(message, message.contains("INSERT INTO cars"));
+    }
+
+    @Test
+    public void testFailedStatementsAreReportedInsteadOfPrinted() throws Exception {
+        ConnectionPool pool = mock(ConnectionPool.class);
+        Connection connection = mock(Connection.class);
+        PreparedStatement statement = mock(PreparedStatement.class);
+        when(pool.getConnection()).thenReturn(connection);
+        when(connection.prepareStatement(anyString())).thenReturn(statement);
+        when(statement.executeQuery()).thenThrow(new SQLException("connection reset"));
+        when(statement.executeUpdate()).thenThrow(new SQLException("duplicate key"));
+        DBRepository<Car> repository = new DBRepository<>(Car.class, "cars", pool);
+        Car car = new Car(1, "Audi", "A4", 2020, 30000, 0, CarStatus.AVAILABLE);
+
+        List<Runnable> calls = List.of(
+                () -> repository.create(car),
+                () -> repository.read(1),
+                () -> repository.readAll(),
+                () -> repository.readPage(0, 10),
+                () -> repository.find(Criteria.eq("status", CarStatus.AVAILABLE)),
+                () -> repository.update(car),
+                () -> repository.delete(1));
+        for (Runnable call : calls) {
+            try {
+                call.run();
+                fail("Expected the failed statement to be reported");
+            } catch (DatabaseException e) {
+                assertTrue(e.getMessage(), e.getCause() instanceof SQLException);
+                assertTrue(e.getMessage(), e.getMessage().contains("cars"));
+            }
+        }
+    }
+}
@@ -0,0 +1,35 @@
+package org.dealership.repository;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.*;
+
+/**
+ * A mocked connection pool for repository tests. The pool always hands out the same connection,
+ * which starts in auto-commit mode and prepares every SQL string into the same statement.
+ */
+final class JdbcMocks {
+    final ConnectionPool pool;
+    final Connection connection;
+    final PreparedStatement statement;
+
+    JdbcMocks() throws SQLException {
+        this(100);
+    }
+
+    /**
+     * @param batchSize the batch size reported by the pool
+     */
+    JdbcMocks(int batchSize) throws SQLException {
+        pool = mock(ConnectionPool.class);
+        connection = mock(Connection.class);
+        statement = mock(PreparedStatement.class);
+        when(pool.getConnection()).thenReturn(connection);
+        when(pool.getBatchSize()).thenReturn(batchSize);
+        when(connection.getAutoCommit()).thenReturn(true);
+        when(connection.prepareStatement(anyString())).thenReturn(statement);
+    }
+}
@@ -0,0 +1,179 @@
+package org.dealership.repository;
+
+import org.dealership.exceptions.DatabaseException;
+import org.dealership.model.Car;
+import org.dealership.model.Client;
+import org.dealership.model.Leasing;
+import org.dealership.model.enums.CarStatus;
+import org.junit.Before;
+import org.junit.Test;
+import org.mockito.ArgumentCaptor;
+
+import java.sql.Array;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.ResultSetMetaData;
+import java.sql.SQLException;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.*;
+
+public class MultiIdTest {
+    private JdbcMocks jdbc;
+    private Connection connection;
+    private PreparedStatement statement;
+    private Array array;
+    private DBRepository<Car> carRepository;
+
+    @Before
+    public void setUp() throws SQLException {
+        jdbc = new JdbcMocks();
+        connection = jdbc.connection;
+        statement = jdbc.statement;
+        array = mock(Array.class);
+        when(connection.createArrayOf(eq("bigint"), any(Object[].class))).thenReturn(array);
+
+        carRepository = new DBRepository<>(Car.class, "cars", jdbc.pool);
+    }
+
+    private static Car car(long id) {
+        return new Car(id, "Audi", "A4", 2020, 30000, 0, CarStatus.AVAILABLE);
+    }
+
+    // Rows come back in storage order, not in the requested order
+    private void returnCarRows(Long... ids) throws SQLException {
+        ResultSet rs = mock(ResultSet.class);
+        ResultSetMetaData metaData = ResultSetMocks.carMetaData("");
+        when(statement.executeQuery()).thenReturn(rs);
+        when(rs.getMetaData()).thenReturn(metaData);
+        Boolean[] more = new Boolean[ids.length];
+        Arrays.fill(more, true);
+        more[ids.length - 1] = false;
+        when(rs.next()).thenReturn(true, more);
+        Long[] rest = Arrays.copyOfRange(ids, 1, ids.length);
+        when(rs.getLong(1)).thenReturn(ids[0], rest);
+        when(rs.getString(7)).thenReturn("Available");
+    }
+
+    @Test
+    public void testReadAllBindsIdsAsOneArray() throws SQLException {
+        returnCarRows(9L, 4L);
+
+        Map<Long, Car> cars = carRepository.readAll(Arrays.asList(4L, 7L, 9L, 4L));
+
+        verify(connection).prepareStatement("SELECT * FROM cars WHERE car_id = ANY(?)");
+        verify(connection).createArrayOf("bigint", new Object[]{4L, 7L, 9L});
+        verify(statement).setArray(1, array);
+        verify(statement, times(1)).executeQuery();
+        verify(array).free();
+        assertEquals(List.of(4L, 9L), List.copyOf(cars.keySet()));
+        assertEquals(9L, cars.get(9L).getId());
+    }
+
+    @Test
+    public void testReadAllQueriesOnlyUncachedIds() throws SQLException {
+        EntityCache<Car> cache = new EntityCache<>(10, 1, TimeUnit.HOURS);
+        carRepository.setCache(cache);
+        Car cached = car(4);
+        cache.put(cached);
+        returnCarRows(9L);
+
+        Map<Long, Car> cars = carRepository.readAll(Arrays.asList(4L, 9L));
+
+        verify(connection).createArrayOf("bigint", new Object[]{9L});
+        assertEquals(cached.getBrand(), cars.get(4L).getBrand());
+        assertNotNull(cache.get(9));
+    }
+
+    @Test
+    public void testReadAllOfCachedIdsSkipsTheDatabase() throws SQLException {
+        EntityCache<Car> cache = new EntityCache<>(10, 1, TimeUnit.HOURS);
+        carRepository.setCache(cache);
+        cache.put(car(4));
+
+        assertEquals(1, carRepository.readAll(Collections.singletonList(4L)).size());
+        assertTrue(carRepository.readAll(Collections.emptyList()).isEmpty());
+        verify(connection, never()).prepareStatement(anyString());
+    }
+
+    @Test
+    public void testDeleteAllIsOneStatementAndInvalidatesCache() throws SQLException {
+        when(statement.executeUpdate()).thenReturn(2);
+        EntityCache<Car> cache = new EntityCache<>(10, 1, TimeUnit.HOURS);
+        carRepository.setCache(cache);
+        cache.put(car(1));
+        cache.put(car(2));
+
+        assertEquals(2, carRepository.deleteAll(Arrays.asList(1L, 2L, 3L)));
+
+        verify(connection).prepareStatement("DELETE FROM cars WHERE car_id = ANY(?)");
+        verify(connection).createArrayOf("bigint", new Object[]{1L, 2L, 3L});
+        verify(statement).setArray(1, array);
+        verify(statement, times(1)).executeUpdate();
+        verify(array).free();
+        assertEquals(0, cache.size());
+    }
+
+    @Test
+    public void testDeleteAllDiscardsQueuedUpdates() throws SQLException {
+        DBRepository<Client> clientRepository = new DBRepository<>(Client.class, "clients", jdbc.pool);
+        WriteBehindBuffer<Client> buffer = clientRepository.enableWriteBehind(100, 60_000);
+        clientRepository.update(new Client("Ana", "Pop", "2900101000000", 1));
+        clientRepository.update(new Client("Ion", "Popa", "1900101000000", 2));
+
+        clientRepository.deleteAll(Collections.singletonList(1L));
+
+        assertNull(buffer.getPending(1));
+        assertNotNull(buffer.getPending(2));
+        buffer.discard(2);
+        buffer.close();
+    }
+
+    @Test
+    public void testLeasingReadAllFiltersTheJoinedQuery() throws SQLException {
+        when(statement.executeQuery()).thenThrow(new SQLException("connection reset"));
+        DBRepository<Leasing> leasingRepository = new DBRepository<>(Leasing.class, "leasings", jdbc.pool);
+
+        try {
+            leasingRepository.readAll(Arrays.asList(1L, 2L));
+            fail("Expected the failed query to be reported");
+        } catch (DatabaseException e) {
+            assertTrue(e.getMessage().contains("connection reset"));
+        }
+
+        ArgumentCaptor<String> sql = ArgumentCaptor.forClass(String.class);
+        verify(connection).prepareStatement(sql.capture());
+        assertTrue(sql.getValue(), sql.getValue().endsWith(" WHERE l.leasing_id = ANY(?)"));
+        assertTrue(sql.getValue(), sql.getValue().contains("LEFT JOIN cars c"));
+    }
+
+    @Test
+    public void testNullIdsAreRejectedBeforeAnyWork() throws SQLException {
+        EntityCache<Car> cache = new EntityCache<>(10, 1, TimeUnit.HOURS);
+        carRepository.setCache(cache);
+        cache.put(car(1));
+
+        try {
+            carRepository.readAll(Arrays.asList(1L, null));
+            fail("Expected the null ID to be rejected");
+        } catch (IllegalArgumentException expected) {
+        }
+        try {
+            carRepository.deleteAll(Arrays.asList(1L, null));
+            fail("Expected the null ID to be rejected");
+        } catch (IllegalArgumentException expected) {
+        }
+
+        verify(connection, never()).prepareStatement(anyString());
+        assertNotNull(cache.get(1));
+    }
+}
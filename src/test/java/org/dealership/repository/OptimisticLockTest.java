@@ -0,0 +1,241 @@
+package org.dealership.repository;
+
+import org.dealership.exceptions.BusinessLogicException;
+import org.dealership.exceptions.OptimisticLockException;
+import org.dealership.model.Car;
+import org.dealership.model.enums.CarStatus;
+import org.dealership.service.CarService;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.ResultSetMetaData;
+import java.sql.SQLException;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+import static org.junit.Assert.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.*;
+
+public class OptimisticLockTest {
+    private Connection connection;
+    private PreparedStatement statement;
+    private DBRepository<Car> carRepository;
+
+    @Before
+    public void setUp() throws SQLException {
+        JdbcMocks jdbc = new JdbcMocks();
+        connection = jdbc.connection;
+        statement = jdbc.statement;
+
+        carRepository = new DBRepository<>(Car.class, "cars", jdbc.pool);
+    }
+
+    private static Car car(long id, long version) {
+        Car car = new Car(id, "Audi", "A4", 2020, 30000, 0, CarStatus.AVAILABLE);
+        car.setVersion(version);
+        return car;
+    }
+
+    @Test
+    public void testUpdateMatchesAndIncrementsVersion() throws SQLException {
+        when(statement.executeUpdate()).thenReturn(1);
+        EntityCache<Car> cache = new EntityCache<>(10, 1, TimeUnit.HOURS);
+        carRepository.setCache(cache);
+        Car car = car(5, 3);
+
+        carRepository.update(car);
+
+        verify(connection).prepareStatement("UPDATE cars SET brand = ?, model = ?, year = ?, price = ?, mileage = ?,"
+                + " status = ?, version = version + 1 WHERE car_id = ? AND version = ?");
+        verify(statement).setLong(7, 5L);
+        verify(statement).setLong(8, 3L);
+        assertEquals(4, car.getVersion());
+        assertEquals(4, cache.get(5).getVersion());
+    }
+
+    @Test
+    public void testStaleUpdateThrowsAndInvalidatesCache() throws SQLException {
+        when(statement.executeUpdate()).thenReturn(0);
+        EntityCache<Car> cache = new EntityCache<>(10, 1, TimeUnit.HOURS);
+        carRepository.setCache(cache);
+        Car car = car(5, 3);
+        cache.put(car);
+
+        try {
+            carRepository.update(car);
+            fail("Expected the stale version to be rejected");
+        } catch (OptimisticLockException e) {
+            assertEquals(List.of(5L), e.getIds());
+        }
+        assertEquals(3, car.getVersion());
+        assertNull(cache.get(5));
+    }
+
+    @Test
+    public void testUpdateAllRollsBackWhenAnyRowIsStale() throws SQLException {
+        when(statement.executeBatch()).thenReturn(new int[]{1, 0});
+        Car fresh = car(1, 2);
+        Car stale = car(2, 7);
+
+        try {
+            carRepository.updateAll(Arrays.asList(fresh, stale));
+            fail("Expected the stale version to be rejected");
+        } catch (OptimisticLockException e) {
+            assertEquals(List.of(2L), e.getIds());
+        }
+        verify(connection).rollback();
+        verify(connection, never()).commit();
+        assertEquals(2, fresh.getVersion());
+        assertEquals(7, stale.getVersion());
+    }
+
+    @Test
+    public void testUpdateAllIncrementsVersionsAfterCommit() throws SQLException {
+        when(statement.executeBatch()).thenReturn(new int[]{1, 1});
+        Car first = car(1, 0);
+        Car second = car(2, 4);
+
+        assertEquals(2, carRepository.updateAll(Arrays.asList(first, second)));
+
+        verify(connection).commit();
+        assertEquals(1, first.getVersion());
+        assertEquals(5, second.getVersion());
+    }
+
+    @Test
+    public void testWrittenBehindUpdatesAreCheckedAgainstTheVersionRead() throws SQLException {
+        when(statement.executeBatch()).thenReturn(new int[]{1});
+        WriteBehindBuffer<Car> buffer = carRepository.enableWriteBehind(100, 60_000);
+        Car car = car(5, 3);
+
+        car.setPrice(28000);
+        carRepository.update(car);
+        car.setStatus(CarStatus.LEASED);
+        carRepository.update(car);
+
+        assertEquals(4, car.getVersion());
+        Car queued = carRepository.read(5);
+        assertEquals(4, queued.getVersion());
+        assertEquals(CarStatus.LEASED, queued.getStatus());
+
+        assertEquals(1, buffer.flush());
+        verify(statement, times(1)).executeBatch();
+        verify(statement).setLong(8, 3L);
+        assertEquals(4, car.getVersion());
+        buffer.close();
+    }
+
+    @Test
+    public void testUpdateOfOutdatedCopyOfQueuedEntityIsRejected() {
+        WriteBehindBuffer<Car> buffer = carRepository.enableWriteBehind(100, 60_000);
+        carRepository.update(car(5, 3));
+
+        try {
+            carRepository.update(car(5, 3));
+            fail("Expected the copy read before the queued update to be rejected");
+        } catch (OptimisticLockException e) {
+            assertEquals(List.of(5L), e.getIds());
+        }
+        // The retry on the queued state is accepted
+        carRepository.update(carRepository.read(5));
+        assertEquals(1, buffer.getPendingCount());
+        buffer.discard(5);
+        buffer.close();
+    }
+
+    @Test
+    public void testStaleQueuedUpdateIsDroppedAndTheOthersRetried() throws SQLException {
+        when(statement.executeBatch()).thenReturn(new int[]{1, 0}, new int[]{1});
+        WriteBehindBuffer<Car> buffer = carRepository.enableWriteBehind(100, 60_000);
+        carRepository.update(car(1, 2));
+        carRepository.update(car(2, 7));
+
+        Logger log = Logger.getLogger(WriteBehindBuffer.class.getName());
+        Level level = log.getLevel();
+        log.setLevel(Level.OFF);
+        try {
+            buffer.flush();
+            fail("Expected the stale version to be rejected");
+        } catch (OptimisticLockException e) {
+            assertEquals(List.of(2L), e.getIds());
+        } finally {
+            log.setLevel(level);
+        }
+        assertEquals(1, buffer.getDroppedCount());
+        assertNull(buffer.getPending(2));
+        assertEquals(3, buffer.getPending(1).getVersion());
+
+        assertEquals(1, buffer.flush());
+        assertEquals(0, buffer.getPendingCount());
+        buffer.close();
+    }
+
+    @Test
+    public void testGeneratedMapperBindsVersionAfterId() throws SQLException {
+        PreparedStatement stmt = mock(PreparedStatement.class);
+        EntityMapper.of(Car.class).bindUpdate(stmt, car(9, 12));
+
+        verify(stmt).setString(6, "Available");
+        verify(stmt).setLong(7, 9L);
+        verify(stmt).setLong(8, 12L);
+        verify(stmt, never()).setLong(9, 12L);
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    public void testServiceRetriesStaleUpdateOnFreshCopy() {
+        DBRepository<Car> repository = mock(DBRepository.class);
+        when(repository.read(5)).thenReturn(car(5, 1), car(5, 2));
+        doThrow(new OptimisticLockException("stale", List.of(5L))).doNothing().when(repository).update(any(Car.class));
+        CarService carService = new CarService(null, repository);
+
+        Car updated = carService.changeCarPrice(5, 25000);
+
+        assertEquals(25000f, updated.getPrice(), 0.001f);
+        assertEquals(2, updated.getVersion());
+        verify(repository, times(2)).read(5);
+        verify(repository, times(2)).update(any(Car.class));
+    }
+
+    @Test
+    public void testServiceRetryRereadsTheRowInsteadOfTheCachedCopy() throws SQLException {
+        EntityCache<Car> cache = new EntityCache<>(10, 1, TimeUnit.HOURS);
+        carRepository.setCache(cache);
+        cache.put(car(5, 1));
+        ResultSet rs = mock(ResultSet.class);
+        ResultSetMetaData metaData = ResultSetMocks.carMetaData("");
+        when(statement.executeQuery()).thenReturn(rs);
+        when(rs.getMetaData()).thenReturn(metaData);
+        when(rs.next()).thenReturn(true);
+        when(rs.getLong(1)).thenReturn(5L);
+        when(rs.getString(7)).thenReturn("Available");
+        when(rs.getLong(8)).thenReturn(2L);
+        // The cached version 1 is stale; the row is at version 2
+        when(statement.executeUpdate()).thenReturn(0, 1);
+
+        Car updated = new CarService(null, carRepository).changeCarPrice(5, 25000);
+
+        verify(statement).setLong(8, 1L);
+        verify(statement).setLong(8, 2L);
+        verify(statement, times(1)).executeQuery();
+        assertEquals(3, updated.getVersion());
+        assertEquals(25000f, cache.get(5).getPrice(), 0.001f);
+    }
+
+    @Test(expected = BusinessLogicException.class)
+    @SuppressWarnings("unchecked")
+    public void testServiceGivesUpAfterRepeatedConflicts() {
+        DBRepository<Car> repository = mock(DBRepository.class);
+        when(repository.read(5)).thenAnswer(invocation -> car(5, 1));
+        doThrow(new OptimisticLockException("stale", List.of(5L))).when(repository).update(any(Car.class));
+
+        new CarService(null, repository).changeCarPrice(5, 25000);
+    }
+}
@@ -0,0 +1,52 @@
+package org.dealership.repository;
+
+import org.dealership.model.Car;
+import org.dealership.model.CarSummary;
+import org.junit.Test;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.util.List;
+
+import static org.junit.Assert.*;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.*;
+
+public class ProjectionTest {
+
+    record WrongType(long carId, String price) {
+    }
+
+    @Test
+    public void testSelectReadsOnlyProjectedColumns() throws Exception {
+        ConnectionPool pool = mock(ConnectionPool.class);
+        Connection connection = mock(Connection.class);
+        PreparedStatement statement = mock(PreparedStatement.class);
+        ResultSet rs = mock(ResultSet.class);
+        when(pool.getConnection()).thenReturn(connection);
+        when(connection.prepareStatement(anyString())).thenReturn(statement);
+        when(statement.executeQuery()).thenReturn(rs);
+        when(rs.next()).thenReturn(true, false);
+        when(rs.getLong(1)).thenReturn(4L);
+        when(rs.getString(2)).thenReturn("Audi");
+        when(rs.getString(3)).thenReturn("A4");
+        when(rs.getFloat(4)).thenReturn(30000f);
+
+        DBRepository<Car> repository = new DBRepository<>(Car.class, "cars", pool);
+        List<CarSummary> cars = repository.select(CarSummary.class, Criteria.gt("carId", 3L), Sort.asc("carId"), 0, 20);
+
+        assertEquals(List.of(new CarSummary(4, "Audi", "A4", 30000f)), cars);
+        verify(connection).prepareStatement("SELECT car_id, brand, model, price FROM cars"
+                + " WHERE car_id > ? ORDER BY car_id ASC LIMIT ?");
+        verify(statement).setLong(1, 3L);
+        verify(statement).setInt(2, 20);
+        verify(rs, never()).getInt(anyInt());
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testComponentTypeMustMatchField() {
+        EntityMapper.of(Car.class).projection(WrongType.class);
+    }
+}
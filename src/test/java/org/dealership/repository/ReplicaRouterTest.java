@@ -0,0 +1,133 @@
+package org.dealership.repository;
+
+import org.dealership.model.Car;
+import org.dealership.model.enums.CarStatus;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.ResultSetMetaData;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.Assert.*;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.*;
+
+public class ReplicaRouterTest {
+    private final AtomicLong clock = new AtomicLong(1_000);
+
+    private ConnectionPool primary;
+    private ConnectionPool replica;
+    private Connection primaryConnection;
+    private Connection replicaConnection;
+    private ReplicaRouter router;
+    private DBRepository<Car> repository;
+
+    // Stands in for a pool whose queries return no rows
+    private static Connection emptyDatabase(ConnectionPool pool) throws Exception {
+        Connection connection = mock(Connection.class);
+        PreparedStatement statement = mock(PreparedStatement.class);
+        ResultSet resultSet = mock(ResultSet.class);
+        ResultSetMetaData metaData = ResultSetMocks.carMetaData("");
+        when(resultSet.getMetaData()).thenReturn(metaData);
+        when(pool.getConnection()).thenReturn(connection);
+        when(connection.prepareStatement(anyString())).thenReturn(statement);
+        when(statement.executeQuery()).thenReturn(resultSet);
+        when(statement.executeUpdate()).thenReturn(1);
+        return connection;
+    }
+
+    @Before
+    public void setUp() throws Exception {
+        primary = mock(ConnectionPool.class);
+        replica = mock(ConnectionPool.class);
+        primaryConnection = emptyDatabase(primary);
+        replicaConnection = emptyDatabase(replica);
+        router = new ReplicaRouter(primary, replica, TimeUnit.MILLISECONDS.toNanos(500), clock::get);
+        repository = new DBRepository<>(Car.class, "cars", primary);
+        repository.setReplicaRouter(router);
+    }
+
+    @Test
+    public void testReadsGoToTheReplica() throws Exception {
+        repository.read(1);
+        repository.find(Criteria.eq("status", CarStatus.AVAILABLE));
+
+        verify(replica, times(2)).getConnection();
+        verify(primary, never()).getConnection();
+        assertEquals(2, router.getReplicaReads());
+    }
+
+    @Test
+    public void testWriterReadsItsOwnWritesFromThePrimaryUntilTheWindowEnds() throws Exception {
+        repository.create(new Car(1, "Audi", "A4", 2020, 30000, 0, CarStatus.AVAILABLE));
+        verify(primaryConnection).prepareStatement(startsWith("INSERT INTO cars"));
+
+        clock.addAndGet(TimeUnit.MILLISECONDS.toNanos(499));
+        repository.read(1);
+        verify(primary, times(2)).getConnection();
+        verify(replica, never()).getConnection();
+
+        clock.addAndGet(TimeUnit.MILLISECONDS.toNanos(1));
+        repository.read(1);
+        verify(replica).getConnection();
+        verify(replicaConnection).prepareStatement(EntityMapper.of(Car.class).getSelectByIdSql());
+        assertEquals(1, router.getPrimaryReads());
+        assertEquals(1, router.getReplicaReads());
+    }
+
+    @Test
+    public void testOtherThreadsKeepReadingFromTheReplica() throws Exception {
+        repository.delete(1);
+
+        ExecutorService executor = Executors.newSingleThreadExecutor();
+        try {
+            executor.submit(() -> repository.read(1)).get();
+        } finally {
+            executor.shutdown();
+        }
+
+        verify(replica).getConnection();
+        verify(primary, times(1)).getConnection();
+    }
+
+    @Test
+    public void testAsyncReadsShareTheCallersWindow() throws Exception {
+        repository.delete(1);
+
+        try (AsyncRepository<Car> async = new AsyncRepository<>(repository)) {
+            async.read(1).get();
+        }
+
+        verify(replica, never()).getConnection();
+        verify(primary, times(2)).getConnection();
+        assertEquals(1, router.getPrimaryReads());
+    }
+
+    @Test
+    public void testAsyncWritesOpenTheCallersWindow() throws Exception {
+        ExecutorService executor = Executors.newSingleThreadExecutor();
+        try (AsyncRepository<Car> async = new AsyncRepository<>(repository, executor)) {
+            async.delete(1).get();
+            repository.read(1);
+            // The pooled worker thread does not keep the window of the previous task
+            executor.submit(() -> repository.read(1)).get();
+        } finally {
+            executor.shutdown();
+        }
+
+        verify(primary, times(2)).getConnection();
+        verify(replica, times(1)).getConnection();
+    }
+
+    @Test
+    public void testReplicaWarmUpPreparesTheReadStatements() {
+        verify(replica).registerStatements(argThat(sql -> sql.contains(EntityMapper.of(Car.class).getSelectByIdSql())
+                && sql.size() == 4));
+    }
+}
@@ -0,0 +1,51 @@
+package org.dealership.repository;
+
+import org.dealership.model.Car;
+import org.dealership.model.enums.CarStatus;
+import org.dealership.repository.parsers.CarParser;
+import org.junit.Test;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.List;
+import java.util.stream.Collectors;
+
+import static org.junit.Assert.*;
+
+public class RepositoryPagingTest {
+
+    private static List<Long> ids(List<Car> cars) {
+        return cars.stream().map(Car::getId).collect(Collectors.toList());
+    }
+
+    @Test
+    public void testInMemoryReadPage() {
+        InMemoryRepository<Car> repository = new InMemoryRepository<>();
+        for (int i = 0; i < 5; i++) {
+            repository.create(new Car(0, "Brand" + i, "Model", 2020, 1000, 0, CarStatus.AVAILABLE));
+        }
+
+        assertEquals(List.of(1L, 2L), ids(repository.readPage(0, 2)));
+        assertEquals(List.of(3L, 4L), ids(repository.readPage(2, 2)));
+        assertEquals(List.of(5L), ids(repository.readPage(4, 2)));
+        assertTrue(repository.readPage(5, 2).isEmpty());
+        assertTrue(repository.readPage(0, 0).isEmpty());
+        assertTrue(repository.readPage(0, -1).isEmpty());
+    }
+
+    @Test
+    public void testFileReadPageOrdersUnsortedFile() throws IOException {
+        File file = File.createTempFile("cars", ".txt");
+        file.deleteOnExit();
+        FileRepository<Car> repository = new FileRepository<>(file, new CarParser());
+        for (long id : new long[]{7, 3, 9, 1, 5}) {
+            repository.create(new Car(id, "Brand", "Model", 2020, 1000, 0, CarStatus.AVAILABLE));
+        }
+
+        assertEquals(List.of(1L, 3L), ids(repository.readPage(0, 2)));
+        assertEquals(List.of(5L, 7L), ids(repository.readPage(3, 2)));
+        assertEquals(List.of(9L), ids(repository.readPage(7, 2)));
+        assertTrue(repository.readPage(9, 2).isEmpty());
+        assertTrue(repository.readPage(0, -1).isEmpty());
+    }
+}
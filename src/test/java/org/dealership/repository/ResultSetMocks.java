@@ -0,0 +1,37 @@
+package org.dealership.repository;
+
+import java.sql.ResultSetMetaData;
+import java.sql.SQLException;
+import java.sql.Types;
+
+import static org.mockito.Mockito.*;
+
+/**
+ * Builds mocked result set metadata for mapping tests.
+ */
+final class ResultSetMocks {
+
+    private ResultSetMocks() {
+    }
+
+    /**
+     * @param columns alternating column labels and {@link java.sql.Types} codes, in result set order
+     */
+    static ResultSetMetaData metaData(Object... columns) throws SQLException {
+        ResultSetMetaData metaData = mock(ResultSetMetaData.class);
+        when(metaData.getColumnCount()).thenReturn(columns.length / 2);
+        for (int i = 0; i < columns.length / 2; i++) {
+            when(metaData.getColumnLabel(i + 1)).thenReturn((String) columns[2 * i]);
+            when(metaData.getColumnType(i + 1)).thenReturn((Integer) columns[2 * i + 1]);
+            when(metaData.getColumnTypeName(i + 1)).thenReturn(String.valueOf(columns[2 * i + 1]));
+        }
+        return metaData;
+    }
+
+    static ResultSetMetaData carMetaData(String prefix) throws SQLException {
+        return metaData(prefix + "car_id", Types.BIGINT, prefix + "brand", Types.VARCHAR,
+                prefix + "model", Types.VARCHAR, prefix + "year", Types.INTEGER,
+                prefix + "price", Types.REAL, prefix + "mileage", Types.INTEGER,
+                prefix + "status", Types.VARCHAR, prefix + "version", Types.BIGINT);
+    }
+}
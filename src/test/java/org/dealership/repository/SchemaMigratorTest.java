@@ -0,0 +1,107 @@
+package org.dealership.repository;
+
+import org.junit.Test;
+import org.mockito.InOrder;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.Statement;
+import java.util.List;
+
+import static org.junit.Assert.*;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.startsWith;
+import static org.mockito.Mockito.*;
+
+public class SchemaMigratorTest {
+
+    @Test
+    public void testMigrationsAreOrderedAndPresent() {
+        int previous = 0;
+        for (String script : SchemaMigrator.MIGRATIONS) {
+            int version = SchemaMigrator.versionOf(script);
+            assertTrue("Versions must increase: " + script, version > previous);
+            assertFalse("Empty script: " + script, SchemaMigrator.readScript(script).isBlank());
+            previous = version;
+        }
+        assertEquals(previous, SchemaMigrator.latestVersion());
+    }
+
+    @Test
+    public void testIndexScriptCoversAccessPaths() {
+        String indexes = SchemaMigrator.readScript("V2__create_indexes.sql");
+        assertTrue(indexes.contains("ON cars (status)"));
+        assertTrue(indexes.contains("ON cars (price)"));
+        assertTrue(indexes.contains("ON cars (year)"));
+        assertTrue(indexes.contains("ON leasings (client_id)"));
+        assertTrue(indexes.contains("ON leasings (car_id)"));
+        assertTrue(indexes.contains("ON transactions (transaction_type, transaction_date)"));
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testRejectsUnversionedScript() {
+        SchemaMigrator.versionOf("create_tables.sql");
+    }
+
+    @Test
+    public void testMigrateReturnsTheAppliedScripts() throws Exception {
+        ConnectionPool pool = mock(ConnectionPool.class);
+        Connection connection = mock(Connection.class);
+        Statement statement = mock(Statement.class);
+        PreparedStatement insert = mock(PreparedStatement.class);
+        ResultSet version = mock(ResultSet.class);
+        when(pool.getConnection()).thenReturn(connection);
+        when(connection.getAutoCommit()).thenReturn(true);
+        when(connection.createStatement()).thenReturn(statement);
+        when(connection.prepareStatement(anyString())).thenReturn(insert);
+        when(statement.executeQuery(anyString())).thenReturn(version);
+        when(version.next()).thenReturn(true);
+        // Version 1 is applied
+        when(version.getInt(1)).thenReturn(1);
+
+        List<String> applied = new SchemaMigrator(pool).migrate();
+
+        assertEquals(SchemaMigrator.MIGRATIONS.subList(1, SchemaMigrator.MIGRATIONS.size()), applied);
+        verify(insert, times(applied.size())).executeUpdate();
+        verify(connection).commit();
+    }
+
+    @Test
+    public void testLockIsTakenBeforeTheVersionTableIsCreated() throws Exception {
+        ConnectionPool pool = mock(ConnectionPool.class);
+        Connection connection = mock(Connection.class);
+        Statement statement = mock(Statement.class);
+        ResultSet version = mock(ResultSet.class);
+        when(pool.getConnection()).thenReturn(connection);
+        when(connection.getAutoCommit()).thenReturn(true);
+        when(connection.createStatement()).thenReturn(statement);
+        when(statement.executeQuery(anyString())).thenReturn(version);
+        when(version.next()).thenReturn(true);
+        when(version.getInt(1)).thenReturn(SchemaMigrator.latestVersion());
+
+        new SchemaMigrator(pool).migrate();
+
+        InOrder order = inOrder(connection, statement);
+        order.verify(connection).setAutoCommit(false);
+        order.verify(statement).execute(startsWith("SELECT pg_advisory_xact_lock("));
+        order.verify(statement).execute(startsWith("CREATE TABLE IF NOT EXISTS schema_version"));
+        order.verify(connection).commit();
+    }
+
+    @Test
+    public void testUpToDateSchemaAppliesNothing() throws Exception {
+        ConnectionPool pool = mock(ConnectionPool.class);
+        Connection connection = mock(Connection.class);
+        Statement statement = mock(Statement.class);
+        ResultSet version = mock(ResultSet.class);
+        when(pool.getConnection()).thenReturn(connection);
+        when(connection.createStatement()).thenReturn(statement);
+        when(statement.executeQuery(anyString())).thenReturn(version);
+        when(version.next()).thenReturn(true);
+        when(version.getInt(1)).thenReturn(SchemaMigrator.latestVersion());
+
+        assertTrue(new SchemaMigrator(pool).migrate().isEmpty());
+        verify(connection, never()).prepareStatement(anyString());
+    }
+}
@@ -0,0 +1,67 @@
+package org.dealership.repository;
+
+import org.dealership.model.Car;
+import org.dealership.model.enums.CarStatus;
+import org.junit.Test;
+
+import java.util.List;
+import java.util.stream.Collectors;
+
+import static org.junit.Assert.*;
+
+public class SortTest {
+
+    private static InMemoryRepository<Car> inventory() {
+        InMemoryRepository<Car> repository = new InMemoryRepository<>();
+        float[] prices = {30000, 12000, 45000, 9000, 12000, 20000};
+        for (int i = 0; i < prices.length; i++) {
+            CarStatus status = i == 3 ? CarStatus.SOLD : CarStatus.AVAILABLE;
+            repository.create(new Car(0, "Brand", "Model", 2015 + i, prices[i], 0, status));
+        }
+        return repository;
+    }
+
+    private static List<Long> ids(List<Car> cars) {
+        return cars.stream().map(Car::getId).collect(Collectors.toList());
+    }
+
+    @Test
+    public void testTopKCheapestAvailable() {
+        List<Car> cheapest = inventory().find(Criteria.eq("status", CarStatus.AVAILABLE), Sort.asc("price"), 0, 3);
+        // Car 4 (9000) is sold; ties on 12000 are broken by ID
+        assertEquals(List.of(2L, 5L, 6L), ids(cheapest));
+    }
+
+    @Test
+    public void testOffsetAndDescendingOrder() {
+        List<Car> page = inventory().find(Criteria.all(), Sort.desc("year"), 2, 2);
+        assertEquals(List.of(4L, 3L), ids(page));
+    }
+
+    @Test
+    public void testNoLimitSortsEverything() {
+        assertEquals(List.of(4L, 2L, 5L, 6L, 1L, 3L),
+                ids(inventory().find(Criteria.all(), Sort.asc("price"), 0, 0)));
+    }
+
+    @Test
+    public void testSqlOrderByIncludesIdTieBreaker() {
+        assertEquals("price ASC, car_id ASC", Sort.asc("price").toSql(EntityMapper.of(Car.class), ""));
+    }
+
+    @Test
+    public void testNullSortKeepsIdOrder() {
+        assertEquals(List.of(3L, 4L, 5L), ids(inventory().find(Criteria.all(), null, 2, 3)));
+    }
+
+    @Test
+    public void testNullsSortLastInBothDirections() {
+        InMemoryRepository<Car> repository = inventory();
+        repository.create(new Car(0, null, "Model", 2021, 15000, 0, CarStatus.AVAILABLE));
+        repository.create(new Car(0, "Audi", "Model", 2022, 15000, 0, CarStatus.AVAILABLE));
+
+        assertEquals(List.of(7L), ids(repository.find(Criteria.all(), Sort.asc("brand"), 7, 0)));
+        assertEquals(List.of(7L), ids(repository.find(Criteria.all(), Sort.desc("brand"), 7, 0)));
+        assertEquals("brand DESC NULLS LAST, car_id ASC", Sort.desc("brand").toSql(EntityMapper.of(Car.class), ""));
+    }
+}
@@ -0,0 +1,116 @@
+package org.dealership.repository;
+
+import org.dealership.exceptions.BusinessLogicException;
+import org.dealership.model.Car;
+import org.dealership.model.Client;
+import org.dealership.model.Leasing;
+import org.dealership.model.Transaction;
+import org.dealership.model.enums.CarStatus;
+import org.dealership.service.LeasingManagerImpl;
+import org.dealership.service.LeasingService;
+import org.junit.Before;
+import org.junit.Test;
+import org.mockito.InOrder;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+
+import static org.junit.Assert.*;
+import static org.mockito.Mockito.*;
+
+public class UnitOfWorkTest {
+    private ConnectionPool pool;
+    private Connection connection;
+    private PreparedStatement statement;
+    private LeasingService leasingService;
+
+    @Before
+    public void setUp() throws SQLException {
+        JdbcMocks jdbc = new JdbcMocks();
+        pool = jdbc.pool;
+        connection = jdbc.connection;
+        statement = jdbc.statement;
+
+        leasingService = new LeasingService(null, new LeasingManagerImpl(), new LeasingManagerImpl(),
+                new DBRepository<>(Leasing.class, "leasings", pool),
+                new DBRepository<>(Car.class, "cars", pool),
+                new DBRepository<>(Client.class, "clients", pool),
+                new DBRepository<>(Transaction.class, "transactions", pool));
+    }
+
+    private static Leasing leasing() {
+        Car car = new Car(3, "Audi", "A4", 2020, 30000, 0, CarStatus.AVAILABLE);
+        Client client = new Client();
+        client.setId(8);
+        return new Leasing(1, car, client, 36, 900, 5, 32400);
+    }
+
+    @Test
+    public void testLeaseRunsOnOneConnectionAndCommitsOnce() throws SQLException {
+        when(statement.executeUpdate()).thenReturn(1);
+
+        Transaction transaction = leasingService.leaseCarInDB(leasing(), 42);
+
+        assertEquals(42, transaction.getId());
+        assertEquals(3, transaction.getCar());
+        verify(pool, times(1)).getConnection();
+        InOrder order = inOrder(connection);
+        order.verify(connection).setAutoCommit(false);
+        order.verify(connection).prepareStatement("UPDATE cars SET status = ?, version = version + 1 WHERE car_id = ? AND status = ?");
+        order.verify(connection).prepareStatement(EntityMapper.of(Leasing.class).getInsertSql());
+        order.verify(connection).prepareStatement(EntityMapper.of(Transaction.class).getInsertSql());
+        order.verify(connection).commit();
+        order.verify(connection).setAutoCommit(true);
+        order.verify(connection).close();
+        verify(connection, never()).rollback();
+        // The car ID is bound by the status update and by both inserts
+        verify(statement, times(3)).setLong(2, 3L);
+    }
+
+    @Test
+    public void testUnavailableCarRollsBackWithoutInserting() throws SQLException {
+        when(statement.executeUpdate()).thenReturn(0);
+
+        try {
+            leasingService.leaseCarInDB(leasing(), 42);
+            fail("Expected the lease to be rejected");
+        } catch (BusinessLogicException e) {
+            verify(connection, never()).prepareStatement(EntityMapper.of(Leasing.class).getInsertSql());
+            verify(connection, never()).commit();
+            verify(connection).rollback();
+            verify(connection).close();
+        }
+    }
+
+    @Test
+    public void testFailedInsertRollsBack() throws SQLException {
+        when(statement.executeUpdate()).thenReturn(1).thenThrow(new SQLException("duplicate key"));
+
+        try {
+            leasingService.leaseCarInDB(leasing(), 42);
+            fail("Expected the insert failure to propagate");
+        } catch (org.dealership.exceptions.DatabaseException e) {
+            verify(connection, never()).commit();
+            verify(connection).rollback();
+        }
+    }
+
+    @Test
+    public void testRollbackFailureIsSuppressedByTheInsertFailure() throws SQLException {
+        when(statement.executeUpdate()).thenReturn(1).thenThrow(new SQLException("duplicate key"));
+        doThrow(new SQLException("connection lost")).when(connection).rollback();
+        doThrow(new SQLException("pool closed")).when(connection).close();
+
+        try {
+            leasingService.leaseCarInDB(leasing(), 42);
+            fail("Expected the insert failure to propagate");
+        } catch (org.dealership.exceptions.DatabaseException e) {
+            assertTrue(e.getMessage(), e.getMessage().contains("duplicate key"));
+            assertEquals(1, e.getSuppressed().length);
+            Throwable rollback = e.getSuppressed()[0];
+            assertTrue(rollback.getMessage(), rollback.getMessage().contains("connection lost"));
+            assertEquals("pool closed", rollback.getSuppressed()[0].getMessage());
+        }
+    }
+}
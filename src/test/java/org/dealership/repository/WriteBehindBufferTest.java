@@ -0,0 +1,183 @@
+package org.dealership.repository;
+
+import org.dealership.exceptions.DatabaseException;
+import org.dealership.model.Client;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+import static org.junit.Assert.*;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.*;
+
+public class WriteBehindBufferTest {
+    private Connection connection;
+    private PreparedStatement statement;
+    private DBRepository<Client> clientRepository;
+
+    @Before
+    public void setUp() throws SQLException {
+        ConnectionPool pool = mock(ConnectionPool.class);
+        connection = mock(Connection.class);
+        statement = mock(PreparedStatement.class);
+        when(pool.getConnection()).thenReturn(connection);
+        when(pool.getBatchSize()).thenReturn(100);
+        when(connection.getAutoCommit()).thenReturn(true);
+        when(connection.prepareStatement(anyString())).thenReturn(statement);
+        when(statement.executeBatch()).thenAnswer(invocation -> new int[]{1, 1});
+        when(statement.executeUpdate()).thenReturn(1);
+
+        clientRepository = new DBRepository<>(Client.class, "clients", pool);
+    }
+
+    private static Client client(long id, String lastName) {
+        return new Client("Ana", lastName, "2900101000000", id);
+    }
+
+    @Test
+    public void testUpdatesAreCoalescedPerIdAndWrittenInOneBatch() throws SQLException {
+        WriteBehindBuffer<Client> buffer = clientRepository.enableWriteBehind(100, 60_000);
+        clientRepository.update(client(1, "Pop"));
+        clientRepository.update(client(1, "Popa"));
+        clientRepository.update(client(2, "Ionescu"));
+
+        assertEquals(2, buffer.getPendingCount());
+        assertEquals("Popa", clientRepository.read(1).getLastName());
+        verify(statement, never()).executeBatch();
+
+        assertEquals(2, buffer.flush());
+        verify(statement, times(2)).addBatch();
+        verify(statement, times(1)).executeBatch();
+        verify(statement).setString(2, "Popa");
+        verify(statement, never()).setString(2, "Pop");
+        buffer.close();
+    }
+
+    @Test
+    public void testCloseFlushesAndRestoresSynchronousUpdates() throws SQLException {
+        WriteBehindBuffer<Client> buffer = clientRepository.enableWriteBehind(100, 60_000);
+        clientRepository.update(client(1, "Pop"));
+        buffer.close();
+
+        verify(statement, times(1)).executeBatch();
+        assertNull(clientRepository.getWriteBehind());
+        clientRepository.update(client(1, "Popescu"));
+        verify(statement, times(1)).executeUpdate();
+    }
+
+    @Test
+    public void testDeleteDiscardsPendingUpdate() throws SQLException {
+        WriteBehindBuffer<Client> buffer = clientRepository.enableWriteBehind(100, 60_000);
+        clientRepository.update(client(1, "Pop"));
+        clientRepository.delete(1);
+
+        assertEquals(0, buffer.getPendingCount());
+        buffer.close();
+        verify(statement, never()).executeBatch();
+    }
+
+    @Test
+    public void testFailedFlushKeepsUpdatesQueued() throws SQLException {
+        when(statement.executeBatch()).thenThrow(new SQLException("connection reset"));
+        WriteBehindBuffer<Client> buffer = clientRepository.enableWriteBehind(100, 60_000);
+        clientRepository.update(client(1, "Pop"));
+
+        try {
+            buffer.flush();
+            fail("Expected the batch failure to propagate");
+        } catch (DatabaseException e) {
+            assertEquals(1, buffer.getPendingCount());
+        }
+
+        doReturn(new int[]{1}).when(statement).executeBatch();
+        buffer.close();
+        assertEquals(0, buffer.getPendingCount());
+    }
+
+    @Test
+    public void testFullBufferBlocksUntilFlushed() throws Exception {
+        CountDownLatch flushing = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        when(statement.executeBatch()).thenAnswer(invocation -> {
+            flushing.countDown();
+            assertTrue(release.await(5, TimeUnit.SECONDS));
+            return new int[]{1};
+        });
+        WriteBehindBuffer<Client> buffer = clientRepository.enableWriteBehind(1, 60_000);
+        clientRepository.update(client(1, "Pop"));
+        // Holds the flusher inside the write of client 1, so the next update stays queued
+        assertTrue(flushing.await(5, TimeUnit.SECONDS));
+        clientRepository.update(client(2, "Ionescu"));
+
+        ExecutorService executor = Executors.newSingleThreadExecutor();
+        try {
+            // The buffer is full: this update waits until client 2 is flushed
+            Future<?> third = executor.submit(() -> clientRepository.update(client(3, "Popescu")));
+            Thread.sleep(100);
+            assertFalse(third.isDone());
+            assertNotNull(buffer.getPending(2));
+
+            release.countDown();
+            third.get(5, TimeUnit.SECONDS);
+        } finally {
+            executor.shutdown();
+        }
+        buffer.close();
+        verify(statement, times(3)).executeBatch();
+    }
+
+    @Test
+    public void testRowThatKeepsFailingIsDroppedWithoutHoldingBackOthers() throws SQLException {
+        // Any batch containing the "Poison" row fails, like a constraint violation would
+        AtomicBoolean poisonBound = new AtomicBoolean();
+        doAnswer(invocation -> {
+            poisonBound.set(true);
+            return null;
+        }).when(statement).setString(eq(2), eq("Poison"));
+        when(statement.executeBatch()).thenAnswer(invocation -> {
+            if (poisonBound.getAndSet(false)) {
+                throw new SQLException("violates check constraint");
+            }
+            return new int[]{1};
+        });
+        WriteBehindBuffer<Client> buffer = clientRepository.enableWriteBehind(100, 60_000);
+        clientRepository.update(client(1, "Pop"));
+        clientRepository.update(client(2, "Poison"));
+
+        Logger log = Logger.getLogger(WriteBehindBuffer.class.getName());
+        Level level = log.getLevel();
+        log.setLevel(Level.OFF);
+        try {
+            for (int attempt = 1; attempt <= WriteBehindBuffer.MAX_FLUSH_ATTEMPTS; attempt++) {
+                try {
+                    buffer.flush();
+                    fail("Expected the poison row to fail");
+                } catch (DatabaseException expected) {
+                }
+                if (attempt == 2) {
+                    // Written on its own once its batch failed
+                    assertNull(buffer.getPending(1));
+                }
+            }
+        } finally {
+            log.setLevel(level);
+        }
+
+        assertEquals(0, buffer.getPendingCount());
+        assertEquals(1, buffer.getDroppedCount());
+        verify(statement, times(WriteBehindBuffer.MAX_FLUSH_ATTEMPTS + 1)).executeBatch();
+        buffer.close();
+    }
+}